@@ -1,86 +1,60 @@
+import com.example.rev.puzzle.BatchSolver;
+import com.example.rev.puzzle.DistanceTable;
+import com.example.rev.puzzle.Grid;
+import com.example.rev.puzzle.IdaStarSolver;
+import com.example.rev.puzzle.ManhattanHeuristic;
+import com.example.rev.puzzle.Solver;
+
+import java.io.IOException;
+import java.nio.file.Path;
 import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.stream.Collectors;
 
 class Solution {
 
-    private static final List<Integer> rowDirections = List.of(1, 0, -1, 0);
-    private static final List<Integer> colDirections = List.of(0, 1, 0, -1);
-    private static final int target = 123450;
+    // up to the 8-puzzle the distances of all states fit in a table built on the first query
+    private static final int TABLE_MAX_CELLS = 9;
+    private static final Map<Integer, DistanceTable> tables = new ConcurrentHashMap<>();
 
-    private static int serialize(List<List<Integer>> list) {
-        int result = 0;
-        for (var sublist : list) {
-            for (var sublist2 : sublist) {
-                result *= 10;
-                result += sublist2;
-            }
+    public static int numSteps(List<List<Integer>> initPos) {
+        if (initPos == null || initPos.isEmpty() || initPos.get(0) == null) {
+            throw new IllegalArgumentException("Board must be not empty");
         }
-        return result;
+        final var grid = new Grid(initPos.size(), initPos.get(0).size());
+        return solverFor(grid).solve(grid.pack(initPos));
     }
 
-    private static List<List<Integer>> deserialize(int state) {
-
-        ArrayList<List<Integer>> result = new ArrayList<>();
-        result.add(new ArrayList<>());
-        result.add(new ArrayList<>());
-        for (int i = 1; i >= 0; i--) {
-            for (int j = 2; j >= 0; j--) {
-                int exponent = i * 3 + j;
-                int digit = state / (int)Math.pow(10, exponent) % 10;
-                result.get(1 - i).add(digit);
-            }
-        }
-        return result;
+    // both kinds are thread-safe, so batches share one solver between workers
+    private static Solver solverFor(Grid grid) {
+        return grid.cells() <= TABLE_MAX_CELLS
+                ? tables.computeIfAbsent(grid.rows() * Grid.MAX_CELLS + grid.cols(), key -> DistanceTable.build(grid))
+                : new IdaStarSolver(grid, new ManhattanHeuristic(grid, true));
     }
 
-    public static int numSteps(List<List<Integer>> initPos) {
-        final var initState = serialize(initPos);
-        if (initState == target)
-            return 0;
-        final var positionToMovesMap = new HashMap<Integer, Integer>();
-        final var queue = new LinkedList<Integer>();
-        positionToMovesMap.put(initState, 0);
-        queue.add(initState);
-        while (!queue.isEmpty()) {
-            final var state = queue.poll();
-            var row = 0;
-            var col = 0;
-            final var positions = deserialize(state);
-            for (int i = 0; i < 2; i++) {
-                for (int j = 0; j < 3; j++) {
-                    if (positions.get(i).get(j) == 0) {
-                        row = i; col = j;
-                    }
-                }
-            }
-            for (int i = 0; i < rowDirections.size(); i++) {
-                int newRow = row + rowDirections.get(i);
-                int newCol = col + colDirections.get(i);
-                if (newRow >= 0 && newRow < 2 && newCol >= 0 && newCol < 3) {
-                    final var newPositions = deserialize(state);
-                    newPositions.get(row)
-                            .set( col, positions.get(newRow).get(newCol));
-                    newPositions.get(newRow)
-                            .set(newCol, positions.get(row).get(col));
-                    final var newState = serialize(newPositions);
-                    if (!positionToMovesMap.containsKey(newState)) {
-                        positionToMovesMap.put(newState, positionToMovesMap.get(state) + 1);
-                        queue.add(newState);
-                        if (newState == target) {
-                            return positionToMovesMap.get(newState);
-                        }
-                    }
-                }
-            }
-        }
-        return -1;
+    /*
+    batch mode: java Solution <boards file> <answers file> [rows cols], one board per line, 2x3 by default
+     */
+    private static void solveBatch(String[] args) throws IOException {
+        final var grid = args.length >= 4
+                ? new Grid(Integer.parseInt(args[2]), Integer.parseInt(args[3]))
+                : new Grid(2, 3);
+        final var report = new BatchSolver(grid, solverFor(grid), ForkJoinPool.commonPool())
+                .solve(Path.of(args[0]), Path.of(args[1]));
+        System.out.printf("%d boards, %d unsolvable, %d ms, %.0f boards/s%n", report.boards(), report.unsolvable(),
+                report.elapsed().toMillis(), report.boardsPerSecond());
     }
 
     public static List<String> splitWords(String s) {
         return s.isEmpty() ? List.of() : Arrays.asList(s.split(" "));
     }
 
-    public static void main(String[] args) {
+    public static void main(String[] args) throws IOException {
+        if (args.length >= 2) {
+            solveBatch(args);
+            return;
+        }
         Scanner scanner = new Scanner(System.in);
         int initPosLength = Integer.parseInt(scanner.nextLine());
         List<List<Integer>> initPos = new ArrayList<>();
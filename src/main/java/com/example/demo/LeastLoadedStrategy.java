@@ -0,0 +1,68 @@
+package com.example.demo;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/*
+    Power of two choices: of two random items the one with fewer requests in flight wins.
+    Scanning every counter would read lines that all threads keep writing, two random ones spread that out
+    and still keep the maximum load close to the least-loaded choice.
+    Callers report finished requests through LoadBalancer.release(), otherwise loads only grow.
+ */
+public class LeastLoadedStrategy<T> implements LoadBalancingStrategy<T> {
+
+    private final ConcurrentHashMap<T, AtomicInteger> inFlight;
+
+    public LeastLoadedStrategy() {
+        this.inFlight = new ConcurrentHashMap<>();
+    }
+
+    @Override
+    public T select(T[] items) {
+        var chosen = items[0];
+        if (items.length > 1) {
+            final var random = ThreadLocalRandom.current();
+            final var first = random.nextInt(items.length);
+            // the second pick skips the first, so the two are always distinct
+            final var second = (first + 1 + random.nextInt(items.length - 1)) % items.length;
+            chosen = load(items[first]).get() <= load(items[second]).get() ? items[first] : items[second];
+        }
+        load(chosen).incrementAndGet();
+        return chosen;
+    }
+
+    @Override
+    public void release(T item) {
+        final var load = inFlight.get(item);
+        if (load != null) {
+            load.updateAndGet(current -> Math.max(0, current - 1));
+        }
+    }
+
+    /**
+     * A select() that read the items before the removal may add the entry back, it then stays
+     * until the item is removed again.
+     */
+    @Override
+    public void removed(T item) {
+        inFlight.remove(item);
+    }
+
+    /**
+     * Requests sent to the item and not released yet.
+     */
+    public int inFlight(T item) {
+        final var load = inFlight.get(item);
+        return load == null ? 0 : load.get();
+    }
+
+    int tracked() {
+        return inFlight.size();
+    }
+
+    private AtomicInteger load(T item) {
+        final var load = inFlight.get(item);
+        return load != null ? load : inFlight.computeIfAbsent(item, key -> new AtomicInteger());
+    }
+}
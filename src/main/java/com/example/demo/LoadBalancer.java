@@ -1,10 +1,8 @@
 package com.example.demo;
 
-import java.util.*;
-import java.util.concurrent.TimeUnit;
-import java.util.concurrent.atomic.AtomicInteger;
-import java.util.concurrent.locks.ReadWriteLock;
-import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.Arrays;
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicReference;
 
 /*
 
@@ -13,66 +11,93 @@ import java.util.concurrent.locks.ReentrantReadWriteLock;
 - should be thread safe
 - tests
 
+Items are an immutable array published through an AtomicReference: register and unregister copy it
+and CAS the new one in, next() reads the current array and hands it to the strategy, without any lock.
+Writers are rare and copy at most sizeLimit elements, readers never wait for them.
+
  */
 public class LoadBalancer<T> {
 
-    private final List<T> items;
-    private final AtomicInteger index;
     private final int sizeLimit;
-    private final ReadWriteLock lock;
-    private final long awaitMs;
+    private final LoadBalancingStrategy<T> strategy;
+    private final AtomicReference<T[]> items;
+
+    /**
+     * Round robin.
+     */
+    public LoadBalancer(int sizeLimit) {
+        this(sizeLimit, new RoundRobinStrategy<>());
+    }
 
+    /**
+     * Round robin, {@code awaitMs} is ignored: there are no locks to wait for anymore.
+     */
     public LoadBalancer(int sizeLimit, long awaitMs) {
+        this(sizeLimit);
+    }
+
+    @SuppressWarnings("unchecked")
+    public LoadBalancer(int sizeLimit, LoadBalancingStrategy<T> strategy) {
+        if (sizeLimit <= 0 || Objects.isNull(strategy)) {
+            throw new IllegalArgumentException("Size limit must be more than zero and strategy must be not null");
+        }
         this.sizeLimit = sizeLimit;
-        this.index = new AtomicInteger(0);
-        this.items = new ArrayList<>();
-        this.lock = new ReentrantReadWriteLock();
-        this.awaitMs = awaitMs;
+        this.strategy = strategy;
+        this.items = new AtomicReference<>((T[]) new Object[0]);
     }
 
     public boolean register(T item) {
-        try {
-            if (!lock.writeLock().tryLock(awaitMs, TimeUnit.MILLISECONDS)) {
-                throw new RuntimeException("Timeout exceeded");
-            }
-            if (items.size() >= sizeLimit) {
+        if (Objects.isNull(item)) {
+            throw new IllegalArgumentException("Item must be not null");
+        }
+        while (true) {
+            final var current = items.get();
+            if (current.length >= sizeLimit) {
                 return false;
             }
-            return items.add(item);
-        } catch (InterruptedException ex) {
-            throw new RuntimeException(ex);
-        } finally {
-            lock.writeLock().unlock();
+            final var updated = Arrays.copyOf(current, current.length + 1);
+            updated[current.length] = item;
+            if (items.compareAndSet(current, updated)) {
+                return true;
+            }
         }
     }
 
     public boolean unregister(T item) {
-        try {
-            if (!lock.writeLock().tryLock(awaitMs, TimeUnit.MILLISECONDS)) {
-                throw new RuntimeException("Timeout exceeded");
+        while (true) {
+            final var current = items.get();
+            var index = 0;
+            while (index < current.length && !current[index].equals(item)) {
+                index++;
+            }
+            if (index == current.length) {
+                return false;
+            }
+            final var updated = Arrays.copyOf(current, current.length - 1);
+            System.arraycopy(current, index + 1, updated, index, current.length - index - 1);
+            if (items.compareAndSet(current, updated)) {
+                strategy.removed(item);
+                return true;
             }
-            return items.remove(item);
-        } catch (InterruptedException ex) {
-            throw new RuntimeException(ex);
-        } finally {
-            lock.writeLock().unlock();
         }
     }
 
     public T next() {
-        try {
-            if (!lock.readLock().tryLock(awaitMs, TimeUnit.MILLISECONDS)) {
-                throw new RuntimeException("Timeout exceeded");
-            }
-            if (items.isEmpty()) {
-                throw new RuntimeException("List is empty");
-            }
-            final var idx = index.get() == Integer.MAX_VALUE ? index.getAndIncrement() : index.getAndIncrement() % items.size();
-            return items.get(idx);
-        } catch (InterruptedException ex) {
-            throw new RuntimeException(ex);
-        } finally {
-            lock.readLock().unlock();
+        final var current = items.get();
+        if (current.length == 0) {
+            throw new IllegalStateException("List is empty");
         }
+        return strategy.select(current);
+    }
+
+    /**
+     * Reports that a request sent to {@code item} has finished, used by load-aware strategies.
+     */
+    public void release(T item) {
+        strategy.release(item);
+    }
+
+    public int size() {
+        return items.get().length;
     }
 }
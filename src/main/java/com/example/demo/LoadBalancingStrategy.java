@@ -0,0 +1,25 @@
+package com.example.demo;
+
+/*
+    Picks the item for the next request from the current snapshot of a LoadBalancer.
+    Called concurrently and without locks, implementations must be thread-safe.
+ */
+public interface LoadBalancingStrategy<T> {
+
+    /**
+     * {@code items} is never empty and is shared with other callers, it must not be modified.
+     */
+    T select(T[] items);
+
+    /**
+     * A request sent to {@code item} has finished, for strategies that track load.
+     */
+    default void release(T item) {
+    }
+
+    /**
+     * {@code item} was unregistered, strategies drop whatever they keep for it.
+     */
+    default void removed(T item) {
+    }
+}
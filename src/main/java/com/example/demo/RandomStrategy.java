@@ -0,0 +1,14 @@
+package com.example.demo;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+/*
+    No shared state at all: every thread draws from its own generator.
+ */
+public class RandomStrategy<T> implements LoadBalancingStrategy<T> {
+
+    @Override
+    public T select(T[] items) {
+        return items[ThreadLocalRandom.current().nextInt(items.length)];
+    }
+}
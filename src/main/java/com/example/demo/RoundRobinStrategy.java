@@ -0,0 +1,25 @@
+package com.example.demo;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/*
+    A long counter does not wrap in practice (2^63 calls), and floorMod keeps the index
+    inside the snapshot even when items were removed since the last call.
+ */
+public class RoundRobinStrategy<T> implements LoadBalancingStrategy<T> {
+
+    private final AtomicLong counter;
+
+    public RoundRobinStrategy() {
+        this(0);
+    }
+
+    RoundRobinStrategy(long start) {
+        this.counter = new AtomicLong(start);
+    }
+
+    @Override
+    public T select(T[] items) {
+        return items[(int) Math.floorMod(counter.getAndIncrement(), (long) items.length)];
+    }
+}
@@ -0,0 +1,48 @@
+package com.example.demo;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/*
+    Round robin per thread over padded striped counters, so next() of different threads never writes
+    the same cache line. Counts per item stay within the number of stripes of each other.
+    Each thread is pinned to a stripe by a sequence number, every stripe is a counter alone on its own 128 bytes
+    and starts at a random offset, so threads that start together don't all pick the same first item.
+ */
+public class StripedRoundRobinStrategy<T> implements LoadBalancingStrategy<T> {
+
+    private static final int PADDING_LONGS = 16;
+    private static final AtomicInteger THREAD_SEQUENCE = new AtomicInteger();
+    private static final ThreadLocal<int[]> THREAD_NUMBER =
+            ThreadLocal.withInitial(() -> new int[]{THREAD_SEQUENCE.getAndIncrement()});
+
+    private final AtomicLongArray counters;
+    private final int mask;
+
+    public StripedRoundRobinStrategy() {
+        this(Runtime.getRuntime().availableProcessors() * 2);
+    }
+
+    /**
+     * @param stripes rounded up to a power of two
+     */
+    public StripedRoundRobinStrategy(int stripes) {
+        if (stripes <= 0) {
+            throw new IllegalArgumentException("Stripes must be more than zero");
+        }
+        final var size = Integer.highestOneBit(Math.min(stripes, 1 << 16) * 2 - 1);
+        this.counters = new AtomicLongArray(size * PADDING_LONGS);
+        this.mask = size - 1;
+        final var random = ThreadLocalRandom.current();
+        for (int i = 0; i < size; i++) {
+            counters.set(i * PADDING_LONGS, random.nextInt(1 << 20));
+        }
+    }
+
+    @Override
+    public T select(T[] items) {
+        final var stripe = THREAD_NUMBER.get()[0] & mask;
+        return items[(int) Math.floorMod(counters.getAndIncrement(stripe * PADDING_LONGS), (long) items.length)];
+    }
+}
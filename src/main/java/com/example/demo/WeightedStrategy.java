@@ -0,0 +1,59 @@
+package com.example.demo;
+
+import java.util.Arrays;
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.ToIntFunction;
+
+/*
+    Weighted round robin: the counter walks over the total weight and a binary search over the cumulative
+    weights of the snapshot finds the item, so an item of weight 3 gets three of every total-weight calls.
+    Cumulative weights are computed once per snapshot; racing threads may both compute them, the result is the same.
+ */
+public class WeightedStrategy<T> implements LoadBalancingStrategy<T> {
+
+    private final ToIntFunction<T> weights;
+    private final AtomicLong counter;
+    private volatile Cumulative cumulative;
+
+    private record Cumulative(Object[] items, long[] bounds) {}
+
+    /**
+     * Weights must be positive and must not change while the item is registered.
+     */
+    public WeightedStrategy(ToIntFunction<T> weights) {
+        if (Objects.isNull(weights)) {
+            throw new IllegalArgumentException("Weights must be not null");
+        }
+        this.weights = weights;
+        this.counter = new AtomicLong();
+    }
+
+    @Override
+    public T select(T[] items) {
+        var current = cumulative;
+        if (current == null || current.items() != items) {
+            current = cumulate(items);
+            cumulative = current;
+        }
+        final var bounds = current.bounds();
+        final var position = Math.floorMod(counter.getAndIncrement(), bounds[bounds.length - 1]);
+        final var found = Arrays.binarySearch(bounds, position + 1);
+        return items[found >= 0 ? found : -found - 1];
+    }
+
+    // bounds[i]: total weight of items 0..i
+    private Cumulative cumulate(T[] items) {
+        final var bounds = new long[items.length];
+        var total = 0L;
+        for (int i = 0; i < items.length; i++) {
+            final var weight = weights.applyAsInt(items[i]);
+            if (weight <= 0) {
+                throw new IllegalStateException("Weight of " + items[i] + " must be positive");
+            }
+            total += weight;
+            bounds[i] = total;
+        }
+        return new Cumulative(items, bounds);
+    }
+}
@@ -0,0 +1,84 @@
+package com.example.demo.web;
+
+import com.example.rev.shortener.ClickAnalytics;
+import com.example.rev.shortener.UrlShortener;
+import org.springframework.http.MediaType;
+import org.springframework.web.reactive.function.server.ServerRequest;
+import org.springframework.web.reactive.function.server.ServerResponse;
+import reactor.core.publisher.Mono;
+
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.util.Objects;
+
+public class RedirectHandler {
+
+    // responses without per-request data are immutable, so they are built once and shared
+    private static final Mono<ServerResponse> NOT_FOUND = ServerResponse.notFound().build();
+    private static final int DEFAULT_TOP = 10;
+    private static final int MAX_TOP = 1000;
+    private static final Mono<ServerResponse> BAD_REQUEST = ServerResponse.badRequest()
+            .contentType(MediaType.TEXT_PLAIN)
+            .bodyValue("Body must be an absolute http(s) url");
+
+    private final UrlShortener shortener;
+    private final ClickAnalytics clicks;
+
+    public RedirectHandler(UrlShortener shortener, ClickAnalytics clicks) {
+        if (Objects.isNull(shortener) || Objects.isNull(clicks)) {
+            throw new IllegalArgumentException("Shortener and click analytics must be not null");
+        }
+        this.shortener = shortener;
+        this.clicks = clicks;
+    }
+
+    /**
+     * The hot path: a lookup of the url and its deadline and one small response object, misses don't throw.
+     */
+    public Mono<ServerResponse> redirect(ServerRequest request) {
+        final var code = request.pathVariable("code");
+        final var original = shortener.findOriginal(code);
+        if (original == null) {
+            return NOT_FOUND;
+        }
+        return Mono.just(RedirectResponse.expiring(original, shortener.timeToLiveMillis(code)));
+    }
+
+    public Mono<ServerResponse> shorten(ServerRequest request) {
+        return request.bodyToMono(String.class)
+                .map(String::strip)
+                .filter(RedirectHandler::isHttpUrl)
+                .flatMap(url -> {
+                    final var code = shortener.getShort(url);
+                    return ServerResponse.created(URI.create("/" + code))
+                            .contentType(MediaType.TEXT_PLAIN)
+                            .bodyValue(code);
+                })
+                .switchIfEmpty(BAD_REQUEST);
+    }
+
+    public Mono<ServerResponse> top(ServerRequest request) {
+        final int n;
+        try {
+            n = request.queryParam("n").map(Integer::parseInt).orElse(DEFAULT_TOP);
+        } catch (NumberFormatException e) {
+            return ServerResponse.badRequest().bodyValue("n must be a number");
+        }
+        if (n <= 0 || n > MAX_TOP) {
+            return ServerResponse.badRequest().bodyValue("n must be in [1, " + MAX_TOP + "]");
+        }
+        return ServerResponse.ok()
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue(clicks.top(n));
+    }
+
+    private static boolean isHttpUrl(String url) {
+        try {
+            final var uri = new URI(url);
+            return uri.getHost() != null
+                    && ("http".equalsIgnoreCase(uri.getScheme()) || "https".equalsIgnoreCase(uri.getScheme()));
+        } catch (URISyntaxException e) {
+            return false;
+        }
+    }
+}
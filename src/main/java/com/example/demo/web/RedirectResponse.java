@@ -0,0 +1,80 @@
+package com.example.demo.web;
+
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.http.ResponseCookie;
+import org.springframework.util.CollectionUtils;
+import org.springframework.util.LinkedMultiValueMap;
+import org.springframework.util.MultiValueMap;
+import org.springframework.web.reactive.function.server.ServerResponse;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.publisher.Mono;
+
+/*
+    Bodyless redirect written straight into the native response headers.
+    The builder from ServerResponse.status() copies headers and cookies into its own maps on every request,
+    this one holds just the location, the other header values are constants.
+    302 rather than 301: browsers cache a 301 forever, so later clicks of an expired or re-pointed link
+    would never reach the server. The 302 of an expiring link is cached no longer than the link lives,
+    its code is recycled afterwards and may point somewhere else.
+ */
+final class RedirectResponse implements ServerResponse {
+
+    private static final HttpStatus STATUS = HttpStatus.FOUND;
+    private static final long MAX_AGE_SECONDS = 90;
+    private static final String CACHE_CONTROL = "private, max-age=" + MAX_AGE_SECONDS;
+    private static final String NO_CACHE = "no-cache";
+    private static final String CONTENT_LENGTH = "0";
+    private static final MultiValueMap<String, ResponseCookie> NO_COOKIES =
+            CollectionUtils.unmodifiableMultiValueMap(new LinkedMultiValueMap<>());
+
+    private final String location;
+    private final String cacheControl;
+
+    private RedirectResponse(String location, String cacheControl) {
+        this.location = location;
+        this.cacheControl = cacheControl;
+    }
+
+    /**
+     * Redirect to a link that expires in {@code timeToLiveMillis}, {@link Long#MAX_VALUE} for one that never does.
+     */
+    static RedirectResponse expiring(String location, long timeToLiveMillis) {
+        final var seconds = timeToLiveMillis / 1000;
+        if (seconds >= MAX_AGE_SECONDS) {
+            return new RedirectResponse(location, CACHE_CONTROL);
+        }
+        return new RedirectResponse(location, seconds <= 0 ? NO_CACHE : "private, max-age=" + seconds);
+    }
+
+    @Override
+    public HttpStatusCode statusCode() {
+        return STATUS;
+    }
+
+    @Override
+    public HttpHeaders headers() {
+        final var headers = new HttpHeaders();
+        headers.set(HttpHeaders.LOCATION, location);
+        headers.set(HttpHeaders.CACHE_CONTROL, cacheControl);
+        headers.set(HttpHeaders.CONTENT_LENGTH, CONTENT_LENGTH);
+        return HttpHeaders.readOnlyHttpHeaders(headers);
+    }
+
+    @Override
+    public MultiValueMap<String, ResponseCookie> cookies() {
+        return NO_COOKIES;
+    }
+
+    @Override
+    public Mono<Void> writeTo(ServerWebExchange exchange, Context context) {
+        final var response = exchange.getResponse();
+        response.setStatusCode(STATUS);
+        final var headers = response.getHeaders();
+        headers.set(HttpHeaders.LOCATION, location);
+        headers.set(HttpHeaders.CACHE_CONTROL, cacheControl);
+        headers.set(HttpHeaders.CONTENT_LENGTH, CONTENT_LENGTH);
+        return response.setComplete();
+    }
+}
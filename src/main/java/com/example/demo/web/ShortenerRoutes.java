@@ -0,0 +1,68 @@
+package com.example.demo.web;
+
+import com.example.rev.shortener.ClickAnalytics;
+import com.example.rev.shortener.CodeGenerator;
+import com.example.rev.shortener.ConcurrentUrlStore;
+import com.example.rev.shortener.UrlShortener;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.reactive.function.server.RouterFunction;
+import org.springframework.web.reactive.function.server.RouterFunctions;
+import org.springframework.web.reactive.function.server.ServerResponse;
+
+import java.time.Duration;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+
+/*
+    HTTP front end of the shortener on WebFlux/Netty:
+    POST / with the url as a text body creates a link, GET /{code} redirects to the original url,
+    GET /stats/top?n=10 lists the most clicked links.
+    Handlers run on the event loop, the in-memory store never blocks.
+ */
+@Configuration(proxyBeanMethods = false)
+public class ShortenerRoutes {
+
+    private static final Logger log = LoggerFactory.getLogger(ShortenerRoutes.class);
+    private static final int CODE_LENGTH = 7;
+    private static final Duration AGGREGATION_INTERVAL = Duration.ofSeconds(5);
+
+    @Bean(destroyMethod = "shutdown")
+    public ScheduledExecutorService analyticsScheduler() {
+        return Executors.newSingleThreadScheduledExecutor();
+    }
+
+    @Bean
+    public ClickAnalytics clickAnalytics(ScheduledExecutorService analyticsScheduler) {
+        // a line per link and minute is only for local debugging, production plugs in a real sink
+        final var analytics = new ClickAnalytics(buckets -> {
+            if (log.isDebugEnabled()) {
+                buckets.forEach(bucket ->
+                        log.debug("Clicks {} at {}: {}", bucket.code(), bucket.minuteStartMillis(), bucket.clicks()));
+            }
+        });
+        analytics.scheduleAggregation(analyticsScheduler, AGGREGATION_INTERVAL);
+        return analytics;
+    }
+
+    @Bean
+    public UrlShortener urlShortener(ClickAnalytics clickAnalytics) {
+        return new UrlShortener(new ConcurrentUrlStore(), CodeGenerator.inMemory(CODE_LENGTH), clickAnalytics);
+    }
+
+    @Bean
+    public RedirectHandler redirectHandler(UrlShortener urlShortener, ClickAnalytics clickAnalytics) {
+        return new RedirectHandler(urlShortener, clickAnalytics);
+    }
+
+    @Bean
+    public RouterFunction<ServerResponse> shortenerRouter(RedirectHandler handler) {
+        return RouterFunctions.route()
+                .GET("/stats/top", handler::top)
+                .GET("/{code}", handler::redirect)
+                .POST("/", handler::shorten)
+                .build();
+    }
+}
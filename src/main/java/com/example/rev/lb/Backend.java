@@ -0,0 +1,33 @@
+package com.example.rev.lb;
+
+import java.util.Map;
+import java.util.Objects;
+
+/*
+    A backend with its placement: the availability zone it runs in and free-form tags such as
+    version or rack. Immutable; health is a separate flag so a health change doesn't re-create metadata.
+ */
+public record Backend(String url, String zone, Map<String, String> tags, boolean healthy) {
+
+    // zone of backends registered without metadata
+    public static final String UNKNOWN_ZONE = "";
+
+    public Backend {
+        if (Objects.isNull(url) || Objects.isNull(zone) || Objects.isNull(tags)) {
+            throw new IllegalArgumentException("Url, zone and tags must be not null");
+        }
+        tags = Map.copyOf(tags);
+    }
+
+    public Backend(String url, String zone, Map<String, String> tags) {
+        this(url, zone, tags, true);
+    }
+
+    public static Backend of(String url) {
+        return new Backend(url, UNKNOWN_ZONE, Map.of());
+    }
+
+    public Backend withHealthy(boolean healthy) {
+        return healthy == this.healthy ? this : new Backend(url, zone, tags, healthy);
+    }
+}
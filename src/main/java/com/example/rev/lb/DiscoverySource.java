@@ -0,0 +1,20 @@
+package com.example.rev.lb;
+
+import java.util.Collection;
+import java.util.function.Consumer;
+
+/*
+    Feed of backend membership. Every notification is the full set of backends with their metadata, so a missed
+    or repeated notification is harmless: the subscriber works out the diff against what the balancer has.
+ */
+public interface DiscoverySource extends AutoCloseable {
+
+    /**
+     * Starts delivering membership to the listener, the current membership first if it is known.
+     * Backends are unique by url.
+     */
+    void start(Consumer<Collection<Backend>> listener);
+
+    @Override
+    void close();
+}
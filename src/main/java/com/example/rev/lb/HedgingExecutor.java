@@ -0,0 +1,228 @@
+package com.example.rev.lb;
+
+import java.time.Duration;
+import java.util.HashSet;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+
+/*
+    Hedged requests over a LoadBalancer. A call goes to one backend; if it hasn't answered by the p95
+    latency seen so far, the same call goes to a different backend and the first answer wins. A failed
+    attempt is retried on a different backend the same way. Extra attempts are capped per call and
+    paid from a RetryBudget, so hedging adds a bounded share of load (about the budget ratio) and stops
+    when everything is slow or failing.
+    Attempts run on the given executor. On Java 21 that can be a virtual thread per task executor,
+    so blocking calls cost no platform threads; the losing attempt is not interrupted, its result is dropped.
+    An attempt the executor rejects counts as a failed one. Extra attempts pick an untried backend straight from
+    the members, so they don't move the balancer's own rotation for other callers.
+ */
+public class HedgingExecutor {
+
+    private static final double HEDGE_PERCENTILE = 0.95;
+    private static final int MIN_SAMPLES = 20;
+    private static final long DECAY_EVERY = 10_000;
+
+    private final LoadBalancer loadBalancer;
+    private final RetryBudget budget;
+    private final ScheduledExecutorService scheduler;
+    private final Executor executor;
+    private final LatencyTracker latencies;
+    private final Duration initialDelay;
+    private final int maxAttempts;
+    private final LongAdder hedges;
+    private final LongAdder retries;
+    private final LongAdder denied;
+
+    /**
+     * Until enough latencies are seen, attempts are hedged after {@code initialDelay}.
+     */
+    public HedgingExecutor(LoadBalancer loadBalancer, RetryBudget budget, ScheduledExecutorService scheduler,
+                           Executor executor, Duration initialDelay, int maxAttempts) {
+        if (Objects.isNull(loadBalancer) || Objects.isNull(budget) || Objects.isNull(scheduler)
+                || Objects.isNull(executor) || Objects.isNull(initialDelay)) {
+            throw new IllegalArgumentException("Arguments must be not null");
+        }
+        if (initialDelay.isNegative() || maxAttempts < 1) {
+            throw new IllegalArgumentException("Initial delay must not be negative and max attempts must be positive");
+        }
+        this.loadBalancer = loadBalancer;
+        this.budget = budget;
+        this.scheduler = scheduler;
+        this.executor = executor;
+        this.latencies = new LatencyTracker(DECAY_EVERY);
+        this.initialDelay = initialDelay;
+        this.maxAttempts = maxAttempts;
+        this.hedges = new LongAdder();
+        this.retries = new LongAdder();
+        this.denied = new LongAdder();
+    }
+
+    /**
+     * Runs {@code call} with a backend url, completes with the first successful answer or,
+     * when every attempt failed, with the last failure. Fails the same way when there is no backend
+     * or the executor rejects the first attempt.
+     */
+    public <T> CompletableFuture<T> execute(Function<String, T> call) {
+        if (Objects.isNull(call)) {
+            throw new IllegalArgumentException("Call must be not null");
+        }
+        final String backend;
+        try {
+            backend = loadBalancer.next();
+        } catch (RuntimeException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+        budget.deposit();
+        final var hedged = new Hedged<>(call);
+        final var rejection = hedged.start(backend);
+        if (rejection != null) {
+            return CompletableFuture.failedFuture(rejection);
+        }
+        if (maxAttempts > 1) {
+            final var timer = scheduler.schedule(hedged::hedge, hedgeDelayMicros(), TimeUnit.MICROSECONDS);
+            hedged.result.whenComplete((value, error) -> timer.cancel(false));
+        }
+        return hedged.result;
+    }
+
+    /**
+     * Current hedging delay: the p95 of recent attempts once there are enough of them.
+     */
+    public long hedgeDelayMicros() {
+        final var p95 = latencies.count() < MIN_SAMPLES ? -1 : latencies.percentile(HEDGE_PERCENTILE);
+        return p95 < 0 ? TimeUnit.NANOSECONDS.toMicros(initialDelay.toNanos()) : p95;
+    }
+
+    public long hedges() {
+        return hedges.sum();
+    }
+
+    public long retries() {
+        return retries.sum();
+    }
+
+    /**
+     * Extra attempts that were wanted but not made because the budget was spent.
+     */
+    public long denied() {
+        return denied.sum();
+    }
+
+    private final class Hedged<T> {
+
+        private final Function<String, T> call;
+        private final CompletableFuture<T> result;
+        // guarded by this
+        private final Set<String> used;
+        private int started;
+        private int failed;
+
+        private Hedged(Function<String, T> call) {
+            this.call = call;
+            this.result = new CompletableFuture<>();
+            this.used = new HashSet<>();
+        }
+
+        // null if the first attempt is running, otherwise why the executor rejected it
+        private synchronized RuntimeException start(String backend) {
+            return launch(backend);
+        }
+
+        // the attempt isn't counted as started when the executor rejects it
+        private RuntimeException launch(String backend) {
+            used.add(backend);
+            started++;
+            final var start = System.nanoTime();
+            try {
+                CompletableFuture.supplyAsync(() -> call.apply(backend), executor).whenComplete((value, error) -> {
+                    if (error == null) {
+                        latencies.record(TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - start));
+                        result.complete(value);
+                    } else {
+                        onFailure(error);
+                    }
+                });
+                return null;
+            } catch (RuntimeException e) {
+                started--;
+                return e;
+            }
+        }
+
+        private synchronized void hedge() {
+            if (!result.isDone()) {
+                extraAttempt(hedges);
+            }
+        }
+
+        private synchronized void onFailure(Throwable error) {
+            failed++;
+            if (result.isDone()) {
+                return;
+            }
+            // another attempt is still running: let it answer
+            if (failed < started) {
+                return;
+            }
+            if (extraAttempt(retries)) {
+                return;
+            }
+            result.completeExceptionally(error instanceof CompletionException && error.getCause() != null
+                    ? error.getCause() : error);
+        }
+
+        // launches an attempt on a backend not tried yet if attempts and budget allow, counted before it starts
+        // so a caller woken by its answer sees the count, the token of a rejected attempt goes back to the budget
+        private boolean extraAttempt(LongAdder counter) {
+            if (started >= maxAttempts) {
+                return false;
+            }
+            final var backend = untried();
+            if (backend == null) {
+                return false;
+            }
+            if (!budget.tryWithdraw()) {
+                denied.increment();
+                return false;
+            }
+            counter.increment();
+            if (launch(backend) != null) {
+                counter.decrement();
+                budget.refund();
+                return false;
+            }
+            return true;
+        }
+
+        // a healthy backend not tried yet if there is one, from a random position so hedges spread out
+        private String untried() {
+            final var backends = loadBalancer.backends();
+            if (backends.isEmpty()) {
+                return null;
+            }
+            final var offset = ThreadLocalRandom.current().nextInt(backends.size());
+            String fallback = null;
+            for (int i = 0; i < backends.size(); i++) {
+                final var backend = backends.get((offset + i) % backends.size());
+                if (used.contains(backend.url())) {
+                    continue;
+                }
+                if (backend.healthy()) {
+                    return backend.url();
+                }
+                if (fallback == null) {
+                    fallback = backend.url();
+                }
+            }
+            return fallback;
+        }
+    }
+}
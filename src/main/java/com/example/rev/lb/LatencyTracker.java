@@ -0,0 +1,95 @@
+package com.example.rev.lb;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/*
+    Recent latency percentiles from a log-linear histogram: 8 buckets per power of two of microseconds,
+    so a percentile is off by at most 12.5%, from 1us to about 2^40us. Recording is two atomic increments.
+    Every decayEvery samples all buckets are halved, so old samples fade out and a backend that got slow
+    moves the percentile within a few thousand requests. Halving races with recording and may lose a few
+    increments, which is fine for a hedging delay.
+ */
+public class LatencyTracker {
+
+    private static final int SUB_BUCKET_BITS = 3;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    private static final int MAX_EXPONENT = 40;
+    private static final int BUCKETS = (MAX_EXPONENT + 1) * SUB_BUCKETS;
+
+    private final AtomicLongArray buckets;
+    private final AtomicLong count;
+    private final long decayEvery;
+
+    public LatencyTracker(long decayEvery) {
+        if (decayEvery <= 0) {
+            throw new IllegalArgumentException("Decay interval must be more than zero");
+        }
+        this.buckets = new AtomicLongArray(BUCKETS);
+        this.count = new AtomicLong();
+        this.decayEvery = decayEvery;
+    }
+
+    public void record(long micros) {
+        buckets.incrementAndGet(bucket(Math.max(1, micros)));
+        if (count.incrementAndGet() % decayEvery == 0) {
+            for (int i = 0; i < BUCKETS; i++) {
+                buckets.getAndUpdate(i, value -> value >> 1);
+            }
+        }
+    }
+
+    /**
+     * Upper bound of the bucket holding the percentile, in microseconds, -1 with no samples.
+     */
+    public long percentile(double percentile) {
+        if (percentile <= 0 || percentile > 1) {
+            throw new IllegalArgumentException("Percentile must be in (0, 1]");
+        }
+        var total = 0L;
+        for (int i = 0; i < BUCKETS; i++) {
+            total += buckets.get(i);
+        }
+        if (total == 0) {
+            return -1;
+        }
+        final var rank = (long) Math.ceil(total * percentile);
+        var seen = 0L;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += buckets.get(i);
+            if (seen >= rank) {
+                return upperBound(i);
+            }
+        }
+        return upperBound(BUCKETS - 1);
+    }
+
+    /**
+     * Samples recorded since creation, decay doesn't reduce it.
+     */
+    public long count() {
+        return count.get();
+    }
+
+    // values below SUB_BUCKETS get a bucket each, above that 8 linear buckets per power of two
+    private static int bucket(long micros) {
+        final var exponent = 63 - Long.numberOfLeadingZeros(micros);
+        if (exponent < SUB_BUCKET_BITS) {
+            return (int) micros;
+        }
+        if (exponent > MAX_EXPONENT) {
+            return BUCKETS - 1;
+        }
+        final var sub = (int) (micros >>> exponent - SUB_BUCKET_BITS) & SUB_BUCKETS - 1;
+        return (exponent - SUB_BUCKET_BITS + 1) * SUB_BUCKETS + sub;
+    }
+
+    private static long upperBound(int bucket) {
+        if (bucket < SUB_BUCKETS) {
+            return bucket;
+        }
+        final var exponent = bucket / SUB_BUCKETS + SUB_BUCKET_BITS - 1;
+        final var sub = bucket % SUB_BUCKETS;
+        return ((long) (SUB_BUCKETS + sub + 1) << exponent - SUB_BUCKET_BITS) - 1;
+    }
+}
@@ -1,84 +1,197 @@
 package com.example.rev.lb;
 
-import java.util.LinkedList;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
-import java.util.concurrent.TimeUnit;
-import java.util.concurrent.locks.ReadWriteLock;
-import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
 
+/*
+    Backends are an immutable snapshot behind a volatile field: next() reads it without any lock,
+    writers build a new snapshot and swap it in. Writers are serialized by the monitor and are rare,
+    a discovery update with thousands of changes is one apply() and one swap.
+    Unhealthy backends stay members but aren't routed to, unless none is healthy: then every member is,
+    failing requests beat refusing all of them.
+ */
 public class LoadBalancer {
 
-    private static final long MAX_AWAIT_TIME_MS = 10_000L;
-    private final List<String> list;
     private final int maxElements;
     private final RollingStrategy rollingStrategy;
-    private final ReadWriteLock lock;
+    private volatile Snapshot snapshot;
+
+    // list keeps the registration order, byUrl answers contains in O(1), routable is what the strategy picks from
+    private record Snapshot(List<String> list, Map<String, Backend> byUrl, List<Backend> backends, List<String> routable) {
+
+        static Snapshot of(List<Backend> backends) {
+            final var list = new ArrayList<String>(backends.size());
+            final var byUrl = new LinkedHashMap<String, Backend>();
+            final var healthy = new ArrayList<String>(backends.size());
+            for (final var backend : backends) {
+                list.add(backend.url());
+                byUrl.put(backend.url(), backend);
+                if (backend.healthy()) {
+                    healthy.add(backend.url());
+                }
+            }
+            return new Snapshot(List.copyOf(list), Map.copyOf(byUrl), List.copyOf(backends),
+                    healthy.isEmpty() ? List.copyOf(list) : List.copyOf(healthy));
+        }
+    }
 
     public LoadBalancer(RollingStrategy strategy, int maxElements) {
         this.maxElements = maxElements;
         this.rollingStrategy = strategy;
-        this.list = new LinkedList<>();
-        this.lock = new ReentrantReadWriteLock();
+        swap(List.of());
     }
 
-    public boolean register(String url) {
-        try {
-            tryWriteLock();
-            if (list.size() >= maxElements) {
-                return false;
-            }
-            if (list.contains(url)) {
-                return false;
+    /**
+     * Registers a backend without metadata, in the unknown zone.
+     */
+    public synchronized boolean register(String url) {
+        if (Objects.isNull(url)) {
+            throw new IllegalArgumentException("Url must be not null");
+        }
+        return registerBackend(Backend.of(url));
+    }
+
+    public synchronized boolean registerBackend(Backend backend) {
+        if (Objects.isNull(backend)) {
+            throw new IllegalArgumentException("Backend must be not null");
+        }
+        if (snapshot.byUrl().containsKey(backend.url())) {
+            return false;
+        }
+        return update(List.of(backend), List.of());
+    }
+
+    public synchronized boolean unregister(String url) {
+        if (Objects.isNull(url) || !snapshot.byUrl().containsKey(url)) {
+            return false;
+        }
+        return update(List.of(), List.of(url));
+    }
+
+    /**
+     * Removes and adds backends in one atomic swap, readers see either the old or the new set.
+     * Already registered additions and unknown removals are ignored, an addition that is also removed replaces
+     * the backend in its place in the member order. Removals are always applied, a backend
+     * gone from discovery must stop getting traffic; additions are taken in order while they fit the limit.
+     *
+     * @return false if some additions were left out because of the limit
+     */
+    public synchronized boolean apply(Collection<String> added, Collection<String> removed) {
+        if (Objects.isNull(added) || Objects.isNull(removed)) {
+            throw new IllegalArgumentException("Added and removed must be not null");
+        }
+        final var backends = new ArrayList<Backend>(added.size());
+        for (final var url : added) {
+            if (Objects.isNull(url)) {
+                throw new IllegalArgumentException("Url must be not null");
             }
-            return list.add(url);
-        } catch (InterruptedException e) {
-            throw new RuntimeException(e);
-        } finally {
-            unlockWriteLock();
+            backends.add(Backend.of(url));
         }
+        return update(backends, removed);
     }
-    public boolean unregister(String url) {
-        try {
-            tryWriteLock();
-            if (!list.contains(url)) {
-                return false;
+
+    /**
+     * Same as {@link #apply} for backends with metadata. To change the metadata of a registered backend
+     * remove and add it in the same update.
+     */
+    public synchronized boolean update(Collection<Backend> added, Collection<String> removed) {
+        if (Objects.isNull(added) || Objects.isNull(removed)) {
+            throw new IllegalArgumentException("Added and removed must be not null");
+        }
+        final var current = snapshot;
+        final var removedSet = new HashSet<>(removed);
+        final var fresh = new LinkedHashMap<String, Backend>();
+        for (final var backend : added) {
+            if (Objects.isNull(backend)) {
+                throw new IllegalArgumentException("Backend must be not null");
+            }
+            if (!current.byUrl().containsKey(backend.url()) || removedSet.contains(backend.url())) {
+                fresh.putIfAbsent(backend.url(), backend);
             }
-            return list.remove(url);
-        } catch (InterruptedException e) {
-            throw new RuntimeException(e);
-        } finally {
-            unlockWriteLock();
         }
+        var removedCount = 0;
+        for (final var url : removedSet) {
+            if (current.byUrl().containsKey(url)) {
+                removedCount++;
+            }
+        }
+        if (fresh.isEmpty() && removedCount == 0) {
+            return true;
+        }
+        final var backends = new ArrayList<Backend>(current.list().size() - removedCount + fresh.size());
+        var replaced = 0;
+        for (final var backend : current.backends()) {
+            if (!removedSet.contains(backend.url())) {
+                backends.add(backend);
+            } else if (fresh.containsKey(backend.url())) {
+                backends.add(fresh.remove(backend.url()));
+                replaced++;
+            }
+        }
+        final var fitting = Math.max(0, Math.min(fresh.size(), maxElements - backends.size()));
+        fresh.values().stream().limit(fitting).forEach(backends::add);
+        if (fitting > 0 || removedCount > 0 || replaced > 0) {
+            swap(backends);
+        }
+        return fitting == fresh.size();
     }
 
-    public String next() {
-        try {
-            tryReadLock();
-            return rollingStrategy.next(list);
-        } catch (InterruptedException e) {
-            throw new RuntimeException(e);
-        } finally {
-            unlockReadLock();
+    /**
+     * Marks a backend healthy or not, for health checks and outlier detection.
+     *
+     * @return false if the backend isn't registered
+     */
+    public synchronized boolean setHealthy(String url, boolean healthy) {
+        final var current = snapshot;
+        final var backend = Objects.isNull(url) ? null : current.byUrl().get(url);
+        if (Objects.isNull(backend)) {
+            return false;
         }
+        if (backend.healthy() != healthy) {
+            final var backends = new ArrayList<>(current.backends());
+            backends.set(current.list().indexOf(url), backend.withHealthy(healthy));
+            swap(backends);
+        }
+        return true;
     }
 
-    private void unlockWriteLock() {
-        lock.writeLock().unlock();
+    // the strategy builds its tables before readers can pick from the new snapshot
+    private void swap(List<Backend> backends) {
+        final var next = Snapshot.of(backends);
+        rollingStrategy.backendsChanged(next.backends());
+        snapshot = next;
     }
 
-    private void tryWriteLock() throws InterruptedException {
-        if (!lock.writeLock().tryLock(MAX_AWAIT_TIME_MS, TimeUnit.MILLISECONDS)) {
-            throw new RuntimeException("Could not acquire write lock");
-        }
+    public String next() {
+        final var current = snapshot;
+        return rollingStrategy.next(current.routable(), current.backends());
     }
 
-    private void unlockReadLock() {
-        lock.readLock().unlock();
+    public boolean contains(String url) {
+        return snapshot.byUrl().containsKey(url);
     }
 
-    private void tryReadLock() throws InterruptedException {
-        if (!lock.readLock().tryLock(MAX_AWAIT_TIME_MS, TimeUnit.MILLISECONDS)) {
-            throw new RuntimeException("Could not acquire read lock");
-        }
+    /**
+     * Current backends in registration order, immutable.
+     */
+    public List<String> members() {
+        return snapshot.list();
+    }
+
+    /**
+     * Current backends with their metadata and health, in registration order, immutable.
+     */
+    public List<Backend> backends() {
+        return snapshot.backends();
+    }
+
+    public Optional<Backend> backend(String url) {
+        return Objects.isNull(url) ? Optional.empty() : Optional.ofNullable(snapshot.byUrl().get(url));
     }
 }
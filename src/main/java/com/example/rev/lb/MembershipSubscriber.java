@@ -0,0 +1,89 @@
+package com.example.rev.lb;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicLong;
+
+/*
+    Keeps a LoadBalancer in line with a discovery source: each notification becomes one diff,
+    applied as a single snapshot swap, whatever the number of backends that changed.
+    A backend whose zone or tags changed is replaced in its place, keeping the health the balancer gave it.
+ */
+public class MembershipSubscriber implements AutoCloseable {
+
+    private final LoadBalancer loadBalancer;
+    private final DiscoverySource source;
+    private final AtomicLong applied;
+    private final AtomicLong rejected;
+
+    public MembershipSubscriber(LoadBalancer loadBalancer, DiscoverySource source) {
+        if (Objects.isNull(loadBalancer) || Objects.isNull(source)) {
+            throw new IllegalArgumentException("Load balancer and source must be not null");
+        }
+        this.loadBalancer = loadBalancer;
+        this.source = source;
+        this.applied = new AtomicLong();
+        this.rejected = new AtomicLong();
+    }
+
+    public void start() {
+        source.start(this::onMembership);
+    }
+
+    /**
+     * Diffs the membership against the balancer. Synchronized so that notifications of a source
+     * with several threads are applied one at a time and in order.
+     */
+    synchronized void onMembership(Collection<Backend> backends) {
+        final var wanted = new HashMap<String, Backend>();
+        for (final var backend : backends) {
+            wanted.put(backend.url(), backend);
+        }
+        final var removed = new ArrayList<String>();
+        final var added = new ArrayList<Backend>();
+        for (final var backend : loadBalancer.backends()) {
+            final var update = wanted.remove(backend.url());
+            if (update == null) {
+                removed.add(backend.url());
+            } else if (!update.zone().equals(backend.zone()) || !update.tags().equals(backend.tags())) {
+                removed.add(backend.url());
+                added.add(update.withHealthy(backend.healthy()));
+            }
+        }
+        for (final var backend : backends) {
+            if (wanted.containsKey(backend.url())) {
+                added.add(backend);
+            }
+        }
+        if (added.isEmpty() && removed.isEmpty()) {
+            return;
+        }
+        if (loadBalancer.update(added, removed)) {
+            applied.incrementAndGet();
+        } else {
+            rejected.incrementAndGet();
+        }
+    }
+
+    /**
+     * Diffs applied in full.
+     */
+    public long applied() {
+        return applied.get();
+    }
+
+    /**
+     * Diffs with additions left out because the balancer would have had more backends than its limit,
+     * their removals were applied. The next notification tries the missing additions again.
+     */
+    public long rejected() {
+        return rejected.get();
+    }
+
+    @Override
+    public void close() {
+        source.close();
+    }
+}
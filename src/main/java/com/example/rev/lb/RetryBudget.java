@@ -0,0 +1,90 @@
+package com.example.rev.lb;
+
+import java.time.Clock;
+import java.util.concurrent.atomic.AtomicLong;
+
+/*
+    Token bucket limiting hedges and retries to a share of the traffic: every request deposits
+    ratio of a token, every extra attempt takes a whole one, and the bucket holds at most maxTokens.
+    A trickle of minPerSecond tokens keeps retries possible when traffic is low.
+    When backends fail en masse the bucket drains and extra attempts stop, instead of multiplying the load
+    on a struggling service. Tokens are kept in thousandths in an AtomicLong, no locks.
+ */
+public class RetryBudget {
+
+    private static final long SCALE = 1000;
+
+    private final long deposit;
+    private final long capacity;
+    private final long minPerSecond;
+    private final Clock clock;
+    private final AtomicLong tokens;
+    private final AtomicLong lastRefill;
+
+    public RetryBudget(double ratio, int maxTokens, int minPerSecond) {
+        this(ratio, maxTokens, minPerSecond, Clock.systemUTC());
+    }
+
+    RetryBudget(double ratio, int maxTokens, int minPerSecond, Clock clock) {
+        if (ratio < 0 || ratio > 1 || maxTokens <= 0 || minPerSecond < 0) {
+            throw new IllegalArgumentException("Ratio must be in [0, 1], max tokens positive, min per second not negative");
+        }
+        this.deposit = Math.round(ratio * SCALE);
+        this.capacity = maxTokens * SCALE;
+        this.minPerSecond = minPerSecond;
+        this.clock = clock;
+        this.tokens = new AtomicLong();
+        this.lastRefill = new AtomicLong(clock.millis());
+    }
+
+    /**
+     * Called for every original request.
+     */
+    public void deposit() {
+        add(deposit);
+    }
+
+    /**
+     * Takes a token for an extra attempt, false when the budget is spent.
+     */
+    public boolean tryWithdraw() {
+        refill();
+        while (true) {
+            final var current = tokens.get();
+            if (current < SCALE) {
+                return false;
+            }
+            if (tokens.compareAndSet(current, current - SCALE)) {
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Gives back a token taken by {@link #tryWithdraw()} for an attempt that was never made.
+     */
+    public void refund() {
+        add(SCALE);
+    }
+
+    public double available() {
+        refill();
+        return (double) tokens.get() / SCALE;
+    }
+
+    // minPerSecond tokens per 1000 ms is minPerSecond thousandths per ms
+    private void refill() {
+        if (minPerSecond == 0) {
+            return;
+        }
+        final var now = clock.millis();
+        final var last = lastRefill.get();
+        if (now > last && lastRefill.compareAndSet(last, now)) {
+            add((now - last) * minPerSecond);
+        }
+    }
+
+    private void add(long amount) {
+        tokens.getAndUpdate(current -> Math.min(capacity, current + amount));
+    }
+}
@@ -4,4 +4,21 @@ import java.util.List;
 
 public interface RollingStrategy {
     String next(List<String> elementsAmount);
+
+    /**
+     * Called by the load balancer with the healthy urls and the metadata of all backends, strategies that
+     * route by metadata override it. Both lists are immutable and replaced as a whole on every membership or
+     * health change.
+     */
+    default String next(List<String> urls, List<Backend> backends) {
+        return next(urls);
+    }
+
+    /**
+     * Called by the load balancer under its writer lock with the new backends, before next() can see them,
+     * on every membership or health change. Strategies that derive tables from the backends build them here,
+     * off the request path. A strategy instance serves a single load balancer.
+     */
+    default void backendsChanged(List<Backend> backends) {
+    }
 }
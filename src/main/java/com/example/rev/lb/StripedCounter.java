@@ -0,0 +1,54 @@
+package com.example.rev.lb;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/*
+    Round robin positions without a single shared counter. Each thread is pinned to one of the stripes,
+    every stripe is a counter alone on its own 128 bytes, so threads on different stripes never write the same
+    cache line (128 covers adjacent-line prefetch too). Stripes start at random offsets, so threads that start
+    together don't all send their first request to the same backend.
+    Every stripe walks the backends in order, so each backend gets the same share from a stripe,
+    up to one call; over all stripes the counts differ by at most the number of stripes.
+ */
+public class StripedCounter {
+
+    private static final int PADDING_LONGS = 16;
+    private static final AtomicInteger THREAD_SEQUENCE = new AtomicInteger();
+    // consecutive numbers per thread, so the threads of a pool land on distinct stripes
+    private static final ThreadLocal<int[]> THREAD_NUMBER =
+            ThreadLocal.withInitial(() -> new int[]{THREAD_SEQUENCE.getAndIncrement()});
+
+    private final AtomicLongArray counters;
+    private final int mask;
+
+    public StripedCounter() {
+        this(Runtime.getRuntime().availableProcessors() * 2);
+    }
+
+    public StripedCounter(int stripes) {
+        if (stripes <= 0) {
+            throw new IllegalArgumentException("Stripes must be more than zero");
+        }
+        final var size = Integer.highestOneBit(Math.min(stripes, 1 << 16) * 2 - 1);
+        this.counters = new AtomicLongArray(size * PADDING_LONGS);
+        this.mask = size - 1;
+        final var random = ThreadLocalRandom.current();
+        for (int i = 0; i < size; i++) {
+            counters.set(i * PADDING_LONGS, random.nextInt(1 << 20));
+        }
+    }
+
+    /**
+     * Position for the next call of this thread among {@code size} items.
+     */
+    public int next(int size) {
+        final var stripe = THREAD_NUMBER.get()[0] & mask;
+        return (int) Math.floorMod(counters.getAndIncrement(stripe * PADDING_LONGS), (long) size);
+    }
+
+    public int stripes() {
+        return mask + 1;
+    }
+}
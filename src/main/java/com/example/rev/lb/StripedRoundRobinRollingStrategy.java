@@ -0,0 +1,31 @@
+package com.example.rev.lb;
+
+import java.util.List;
+
+/*
+    Round robin over per-thread stripes instead of one AtomicInteger, see StripedCounter.
+    Order is round robin per thread, not globally.
+ */
+public class StripedRoundRobinRollingStrategy implements RollingStrategy {
+
+    private final StripedCounter counter;
+
+    public StripedRoundRobinRollingStrategy() {
+        this(new StripedCounter());
+    }
+
+    public StripedRoundRobinRollingStrategy(StripedCounter counter) {
+        if (counter == null) {
+            throw new IllegalArgumentException("Counter must be not null");
+        }
+        this.counter = counter;
+    }
+
+    @Override
+    public String next(List<String> elements) {
+        if (elements.isEmpty()) {
+            throw new IllegalArgumentException("elementsAmount is empty");
+        }
+        return elements.get(counter.next(elements.size()));
+    }
+}
@@ -0,0 +1,148 @@
+package com.example.rev.lb;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchService;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Objects;
+import java.util.function.Consumer;
+
+/*
+    Backends listed in a file, one per line as the url and optional key=value pairs separated by spaces:
+    zone=eu-west-1a puts the backend in that zone, any other pair becomes a tag. Blank lines and lines
+    starting with # are ignored, a url listed twice takes the last line.
+    The directory is watched with a WatchService and the file is re-read whenever an event names it,
+    so writers should replace the file atomically (write a temporary file and move it over),
+    otherwise a half-written file may be read and the next event repairs it.
+    A missing or empty file is taken for a writer caught in the middle of replacing it, not for a service
+    with no backends: it is ignored and the last membership stays. Sources that really go down to zero opt in.
+ */
+public class WatchedFileDiscoverySource implements DiscoverySource {
+
+    private final Path file;
+    private final boolean allowEmpty;
+    private final WatchService watchService;
+    private volatile Thread watcher;
+
+    public WatchedFileDiscoverySource(Path file) {
+        this(file, false);
+    }
+
+    /**
+     * @param allowEmpty whether a missing or empty file removes every backend
+     */
+    public WatchedFileDiscoverySource(Path file, boolean allowEmpty) {
+        if (Objects.isNull(file) || Objects.isNull(file.toAbsolutePath().getParent())) {
+            throw new IllegalArgumentException("File must be not null and have a parent directory");
+        }
+        this.file = file.toAbsolutePath();
+        this.allowEmpty = allowEmpty;
+        try {
+            this.watchService = FileSystems.getDefault().newWatchService();
+            this.file.getParent().register(watchService, StandardWatchEventKinds.ENTRY_CREATE,
+                    StandardWatchEventKinds.ENTRY_MODIFY, StandardWatchEventKinds.ENTRY_DELETE);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Override
+    public synchronized void start(Consumer<Collection<Backend>> listener) {
+        if (watcher != null) {
+            throw new IllegalStateException("Already started");
+        }
+        publish(listener);
+        watcher = new Thread(() -> watch(listener), "discovery-" + file.getFileName());
+        watcher.setDaemon(true);
+        watcher.start();
+    }
+
+    @Override
+    public void close() {
+        try {
+            watchService.close();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private void watch(Consumer<Collection<Backend>> listener) {
+        try {
+            while (true) {
+                final var key = watchService.take();
+                var changed = false;
+                for (final var event : key.pollEvents()) {
+                    // OVERFLOW has no context: events were lost, so read the file anyway
+                    changed |= event.kind() == StandardWatchEventKinds.OVERFLOW
+                            || file.getFileName().equals(event.context());
+                }
+                key.reset();
+                if (changed) {
+                    try {
+                        publish(listener);
+                    } catch (UncheckedIOException e) {
+                        // unreadable right now, the event of the next write brings it back
+                    }
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ClosedWatchServiceException e) {
+            // closed, stop watching
+        }
+    }
+
+    private void publish(Consumer<Collection<Backend>> listener) {
+        final var backends = read();
+        if (allowEmpty || !backends.isEmpty()) {
+            listener.accept(backends);
+        }
+    }
+
+    private Collection<Backend> read() {
+        final List<String> lines;
+        try {
+            lines = Files.readAllLines(file);
+        } catch (NoSuchFileException e) {
+            return List.of();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        final var backends = new LinkedHashMap<String, Backend>();
+        for (final var line : lines) {
+            final var stripped = line.strip();
+            if (!stripped.isEmpty() && !stripped.startsWith("#")) {
+                final var backend = parse(stripped);
+                backends.put(backend.url(), backend);
+            }
+        }
+        return List.copyOf(backends.values());
+    }
+
+    // a pair without = is taken for a tag with an empty value, a half-written line shouldn't stop the rest
+    static Backend parse(String line) {
+        final var parts = line.split("\\s+");
+        var zone = Backend.UNKNOWN_ZONE;
+        final var tags = new HashMap<String, String>();
+        for (int i = 1; i < parts.length; i++) {
+            final var separator = parts[i].indexOf('=');
+            final var key = separator < 0 ? parts[i] : parts[i].substring(0, separator);
+            final var value = separator < 0 ? "" : parts[i].substring(separator + 1);
+            if (key.equals("zone")) {
+                zone = value;
+            } else {
+                tags.put(key, value);
+            }
+        }
+        return new Backend(parts[0], zone, tags);
+    }
+}
@@ -0,0 +1,180 @@
+package com.example.rev.lb;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ThreadLocalRandom;
+
+/*
+    Keeps traffic in the caller's zone while that zone has the capacity for it, like Envoy's zone-aware routing.
+    Callers in a zone send a share of the traffic (their demand) and each zone's healthy backends are a share of
+    all healthy backends (its capacity). While the local capacity covers the local demand everything stays local.
+    When it doesn't, a capacity/demand fraction stays and the rest spills to the other zones in proportion to
+    their spare capacity, so no zone gets more than it can take.
+    The split is computed by the load balancer's writer on every membership or health change: the local share as
+    a fixed point number and the spill zones as a wheel of slots, so next() is a couple of random numbers and
+    array reads and never rebuilds anything.
+ */
+public class ZoneAwareRollingStrategy implements RollingStrategy {
+
+    // resolution of the local share
+    private static final int SCALE = 1 << 16;
+    // slots of the spill wheel, a zone with less than 1/WHEEL of the spill may get none
+    private static final int WHEEL = 1 << 10;
+
+    private final String localZone;
+    // callers per zone, null when callers are spread like the backends
+    private final Map<String, Integer> callers;
+    private volatile Route route;
+
+    private record Route(String[] local, int localShare, String[][] zones, int[] wheel) {}
+
+    /**
+     * Callers are assumed to be spread over zones like the backends are, which holds when every service
+     * runs the same number of instances in each zone.
+     */
+    public ZoneAwareRollingStrategy(String localZone) {
+        this(localZone, null, true);
+    }
+
+    /**
+     * @param callersPerZone number of callers, e.g. instances of the calling service, in each zone
+     */
+    public ZoneAwareRollingStrategy(String localZone, Map<String, Integer> callersPerZone) {
+        this(localZone, callersPerZone, false);
+    }
+
+    private ZoneAwareRollingStrategy(String localZone, Map<String, Integer> callersPerZone, boolean spreadLikeBackends) {
+        if (Objects.isNull(localZone)) {
+            throw new IllegalArgumentException("Local zone must be not null");
+        }
+        if (!spreadLikeBackends) {
+            if (Objects.isNull(callersPerZone)
+                    || callersPerZone.values().stream().anyMatch(count -> count == null || count < 0)
+                    || callersPerZone.values().stream().mapToLong(Integer::longValue).sum() == 0) {
+                throw new IllegalArgumentException("Callers per zone must be not negative and not all zero");
+            }
+        }
+        this.localZone = localZone;
+        this.callers = spreadLikeBackends ? null : Map.copyOf(callersPerZone);
+        this.route = build(List.of());
+    }
+
+    /**
+     * Without metadata there are no zones, any backend is picked at random.
+     */
+    @Override
+    public String next(List<String> elements) {
+        if (elements.isEmpty()) {
+            throw new IllegalArgumentException("elementsAmount is empty");
+        }
+        return elements.get(ThreadLocalRandom.current().nextInt(elements.size()));
+    }
+
+    @Override
+    public void backendsChanged(List<Backend> backends) {
+        route = build(backends);
+    }
+
+    @Override
+    public String next(List<String> urls, List<Backend> backends) {
+        final var current = route;
+        final var random = ThreadLocalRandom.current();
+        if (current.wheel().length == 0 && current.local().length == 0) {
+            // nothing healthy, the load balancer passes every member
+            return next(urls);
+        }
+        if (random.nextInt(SCALE) < current.localShare()) {
+            return pick(current.local(), random);
+        }
+        return pick(current.zones()[current.wheel()[random.nextInt(WHEEL)]], random);
+    }
+
+    private static String pick(String[] urls, ThreadLocalRandom random) {
+        return urls[random.nextInt(urls.length)];
+    }
+
+    private Route build(List<Backend> backends) {
+        final var healthy = new LinkedHashMap<String, List<String>>();
+        final var total = new LinkedHashMap<String, Integer>();
+        var healthyCount = 0;
+        for (final var backend : backends) {
+            total.merge(backend.zone(), 1, Integer::sum);
+            if (backend.healthy()) {
+                healthy.computeIfAbsent(backend.zone(), zone -> new ArrayList<>()).add(backend.url());
+                healthyCount++;
+            }
+        }
+        final var local = healthy.getOrDefault(localZone, List.of()).toArray(String[]::new);
+        if (healthyCount == 0) {
+            return new Route(local, 0, new String[0][], new int[0]);
+        }
+        final var demand = demand(total, backends.size());
+        final var localCapacity = (double) local.length / healthyCount;
+        final var localDemand = demand.getOrDefault(localZone, 0.0);
+        if (local.length > 0 && localCapacity >= localDemand) {
+            return new Route(local, SCALE, new String[0][], new int[0]);
+        }
+        final var localShare = local.length == 0 ? 0 : (int) Math.round(SCALE * localCapacity / localDemand);
+        final var zones = new ArrayList<String[]>();
+        final var capacities = new ArrayList<Double>();
+        final var spare = new ArrayList<Double>();
+        for (final var entry : healthy.entrySet()) {
+            if (!entry.getKey().equals(localZone)) {
+                final var capacity = (double) entry.getValue().size() / healthyCount;
+                zones.add(entry.getValue().toArray(String[]::new));
+                capacities.add(capacity);
+                spare.add(Math.max(0, capacity - demand.getOrDefault(entry.getKey(), 0.0)));
+            }
+        }
+        if (zones.isEmpty()) {
+            // the local zone is all there is, however short of capacity
+            return new Route(local, SCALE, new String[0][], new int[0]);
+        }
+        final var weights = spare.stream().mapToDouble(Double::doubleValue).sum() > 0 ? spare : capacities;
+        return new Route(local, localShare, zones.toArray(String[][]::new), wheel(weights));
+    }
+
+    // share of the traffic sent by the callers of each zone
+    private Map<String, Double> demand(Map<String, Integer> backendsPerZone, int backendCount) {
+        final var source = callers == null ? backendsPerZone : callers;
+        final var sum = callers == null ? backendCount : source.values().stream().mapToLong(Integer::longValue).sum();
+        final var demand = new LinkedHashMap<String, Double>();
+        source.forEach((zone, count) -> demand.put(zone, (double) count / sum));
+        return demand;
+    }
+
+    // WHEEL slots split by the largest remainder method, slot i holds a zone index
+    private static int[] wheel(List<Double> weights) {
+        final var sum = weights.stream().mapToDouble(Double::doubleValue).sum();
+        final var slots = new int[weights.size()];
+        final var remainders = new double[weights.size()];
+        var assigned = 0;
+        for (int i = 0; i < slots.length; i++) {
+            final var exact = WHEEL * weights.get(i) / sum;
+            slots[i] = (int) exact;
+            remainders[i] = exact - slots[i];
+            assigned += slots[i];
+        }
+        for (; assigned < WHEEL; assigned++) {
+            var largest = 0;
+            for (int i = 1; i < slots.length; i++) {
+                if (remainders[i] > remainders[largest]) {
+                    largest = i;
+                }
+            }
+            slots[largest]++;
+            remainders[largest] = -1;
+        }
+        final var wheel = new int[WHEEL];
+        var position = 0;
+        for (int i = 0; i < slots.length; i++) {
+            for (int j = 0; j < slots[i]; j++) {
+                wheel[position++] = i;
+            }
+        }
+        return wheel;
+    }
+}
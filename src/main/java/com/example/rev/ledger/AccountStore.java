@@ -0,0 +1,271 @@
+package com.example.rev.ledger;
+
+import java.util.Arrays;
+import java.util.Currency;
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.ReentrantLock;
+
+/*
+    Struct-of-arrays account repository.
+    Balances are kept in minor units in a single long[] indexed by account id,
+    accounts share a fixed set of lock stripes instead of one lock per account:
+    50M accounts take ~400MB of balances plus a few KB of locks.
+    Currency of an account is a one byte index into a small registry, 0 means an untagged account.
+    One bit per account marks balances changed without a listener, so a history kept by the listener
+    can tell it is incomplete for that account.
+ */
+public class AccountStore {
+
+    private static final int DEFAULT_STRIPES = 1024;
+    private static final int MAX_CURRENCIES = 255;
+
+    private final long[] balances;
+    private final byte[] currencies;
+    private volatile Currency[] registry;
+    private final ReentrantLock[] stripes;
+    private final int stripeMask;
+    private final AtomicInteger size;
+    private final AtomicLongArray untracked;
+
+    public AccountStore(int capacity) {
+        this(capacity, DEFAULT_STRIPES);
+    }
+
+    public AccountStore(int capacity, int stripes) {
+        if (capacity <= 0 || stripes <= 0) {
+            throw new IllegalArgumentException("Capacity and stripes must be more than zero");
+        }
+        final var stripeCount = stripes == 1 ? 1 : Integer.highestOneBit(stripes - 1) << 1;
+        this.balances = new long[capacity];
+        this.currencies = new byte[capacity];
+        this.registry = new Currency[]{null};
+        this.stripes = new ReentrantLock[stripeCount];
+        for (int i = 0; i < stripeCount; i++) {
+            this.stripes[i] = new ReentrantLock();
+        }
+        this.stripeMask = stripeCount - 1;
+        this.size = new AtomicInteger(0);
+        this.untracked = new AtomicLongArray((capacity + Long.SIZE - 1) / Long.SIZE);
+    }
+
+    /**
+     * Opens a new untagged account and returns its id.
+     */
+    public int open(long initialBalance) {
+        return open(null, initialBalance);
+    }
+
+    /**
+     * Opens a new account holding {@code initialBalance} minor units of {@code currency} and returns its id.
+     */
+    public int open(Currency currency, long initialBalance) {
+        if (initialBalance < 0) {
+            throw new IllegalArgumentException("Initial balance must not be negative");
+        }
+        final var currencyIndex = Objects.isNull(currency) ? 0 : register(currency);
+        final var id = size.getAndIncrement();
+        if (id >= balances.length) {
+            size.decrementAndGet();
+            throw new IllegalStateException("Account store is full");
+        }
+        final var lock = lockFor(id);
+        lock.lock();
+        try {
+            balances[id] = initialBalance;
+            currencies[id] = (byte) currencyIndex;
+        } finally {
+            lock.unlock();
+        }
+        return id;
+    }
+
+    /**
+     * Currency of the account or null for an untagged one.
+     */
+    public Currency currency(int id) {
+        checkId(id);
+        return registry[currencies[id] & 0xFF];
+    }
+
+    public long balance(int id) {
+        checkId(id);
+        final var lock = lockFor(id);
+        lock.lock();
+        try {
+            return balances[id];
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public boolean deposit(int id, long amount) {
+        return deposit(id, amount, null);
+    }
+
+    /**
+     * Same as {@link #deposit(int, long)}, the listener is notified while the account is still locked.
+     */
+    public boolean deposit(int id, long amount, BalanceListener listener) {
+        checkId(id);
+        if (amount <= 0) {
+            return false;
+        }
+        final var lock = lockFor(id);
+        lock.lock();
+        try {
+            balances[id] = Math.addExact(balances[id], amount);
+            changed(listener, id, amount);
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public boolean withdraw(int id, long amount) {
+        return withdraw(id, amount, null);
+    }
+
+    /**
+     * Same as {@link #withdraw(int, long)}, the listener is notified while the account is still locked.
+     */
+    public boolean withdraw(int id, long amount, BalanceListener listener) {
+        checkId(id);
+        if (amount <= 0) {
+            return false;
+        }
+        final var lock = lockFor(id);
+        lock.lock();
+        try {
+            if (balances[id] < amount) {
+                return false;
+            }
+            balances[id] -= amount;
+            changed(listener, id, -amount);
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public boolean transfer(int fromId, int toId, long amount) {
+        return transfer(fromId, toId, amount, null);
+    }
+
+    /**
+     * Same as {@link #transfer(int, int, long)}, the listener is notified while both accounts are still locked,
+     * so it observes transfers of an account in the order they were applied.
+     */
+    public boolean transfer(int fromId, int toId, long amount, TransferListener listener) {
+        return transfer(fromId, toId, amount, amount, listener);
+    }
+
+    /**
+     * Debits {@code debit} from one account and credits {@code credit} to the other,
+     * the amounts differ for accounts in different currencies.
+     */
+    public boolean transfer(int fromId, int toId, long debit, long credit, TransferListener listener) {
+        checkId(fromId);
+        checkId(toId);
+        if (debit <= 0 || credit <= 0 || fromId == toId) {
+            return false;
+        }
+        // stripes are always taken in index order, a shared stripe is simply re-entered
+        final var fromStripe = fromId & stripeMask;
+        final var toStripe = toId & stripeMask;
+        final var first = stripes[Math.min(fromStripe, toStripe)];
+        final var second = stripes[Math.max(fromStripe, toStripe)];
+        first.lock();
+        second.lock();
+        try {
+            if (balances[fromId] < debit) {
+                return false;
+            }
+            final var credited = Math.addExact(balances[toId], credit);
+            balances[fromId] -= debit;
+            balances[toId] = credited;
+            if (listener != null) {
+                listener.onTransfer(fromId, balances[fromId], debit, toId, credited, credit);
+            } else {
+                markUntracked(fromId);
+                markUntracked(toId);
+            }
+            return true;
+        } finally {
+            second.unlock();
+            first.unlock();
+        }
+    }
+
+    public int size() {
+        return size.get();
+    }
+
+    public int capacity() {
+        return balances.length;
+    }
+
+    /**
+     * Whether the balance of the account was changed by a call without a listener since it was opened.
+     */
+    public boolean untracked(int id) {
+        checkId(id);
+        return (untracked.get(id / Long.SIZE) & (1L << id)) != 0;
+    }
+
+    @FunctionalInterface
+    public interface TransferListener {
+        void onTransfer(int fromId, long fromBalance, long debit, int toId, long toBalance, long credit);
+    }
+
+    @FunctionalInterface
+    public interface BalanceListener {
+        /**
+         * @param amount signed change of the balance, negative for a withdrawal
+         */
+        void onChange(int id, long balance, long amount);
+    }
+
+    private void changed(BalanceListener listener, int id, long amount) {
+        if (listener != null) {
+            listener.onChange(id, balances[id], amount);
+        } else {
+            markUntracked(id);
+        }
+    }
+
+    private void markUntracked(int id) {
+        final var bit = 1L << id;
+        final var word = id / Long.SIZE;
+        if ((untracked.get(word) & bit) == 0) {
+            untracked.getAndAccumulate(word, bit, (current, mask) -> current | mask);
+        }
+    }
+
+    private synchronized int register(Currency currency) {
+        final var current = registry;
+        for (int i = 1; i < current.length; i++) {
+            if (current[i].equals(currency)) {
+                return i;
+            }
+        }
+        if (current.length > MAX_CURRENCIES) {
+            throw new IllegalStateException("Too many currencies");
+        }
+        final var updated = Arrays.copyOf(current, current.length + 1);
+        updated[current.length] = currency;
+        registry = updated;
+        return current.length;
+    }
+
+    private ReentrantLock lockFor(int id) {
+        return stripes[id & stripeMask];
+    }
+
+    private void checkId(int id) {
+        if (id < 0 || id >= size.get()) {
+            throw new IllegalArgumentException("No such account: " + id);
+        }
+    }
+}
@@ -0,0 +1,175 @@
+package com.example.rev.ledger;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.math.RoundingMode;
+import java.util.Arrays;
+import java.util.Currency;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
+
+/*
+    Exchange rate table served from an immutable snapshot.
+    Updates build a new snapshot and publish it with a volatile write, readers never lock.
+    Every rate is precomputed as a fixed-point multiplier normalized to 63 significant bits plus a shift,
+    it already accounts for the minor unit of both currencies, so converting minor units is
+    one 128-bit multiplication and a shift instead of a BigDecimal division.
+    The multiplier is off the exact rate by at most half a unit of its last bit, so the product is off by
+    less than the amount itself: when rounding the product moved by the amount either way agrees, that is
+    the exact result, otherwise (an exact .5 tie or a value too close to one) the decimal rate decides.
+ */
+public class FxRates {
+
+    private static final int MULTIPLIER_BITS = 63;
+    private static final int MAX_SHIFT = 127;
+    private static final int MAX_NUMERIC_CODE = 1000;
+
+    private volatile Snapshot snapshot;
+
+    public FxRates() {
+        this.snapshot = new Snapshot(new int[0], new long[0], new byte[0], new BigDecimal[0], 0);
+    }
+
+    public record CurrencyPair(Currency from, Currency to) {
+        public CurrencyPair {
+            if (Objects.isNull(from) || Objects.isNull(to)) {
+                throw new IllegalArgumentException("Currencies must be not null");
+            }
+        }
+    }
+
+    /**
+     * Replaces the whole table, {@code rates} are units of {@code to} per one unit of {@code from}.
+     */
+    public void update(Map<CurrencyPair, BigDecimal> rates) {
+        if (Objects.isNull(rates)) {
+            throw new IllegalArgumentException("Rates must be not null");
+        }
+        final var indexes = new HashMap<Currency, Integer>();
+        rates.keySet().forEach(pair -> {
+            indexes.putIfAbsent(pair.from(), indexes.size());
+            indexes.putIfAbsent(pair.to(), indexes.size());
+        });
+        final var size = indexes.size();
+        final var codeToIndex = new int[MAX_NUMERIC_CODE];
+        Arrays.fill(codeToIndex, -1);
+        indexes.forEach((currency, index) -> codeToIndex[numericCode(currency)] = index);
+        final var multipliers = new long[size * size];
+        final var shifts = new byte[size * size];
+        final var exact = new BigDecimal[size * size];
+        rates.forEach((pair, rate) -> {
+            if (Objects.isNull(rate) || rate.signum() <= 0) {
+                throw new IllegalArgumentException("Rate must be more than zero: " + pair);
+            }
+            final var minorRate = rate.scaleByPowerOfTen(fractionDigits(pair.to()) - fractionDigits(pair.from()));
+            var shift = MULTIPLIER_BITS - 1;
+            var scaled = fixedPoint(minorRate, shift);
+            while (scaled.bitLength() > MULTIPLIER_BITS && shift > 1) {
+                scaled = fixedPoint(minorRate, --shift);
+            }
+            while (scaled.bitLength() < MULTIPLIER_BITS && shift < MAX_SHIFT) {
+                scaled = fixedPoint(minorRate, ++shift);
+            }
+            if (scaled.signum() == 0 || scaled.bitLength() > MULTIPLIER_BITS) {
+                throw new IllegalArgumentException("Rate is out of range: " + pair);
+            }
+            final var index = indexes.get(pair.from()) * size + indexes.get(pair.to());
+            multipliers[index] = scaled.longValueExact();
+            shifts[index] = (byte) shift;
+            exact[index] = minorRate;
+        });
+        this.snapshot = new Snapshot(codeToIndex, multipliers, shifts, exact, size);
+    }
+
+    public boolean supports(Currency from, Currency to) {
+        if (from.equals(to)) {
+            return true;
+        }
+        final var current = snapshot;
+        final var index = current.index(from, to);
+        return index >= 0 && current.multipliers()[index] != 0;
+    }
+
+    /**
+     * Converts minor units of {@code from} to minor units of {@code to}, rounding to the nearest minor unit
+     * and half up, the same result as {@link RoundingMode#HALF_UP} on the decimal rate.
+     */
+    public long convert(Currency from, Currency to, long amount) {
+        if (amount < 0) {
+            throw new IllegalArgumentException("Amount must not be negative");
+        }
+        if (from.equals(to)) {
+            return amount;
+        }
+        final var current = snapshot;
+        final var index = current.index(from, to);
+        if (index < 0 || current.multipliers()[index] == 0) {
+            throw new IllegalArgumentException("No rate for " + from + " -> " + to);
+        }
+        final var multiplier = current.multipliers()[index];
+        final var shift = current.shifts()[index];
+        // 128-bit product, both factors are non-negative
+        final var low = amount * multiplier;
+        final var high = Math.multiplyHigh(amount, multiplier);
+        final var lower = round(high, low, shift, -amount);
+        if (lower >= 0 && lower == round(high, low, shift, amount)) {
+            return lower;
+        }
+        return new BigDecimal(amount).multiply(current.exact()[index])
+                .setScale(0, RoundingMode.HALF_UP)
+                .longValueExact();
+    }
+
+    static int numericCode(Currency currency) {
+        final var code = currency.getNumericCode();
+        if (code <= 0 || code >= MAX_NUMERIC_CODE) {
+            throw new IllegalArgumentException("Currency has no ISO numeric code: " + currency);
+        }
+        return code;
+    }
+
+    /*
+        (high:low + delta) / 2^shift rounded half up, -1 when it does not fit in a long.
+     */
+    private static long round(long high, long low, int shift, long delta) {
+        final var sumLow = low + delta;
+        var sumHigh = high + (delta >> (Long.SIZE - 1)) + (Long.compareUnsigned(sumLow, low) < 0 ? 1 : 0);
+        final var halfLow = shift > Long.SIZE ? 0 : 1L << (shift - 1);
+        final var roundedLow = sumLow + halfLow;
+        sumHigh += (shift > Long.SIZE ? 1L << (shift - Long.SIZE - 1) : 0)
+                + (Long.compareUnsigned(roundedLow, sumLow) < 0 ? 1 : 0);
+        if (shift >= Long.SIZE) {
+            return sumHigh >>> (shift - Long.SIZE);
+        }
+        if (sumHigh >>> (shift - 1) != 0) {
+            return -1;
+        }
+        return (sumHigh << (Long.SIZE - shift)) | (roundedLow >>> shift);
+    }
+
+    private static BigInteger fixedPoint(BigDecimal rate, int shift) {
+        return rate.multiply(new BigDecimal(BigInteger.ONE.shiftLeft(shift)))
+                .setScale(0, RoundingMode.HALF_UP)
+                .toBigInteger();
+    }
+
+    private static int fractionDigits(Currency currency) {
+        return Math.max(0, currency.getDefaultFractionDigits());
+    }
+
+    private record Snapshot(int[] codeToIndex, long[] multipliers, byte[] shifts, BigDecimal[] exact, int size) {
+
+        int index(Currency from, Currency to) {
+            if (size == 0) {
+                return -1;
+            }
+            final var fromIndex = codeToIndex[numericCode(from)];
+            final var toIndex = codeToIndex[numericCode(to)];
+            if (fromIndex < 0 || toIndex < 0) {
+                return -1;
+            }
+            return fromIndex * size + toIndex;
+        }
+    }
+}
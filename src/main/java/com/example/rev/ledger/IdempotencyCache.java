@@ -0,0 +1,146 @@
+package com.example.rev.ledger;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.function.BooleanSupplier;
+
+/*
+    Remembers results of recently applied operations by id in fixed memory.
+    Ids are spread over shards, every shard keeps a ring of BUCKETS open-addressing tables of primitive longs,
+    new ids go to the newest table, the oldest one is cleared on rotation.
+    A table rotates when its time slice ends or when it is full, so an id is remembered at least for the window
+    unless more than capacity ids arrive within it.
+ */
+public class IdempotencyCache {
+
+    private static final int BUCKETS = 4;
+    private static final int DEFAULT_SHARDS = 64;
+    private static final byte EMPTY = 0;
+    private static final byte FAILED = 1;
+    private static final byte SUCCEEDED = 2;
+
+    private final Shard[] shards;
+    private final int shardMask;
+    private final long sliceMillis;
+    private final Clock clock;
+
+    public IdempotencyCache(int capacity, Duration window) {
+        this(capacity, window, DEFAULT_SHARDS, Clock.systemUTC());
+    }
+
+    IdempotencyCache(int capacity, Duration window, int shards, Clock clock) {
+        if (capacity <= 0 || shards <= 0 || window == null || window.toMillis() < BUCKETS - 1) {
+            throw new IllegalArgumentException("Capacity, shards and window must be positive");
+        }
+        final var shardCount = shards == 1 ? 1 : Integer.highestOneBit(shards - 1) << 1;
+        final var perBucket = Math.max(1, capacity / shardCount);
+        this.shards = new Shard[shardCount];
+        for (int i = 0; i < shardCount; i++) {
+            this.shards[i] = new Shard(perBucket);
+        }
+        this.shardMask = shardCount - 1;
+        this.sliceMillis = window.toMillis() / (BUCKETS - 1);
+        this.clock = clock;
+    }
+
+    /**
+     * Runs the operation unless the id was seen recently, in which case the remembered result is returned.
+     * Concurrent calls with the same id are serialized, so the operation runs once.
+     */
+    public boolean computeIfAbsent(long id, BooleanSupplier operation) {
+        final var hash = mix(id);
+        final var shard = shards[(int) (hash >>> 32) & shardMask];
+        synchronized (shard) {
+            shard.advance(clock.millis() / sliceMillis);
+            final var seen = shard.get(id, hash);
+            if (seen != EMPTY) {
+                return seen == SUCCEEDED;
+            }
+            final var result = operation.getAsBoolean();
+            shard.put(id, hash, result ? SUCCEEDED : FAILED);
+            return result;
+        }
+    }
+
+    private static long mix(long value) {
+        value = (value ^ (value >>> 33)) * 0xff51afd7ed558ccdL;
+        value = (value ^ (value >>> 33)) * 0xc4ceb9fe1a85ec53L;
+        return value ^ (value >>> 33);
+    }
+
+    private static final class Shard {
+
+        private final long[][] keys;
+        private final byte[][] results;
+        private final int[] sizes;
+        private final int maxSize;
+        private final int mask;
+        private int current;
+        private long slice = Long.MIN_VALUE;
+
+        Shard(int maxSize) {
+            final var tableSize = Integer.highestOneBit(Math.max(2, maxSize * 2 - 1)) << 1;
+            this.keys = new long[BUCKETS][tableSize];
+            this.results = new byte[BUCKETS][tableSize];
+            this.sizes = new int[BUCKETS];
+            this.maxSize = maxSize;
+            this.mask = tableSize - 1;
+        }
+
+        void advance(long now) {
+            if (slice == Long.MIN_VALUE) {
+                slice = now;
+                return;
+            }
+            final var steps = Math.min(now - slice, BUCKETS);
+            for (int i = 0; i < steps; i++) {
+                rotate();
+            }
+            if (steps > 0) {
+                slice = now;
+            }
+        }
+
+        byte get(long id, long hash) {
+            for (int bucket = 0; bucket < BUCKETS; bucket++) {
+                if (sizes[bucket] == 0) {
+                    continue;
+                }
+                final var bucketKeys = keys[bucket];
+                final var bucketResults = results[bucket];
+                var slot = (int) hash & mask;
+                while (bucketResults[slot] != EMPTY) {
+                    if (bucketKeys[slot] == id) {
+                        return bucketResults[slot];
+                    }
+                    slot = (slot + 1) & mask;
+                }
+            }
+            return EMPTY;
+        }
+
+        void put(long id, long hash, byte result) {
+            if (sizes[current] == maxSize) {
+                rotate();
+            }
+            final var bucketKeys = keys[current];
+            final var bucketResults = results[current];
+            var slot = (int) hash & mask;
+            while (bucketResults[slot] != EMPTY) {
+                slot = (slot + 1) & mask;
+            }
+            bucketKeys[slot] = id;
+            bucketResults[slot] = result;
+            sizes[current]++;
+        }
+
+        private void rotate() {
+            current = (current + 1) % BUCKETS;
+            if (sizes[current] > 0) {
+                Arrays.fill(results[current], EMPTY);
+                sizes[current] = 0;
+            }
+        }
+    }
+}
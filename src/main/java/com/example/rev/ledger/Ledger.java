@@ -1,10 +1,51 @@
 package com.example.rev.ledger;
 
 import java.math.BigDecimal;
+import java.time.Clock;
+import java.util.Currency;
 import java.util.Objects;
+import java.util.stream.Stream;
 
 public class Ledger {
 
+    private final AccountStore store;
+    private final TransactionLog log;
+    private final IdempotencyCache processed;
+    private final FxRates rates;
+    private final Clock clock;
+
+    public Ledger() {
+        this(null);
+    }
+
+    public Ledger(AccountStore store) {
+        this(store, null);
+    }
+
+    public Ledger(AccountStore store, TransactionLog log) {
+        this(store, log, null, null);
+    }
+
+    public Ledger(AccountStore store, TransactionLog log, IdempotencyCache processed) {
+        this(store, log, processed, null);
+    }
+
+    public Ledger(AccountStore store, TransactionLog log, IdempotencyCache processed, FxRates rates) {
+        this(store, log, processed, rates, Clock.systemUTC());
+    }
+
+    Ledger(AccountStore store, TransactionLog log, Clock clock) {
+        this(store, log, null, null, clock);
+    }
+
+    Ledger(AccountStore store, TransactionLog log, IdempotencyCache processed, FxRates rates, Clock clock) {
+        this.store = store;
+        this.log = log;
+        this.processed = processed;
+        this.rates = rates;
+        this.clock = clock;
+    }
+
     public boolean transfer(Account from, Account to, BigDecimal amount) {
         if (Objects.isNull(from) || Objects.isNull(to) || Objects.isNull(amount)) {
             throw new IllegalArgumentException();
@@ -27,4 +68,108 @@ public class Ledger {
             fromLock.unlock();
         }
     }
+
+    /**
+     * Transfers {@code amount} minor units between accounts of the backing {@link AccountStore}.
+     * When the accounts hold different currencies the receiver is credited with the amount converted
+     * at the current {@link FxRates} snapshot.
+     */
+    public boolean transfer(int fromId, int toId, long amount) {
+        if (Objects.isNull(store)) {
+            throw new IllegalStateException("Ledger has no account store");
+        }
+        if (amount <= 0) {
+            return false;
+        }
+        final var credit = convert(store.currency(fromId), store.currency(toId), amount);
+        if (Objects.isNull(log)) {
+            return store.transfer(fromId, toId, amount, credit, null);
+        }
+        final var now = clock.millis();
+        return store.transfer(fromId, toId, amount, credit, (from, fromBalance, debit, to, toBalance, credited) -> {
+            log.append(from, now, to, -debit, fromBalance);
+            log.append(to, now, from, credited, toBalance);
+        });
+    }
+
+    /**
+     * Idempotent version of {@link #transfer(int, int, long)}: a retry with the same {@code transferId}
+     * returns the result of the first attempt instead of posting the money again.
+     */
+    public boolean transfer(long transferId, int fromId, int toId, long amount) {
+        if (Objects.isNull(processed)) {
+            throw new IllegalStateException("Ledger has no idempotency cache");
+        }
+        return processed.computeIfAbsent(transferId, () -> transfer(fromId, toId, amount));
+    }
+
+    /**
+     * Credits {@code amount} minor units from outside the ledger, logged with {@link TransactionLog#EXTERNAL}
+     * as the counterparty.
+     */
+    public boolean deposit(int accountId, long amount) {
+        return change(accountId, amount, true);
+    }
+
+    /**
+     * Debits {@code amount} minor units to outside the ledger, logged with {@link TransactionLog#EXTERNAL}
+     * as the counterparty.
+     */
+    public boolean withdraw(int accountId, long amount) {
+        return change(accountId, amount, false);
+    }
+
+    /**
+     * Balance of the account right after all transfers, deposits and withdrawals made up to
+     * {@code timestamp} (epoch millis). Fails for an account whose balance was changed on the store directly,
+     * its history would be wrong.
+     */
+    public long balanceAt(int accountId, long timestamp) {
+        final var history = requireLog().balanceAt(accountId, timestamp);
+        if (store.untracked(accountId)) {
+            throw new IllegalStateException("Account " + accountId + " has changes missing from the transaction log");
+        }
+        return history.isPresent() ? history.getAsLong() : store.balance(accountId);
+    }
+
+    public TransactionLog.StatementPage statement(int accountId, long cursor, int limit) {
+        return requireLog().statement(accountId, cursor, limit);
+    }
+
+    public Stream<TransactionLog.Entry> entries(int accountId, long fromTimestamp, long toTimestamp) {
+        return requireLog().entries(accountId, fromTimestamp, toTimestamp);
+    }
+
+    private boolean change(int accountId, long amount, boolean credit) {
+        if (Objects.isNull(store)) {
+            throw new IllegalStateException("Ledger has no account store");
+        }
+        if (Objects.isNull(log)) {
+            return credit ? store.deposit(accountId, amount) : store.withdraw(accountId, amount);
+        }
+        final var now = clock.millis();
+        final AccountStore.BalanceListener listener = (id, balance, change) ->
+                log.append(id, now, TransactionLog.EXTERNAL, change, balance);
+        return credit ? store.deposit(accountId, amount, listener) : store.withdraw(accountId, amount, listener);
+    }
+
+    private long convert(Currency from, Currency to, long amount) {
+        if (Objects.equals(from, to)) {
+            return amount;
+        }
+        if (Objects.isNull(from) || Objects.isNull(to)) {
+            throw new IllegalArgumentException("Cannot transfer between tagged and untagged accounts");
+        }
+        if (Objects.isNull(rates)) {
+            throw new IllegalStateException("Ledger has no FX rates");
+        }
+        return rates.convert(from, to, amount);
+    }
+
+    private TransactionLog requireLog() {
+        if (Objects.isNull(store) || Objects.isNull(log)) {
+            throw new IllegalStateException("Ledger has no transaction log");
+        }
+        return log;
+    }
 }
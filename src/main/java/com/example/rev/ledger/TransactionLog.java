@@ -0,0 +1,230 @@
+package com.example.rev.ledger;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.OptionalLong;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/*
+    Append-only per-account history.
+    Records are (timestamp, counterparty, signed amount) columns in fixed size chunks of primitive arrays,
+    every CHECKPOINT_INTERVAL-th record also keeps the balance after it, so a point-in-time balance is
+    a binary search over timestamps plus a replay of at most CHECKPOINT_INTERVAL amounts.
+ */
+public class TransactionLog {
+
+    /**
+     * Counterparty of deposits and withdrawals, money coming from or going outside the ledger.
+     */
+    public static final int EXTERNAL = -1;
+
+    static final int CHUNK_SIZE = 128;
+    static final int CHECKPOINT_INTERVAL = 32;
+    private static final int STREAM_PAGE_SIZE = 256;
+
+    private final ConcurrentHashMap<Integer, History> histories;
+
+    public TransactionLog() {
+        this.histories = new ConcurrentHashMap<>();
+    }
+
+    public record Entry(long timestamp, int counterpartyId, long amount, long balanceAfter) {}
+
+    /**
+     * @param nextCursor cursor of the next page or -1 when the statement is exhausted
+     */
+    public record StatementPage(List<Entry> entries, long nextCursor) {}
+
+    /**
+     * Appends a record to the account history. Timestamps of an account never go backwards,
+     * an earlier timestamp (e.g. after a clock adjustment) is clamped to the last recorded one.
+     */
+    public void append(int accountId, long timestamp, int counterpartyId, long amount, long balanceAfter) {
+        histories.computeIfAbsent(accountId, id -> new History())
+                .append(timestamp, counterpartyId, amount, balanceAfter);
+    }
+
+    /**
+     * Balance after all records with timestamp less or equal to the given one,
+     * empty when the account has no history.
+     */
+    public OptionalLong balanceAt(int accountId, long timestamp) {
+        final var history = histories.get(accountId);
+        if (history == null) {
+            return OptionalLong.empty();
+        }
+        return OptionalLong.of(history.balanceAt(timestamp));
+    }
+
+    public long size(int accountId) {
+        final var history = histories.get(accountId);
+        return history == null ? 0 : history.size();
+    }
+
+    /**
+     * Returns up to {@code limit} records starting at {@code cursor} (0 for the first page).
+     */
+    public StatementPage statement(int accountId, long cursor, int limit) {
+        if (cursor < 0 || limit <= 0) {
+            throw new IllegalArgumentException("Cursor must not be negative and limit must be more than zero");
+        }
+        final var history = histories.get(accountId);
+        if (history == null) {
+            return new StatementPage(List.of(), -1);
+        }
+        return history.page(cursor, limit);
+    }
+
+    /**
+     * Lazily streams records in [fromTimestamp, toTimestamp), fetching them page by page.
+     */
+    public Stream<Entry> entries(int accountId, long fromTimestamp, long toTimestamp) {
+        final var history = histories.get(accountId);
+        if (history == null || fromTimestamp >= toTimestamp) {
+            return Stream.empty();
+        }
+        final var spliterator = new Spliterators.AbstractSpliterator<Entry>(Long.MAX_VALUE,
+                Spliterator.ORDERED | Spliterator.NONNULL) {
+            private long cursor = history.firstAtOrAfter(fromTimestamp);
+            private List<Entry> page = List.of();
+            private int position;
+
+            @Override
+            public boolean tryAdvance(Consumer<? super Entry> action) {
+                if (position == page.size()) {
+                    if (cursor < 0) {
+                        return false;
+                    }
+                    final var next = history.page(cursor, STREAM_PAGE_SIZE);
+                    page = next.entries();
+                    cursor = next.nextCursor();
+                    position = 0;
+                    if (page.isEmpty()) {
+                        return false;
+                    }
+                }
+                final var entry = page.get(position++);
+                if (entry.timestamp() >= toTimestamp) {
+                    cursor = -1;
+                    page = List.of();
+                    position = 0;
+                    return false;
+                }
+                action.accept(entry);
+                return true;
+            }
+        };
+        return StreamSupport.stream(spliterator, false);
+    }
+
+    private static final class History {
+
+        private long[][] timestamps = new long[1][];
+        private long[][] amounts = new long[1][];
+        private int[][] counterparties = new int[1][];
+        private long[] checkpoints = new long[1];
+        private long openingBalance;
+        private long lastTimestamp = Long.MIN_VALUE;
+        private int size;
+
+        synchronized void append(long timestamp, int counterpartyId, long amount, long balanceAfter) {
+            if (size == 0) {
+                openingBalance = balanceAfter - amount;
+            }
+            final var chunk = size / CHUNK_SIZE;
+            final var offset = size % CHUNK_SIZE;
+            if (offset == 0) {
+                if (chunk == timestamps.length) {
+                    timestamps = Arrays.copyOf(timestamps, chunk * 2);
+                    amounts = Arrays.copyOf(amounts, chunk * 2);
+                    counterparties = Arrays.copyOf(counterparties, chunk * 2);
+                }
+                timestamps[chunk] = new long[CHUNK_SIZE];
+                amounts[chunk] = new long[CHUNK_SIZE];
+                counterparties[chunk] = new int[CHUNK_SIZE];
+            }
+            if (size % CHECKPOINT_INTERVAL == 0) {
+                final var checkpoint = size / CHECKPOINT_INTERVAL;
+                if (checkpoint == checkpoints.length) {
+                    checkpoints = Arrays.copyOf(checkpoints, checkpoint * 2);
+                }
+                checkpoints[checkpoint] = balanceAfter;
+            }
+            lastTimestamp = Math.max(lastTimestamp, timestamp);
+            timestamps[chunk][offset] = lastTimestamp;
+            amounts[chunk][offset] = amount;
+            counterparties[chunk][offset] = counterpartyId;
+            size++;
+        }
+
+        synchronized long size() {
+            return size;
+        }
+
+        synchronized long balanceAt(long timestamp) {
+            final var index = search(timestamp, true) - 1;
+            if (index < 0) {
+                return openingBalance;
+            }
+            return balanceAfter(index);
+        }
+
+        synchronized long firstAtOrAfter(long timestamp) {
+            return search(timestamp, false);
+        }
+
+        synchronized StatementPage page(long cursor, int limit) {
+            if (cursor >= size) {
+                return new StatementPage(List.of(), -1);
+            }
+            final var from = (int) cursor;
+            final var to = (int) Math.min(size, cursor + limit);
+            final var entries = new ArrayList<Entry>(to - from);
+            var balance = from == 0 ? openingBalance : balanceAfter(from - 1);
+            for (int i = from; i < to; i++) {
+                final var amount = amounts[i / CHUNK_SIZE][i % CHUNK_SIZE];
+                balance += amount;
+                entries.add(new Entry(
+                        timestamps[i / CHUNK_SIZE][i % CHUNK_SIZE],
+                        counterparties[i / CHUNK_SIZE][i % CHUNK_SIZE],
+                        amount,
+                        balance
+                ));
+            }
+            return new StatementPage(entries, to == size ? -1 : to);
+        }
+
+        private long balanceAfter(int index) {
+            final var checkpoint = index / CHECKPOINT_INTERVAL;
+            var balance = checkpoints[checkpoint];
+            for (int i = checkpoint * CHECKPOINT_INTERVAL + 1; i <= index; i++) {
+                balance += amounts[i / CHUNK_SIZE][i % CHUNK_SIZE];
+            }
+            return balance;
+        }
+
+        /*
+            Index of the first record with timestamp after the given one, or at it when includeEqual is false.
+         */
+        private int search(long timestamp, boolean includeEqual) {
+            var low = 0;
+            var high = size;
+            while (low < high) {
+                final var mid = (low + high) >>> 1;
+                final var value = timestamps[mid / CHUNK_SIZE][mid % CHUNK_SIZE];
+                if (value < timestamp || (includeEqual && value == timestamp)) {
+                    low = mid + 1;
+                } else {
+                    high = mid;
+                }
+            }
+            return low;
+        }
+    }
+}
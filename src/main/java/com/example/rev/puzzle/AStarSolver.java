@@ -0,0 +1,80 @@
+package com.example.rev.puzzle;
+
+import java.util.Arrays;
+import java.util.Objects;
+
+/*
+    A* with a bucket queue: f is a small integer, so the open list is an array of stacks indexed by f
+    and popping is O(1). Stacks expand the latest, usually deepest, state of a bucket first.
+    g values live in a primitive open addressing table, a closed state has CLOSED set in its value;
+    the heuristic is consistent, so a closed state is never reopened and stale entries are just skipped.
+    Keeps every generated state, for hard 15-puzzle instances use IdaStarSolver.
+    Not thread-safe: a solver per thread.
+ */
+public class AStarSolver implements Solver {
+
+    private static final int CLOSED = 1 << 30;
+
+    private final Grid grid;
+    private final Heuristic heuristic;
+    private LongList[] buckets;
+
+    public AStarSolver(Grid grid, Heuristic heuristic) {
+        if (Objects.isNull(grid) || Objects.isNull(heuristic)) {
+            throw new IllegalArgumentException("Grid and heuristic must be not null");
+        }
+        this.grid = grid;
+        this.heuristic = heuristic;
+        this.buckets = new LongList[0];
+    }
+
+    @Override
+    public int solve(long start) {
+        if (!grid.isSolvable(start)) {
+            return -1;
+        }
+        final var goal = grid.goal();
+        final var costs = new StateTable(1 << 12);
+        for (final var bucket : buckets) {
+            bucket.clear();
+        }
+        costs.put(start, 0);
+        var lowest = heuristic.estimate(start);
+        push(lowest, start);
+        while (true) {
+            while (buckets[lowest].isEmpty()) {
+                lowest++;
+            }
+            final var state = buckets[lowest].pop();
+            final var moves = costs.get(state);
+            if ((moves & CLOSED) != 0) {
+                continue;
+            }
+            if (state == goal) {
+                return moves;
+            }
+            costs.put(state, moves | CLOSED);
+            final var blank = grid.blank(state);
+            for (final var from : grid.neighbours(blank)) {
+                final var next = Grid.move(state, blank, from);
+                final var known = costs.get(next);
+                if (known == -1 || ((known & CLOSED) == 0 && moves + 1 < known)) {
+                    costs.put(next, moves + 1);
+                    // consistent heuristic: f never decreases along a path, so lowest stays valid
+                    push(moves + 1 + heuristic.estimate(next), next);
+                }
+            }
+        }
+    }
+
+    private void push(int f, long state) {
+        if (f >= buckets.length) {
+            final var grown = Arrays.copyOf(buckets, Math.max(f + 1, buckets.length * 2));
+            for (int i = buckets.length; i < grown.length; i++) {
+                grown[i] = new LongList(1 << 8);
+            }
+            buckets = grown;
+        }
+        buckets[f].add(state);
+    }
+}
@@ -0,0 +1,235 @@
+package com.example.rev.puzzle;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.Objects;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.IntStream;
+
+/*
+    Scores a file of boards, one board per line: the tiles in row-major order separated by spaces, tabs,
+    commas or semicolons, e.g. "1 2 3;4 0 5". Blank lines are skipped.
+    The file is read through a direct buffer and parsed byte by byte straight into packed states, without
+    strings or boxing. Boards are solved in chunks by a parallel stream run inside the given pool,
+    so every worker reads the same solver, and answers are written one per line in input order.
+ */
+public class BatchSolver {
+
+    private static final int DEFAULT_BUFFER_BYTES = 1 << 20;
+    private static final int DEFAULT_CHUNK_BOARDS = 1 << 16;
+
+    private final Grid grid;
+    private final Solver solver;
+    private final ForkJoinPool pool;
+    private final int bufferBytes;
+    private final int chunkBoards;
+
+    public record Report(long boards, long unsolvable, Duration elapsed) {
+
+        public double boardsPerSecond() {
+            final var nanos = elapsed.toNanos();
+            return nanos == 0 ? 0 : boards * 1e9 / nanos;
+        }
+    }
+
+    /**
+     * The solver is shared by all workers, so it must be thread-safe, like {@link DistanceTable}
+     * or {@link IdaStarSolver}.
+     */
+    public BatchSolver(Grid grid, Solver solver, ForkJoinPool pool) {
+        this(grid, solver, pool, DEFAULT_BUFFER_BYTES, DEFAULT_CHUNK_BOARDS);
+    }
+
+    BatchSolver(Grid grid, Solver solver, ForkJoinPool pool, int bufferBytes, int chunkBoards) {
+        if (Objects.isNull(grid) || Objects.isNull(solver) || Objects.isNull(pool)) {
+            throw new IllegalArgumentException("Grid, solver and pool must be not null");
+        }
+        if (bufferBytes <= 0 || chunkBoards <= 0) {
+            throw new IllegalArgumentException("Buffer and chunk sizes must be more than zero");
+        }
+        this.grid = grid;
+        this.solver = solver;
+        this.pool = pool;
+        this.bufferBytes = bufferBytes;
+        this.chunkBoards = chunkBoards;
+    }
+
+    public Report solve(Path input, Path output) throws IOException {
+        final var started = System.nanoTime();
+        final var states = new long[chunkBoards];
+        final var answers = new int[chunkBoards];
+        final var parser = new Parser(grid);
+        final var in = ByteBuffer.allocateDirect(bufferBytes);
+        // an answer is at most 11 bytes with its newline
+        final var out = ByteBuffer.allocateDirect(Math.max(bufferBytes, 12));
+        var boards = 0L;
+        var unsolvable = 0L;
+        try (var reader = FileChannel.open(input, StandardOpenOption.READ);
+             var writer = FileChannel.open(output, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                     StandardOpenOption.TRUNCATE_EXISTING)) {
+            var count = 0;
+            while (reader.read(in) >= 0) {
+                in.flip();
+                while (in.hasRemaining()) {
+                    final var parsed = parser.next(in);
+                    if (parsed != Parser.NONE) {
+                        states[count++] = parsed;
+                    }
+                    if (count == chunkBoards) {
+                        unsolvable += flush(states, answers, count, writer, out);
+                        boards += count;
+                        count = 0;
+                    }
+                }
+                in.clear();
+            }
+            final var last = parser.finish();
+            if (last != Parser.NONE) {
+                states[count++] = last;
+            }
+            unsolvable += flush(states, answers, count, writer, out);
+            boards += count;
+            out.flip();
+            while (out.hasRemaining()) {
+                writer.write(out);
+            }
+        }
+        return new Report(boards, unsolvable, Duration.ofNanos(System.nanoTime() - started));
+    }
+
+    // solves a chunk and queues its answers for writing, returns how many boards were unsolvable
+    private int flush(long[] states, int[] answers, int count, FileChannel writer, ByteBuffer out) throws IOException {
+        solveChunk(states, answers, count);
+        var unsolvable = 0;
+        for (int i = 0; i < count; i++) {
+            if (answers[i] < 0) {
+                unsolvable++;
+            }
+            write(writer, out, answers[i]);
+        }
+        return unsolvable;
+    }
+
+    private void solveChunk(long[] states, int[] answers, int count) throws IOException {
+        if (count == 0) {
+            return;
+        }
+        try {
+            pool.submit(() -> IntStream.range(0, count).parallel()
+                    .forEach(i -> answers[i] = solver.solve(states[i]))).get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while solving", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException runtime) {
+                throw runtime;
+            }
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+
+    private static void write(FileChannel writer, ByteBuffer out, int answer) throws IOException {
+        if (out.remaining() < 12) {
+            out.flip();
+            while (out.hasRemaining()) {
+                writer.write(out);
+            }
+            out.clear();
+        }
+        if (answer < 0) {
+            out.put((byte) '-');
+            answer = -answer;
+        }
+        var divisor = 1;
+        while (divisor <= answer / 10) {
+            divisor *= 10;
+        }
+        for (; divisor > 0; divisor /= 10) {
+            out.put((byte) ('0' + answer / divisor % 10));
+        }
+        out.put((byte) '\n');
+    }
+
+    /*
+        Byte-level state machine over lines, keeps a partial board across buffer refills.
+     */
+    private static final class Parser {
+
+        // zero is never a valid packed state
+        static final long NONE = 0;
+
+        private final Grid grid;
+        private final int[] tiles;
+        private int cells;
+        private int value;
+        private boolean inNumber;
+        private long line;
+
+        Parser(Grid grid) {
+            this.grid = grid;
+            this.tiles = new int[grid.cells()];
+            this.line = 1;
+        }
+
+        // consumes bytes until a board is complete or the buffer is empty
+        long next(ByteBuffer in) {
+            while (in.hasRemaining()) {
+                final var b = in.get();
+                if (b >= '0' && b <= '9') {
+                    if (!inNumber && cells == tiles.length) {
+                        throw new IllegalArgumentException("Line " + line + " has more than " + tiles.length + " tiles");
+                    }
+                    value = value * 10 + (b - '0');
+                    if (value >= tiles.length) {
+                        throw new IllegalArgumentException("Line " + line + " has a tile out of range");
+                    }
+                    inNumber = true;
+                } else if (b == ' ' || b == '\t' || b == ',' || b == ';' || b == '\r') {
+                    endNumber();
+                } else if (b == '\n') {
+                    final var board = endLine();
+                    line++;
+                    if (board != NONE) {
+                        return board;
+                    }
+                } else {
+                    throw new IllegalArgumentException("Line " + line + " has an unexpected character");
+                }
+            }
+            return NONE;
+        }
+
+        long finish() {
+            return endLine();
+        }
+
+        private void endNumber() {
+            if (inNumber) {
+                tiles[cells++] = value;
+                value = 0;
+                inNumber = false;
+            }
+        }
+
+        private long endLine() {
+            endNumber();
+            if (cells == 0) {
+                return NONE;
+            }
+            if (cells != tiles.length) {
+                throw new IllegalArgumentException("Line " + line + " must have " + tiles.length + " tiles");
+            }
+            cells = 0;
+            try {
+                return grid.pack(tiles);
+            } catch (IllegalArgumentException e) {
+                throw new IllegalArgumentException("Line " + line + ": " + e.getMessage(), e);
+            }
+        }
+    }
+}
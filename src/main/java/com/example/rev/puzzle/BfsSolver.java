@@ -0,0 +1,96 @@
+package com.example.rev.puzzle;
+
+import java.util.Arrays;
+import java.util.Objects;
+
+/*
+    Breadth-first search over packed states, for boards whose whole state space fits in memory.
+    Visited states are bits of a bitset indexed by Lehmer rank, the queue is a ring of longs that doubles
+    when full and is kept between solves, levels are counted by where they end in the queue instead of storing
+    a depth per state. Once the ring has grown to the widest frontier, a solve allocates nothing.
+    Not thread-safe: a solver per thread.
+ */
+public class BfsSolver implements Solver {
+
+    public static final int MAX_CELLS = 12;
+    private static final int INITIAL_QUEUE = 1 << 10;
+
+    private final Grid grid;
+    private final long[] visited;
+    private long[] queue;
+
+    public BfsSolver(Grid grid) {
+        if (Objects.isNull(grid) || grid.cells() > MAX_CELLS) {
+            throw new IllegalArgumentException("Grid must be not null and have at most " + MAX_CELLS + " cells");
+        }
+        this.grid = grid;
+        this.visited = new long[(int) ((grid.stateCount() + 63) >>> 6)];
+        this.queue = new long[INITIAL_QUEUE];
+    }
+
+    @Override
+    public int solve(long start) {
+        return solve(start, grid.goal());
+    }
+
+    public int solve(long start, long goal) {
+        if (start == goal) {
+            return 0;
+        }
+        Arrays.fill(visited, 0);
+        markVisited(start);
+        var ring = queue;
+        var head = 0L;
+        var tail = 0L;
+        ring[0] = start;
+        tail++;
+        var levelEnd = tail;
+        var depth = 1;
+        while (head != tail) {
+            final var state = ring[(int) head++ & ring.length - 1];
+            final var blank = grid.blank(state);
+            for (final var from : grid.neighbours(blank)) {
+                final var next = Grid.move(state, blank, from);
+                if (next == goal) {
+                    return depth;
+                }
+                if (markVisited(next)) {
+                    if (tail - head == ring.length) {
+                        ring = grow(ring, head);
+                        tail -= head;
+                        levelEnd -= head;
+                        head = 0;
+                    }
+                    ring[(int) tail++ & ring.length - 1] = next;
+                }
+            }
+            if (head == levelEnd) {
+                levelEnd = tail;
+                depth++;
+            }
+        }
+        return -1;
+    }
+
+    // true if the state was not visited before
+    private boolean markVisited(long state) {
+        final var rank = (int) grid.rank(state);
+        final var word = rank >>> 6;
+        final var bit = 1L << rank;
+        if ((visited[word] & bit) != 0) {
+            return false;
+        }
+        visited[word] |= bit;
+        return true;
+    }
+
+    // unrolls the full ring so that head moves to index 0
+    private long[] grow(long[] ring, long head) {
+        final var grown = new long[ring.length << 1];
+        final var start = (int) head & ring.length - 1;
+        System.arraycopy(ring, start, grown, 0, ring.length - start);
+        System.arraycopy(ring, 0, grown, ring.length - start, start);
+        queue = grown;
+        return grown;
+    }
+}
@@ -0,0 +1,87 @@
+package com.example.rev.puzzle;
+
+import java.util.Objects;
+
+/*
+    BFS from both ends, always growing the smaller frontier by a whole level. Each side only goes
+    about half as deep, which cuts the states touched from b^d to about 2 * b^(d/2), so it works without
+    a table of the whole state space and handles moderately scrambled 15-puzzles.
+    Distances of visited states live in primitive open addressing tables, frontiers in long arrays.
+    Not thread-safe: a solver per thread.
+ */
+public class BidirectionalBfsSolver implements Solver {
+
+    private final Grid grid;
+
+    public BidirectionalBfsSolver(Grid grid) {
+        if (Objects.isNull(grid)) {
+            throw new IllegalArgumentException("Grid must be not null");
+        }
+        this.grid = grid;
+    }
+
+    @Override
+    public int solve(long start) {
+        final var goal = grid.goal();
+        if (start == goal) {
+            return 0;
+        }
+        if (!grid.isSolvable(start)) {
+            return -1;
+        }
+        final var forward = new StateTable(1 << 10);
+        final var backward = new StateTable(1 << 10);
+        var forwardFrontier = new LongList(1 << 8);
+        var backwardFrontier = new LongList(1 << 8);
+        var scratch = new LongList(1 << 8);
+        forward.put(start, 0);
+        backward.put(goal, 0);
+        forwardFrontier.add(start);
+        backwardFrontier.add(goal);
+        while (true) {
+            final int best;
+            if (forwardFrontier.size() <= backwardFrontier.size()) {
+                best = expand(forwardFrontier, scratch, forward, backward);
+                final var swap = forwardFrontier;
+                forwardFrontier = scratch;
+                scratch = swap;
+            } else {
+                best = expand(backwardFrontier, scratch, backward, forward);
+                final var swap = backwardFrontier;
+                backwardFrontier = scratch;
+                scratch = swap;
+            }
+            if (best != Integer.MAX_VALUE) {
+                return best;
+            }
+        }
+    }
+
+    /*
+        Expands the whole level into next and returns the shortest path through a state the other side
+        has seen. The first level that meets the other side holds the shortest path, but not necessarily
+        in its first meeting, hence the minimum over the level.
+     */
+    private int expand(LongList frontier, LongList next, StateTable own, StateTable other) {
+        next.clear();
+        var best = Integer.MAX_VALUE;
+        for (int i = 0; i < frontier.size(); i++) {
+            final var state = frontier.get(i);
+            final var moves = own.get(state) + 1;
+            final var blank = grid.blank(state);
+            for (final var from : grid.neighbours(blank)) {
+                final var neighbour = Grid.move(state, blank, from);
+                if (own.get(neighbour) != -1) {
+                    continue;
+                }
+                final var remaining = other.get(neighbour);
+                if (remaining != -1) {
+                    best = Math.min(best, moves + remaining);
+                }
+                own.put(neighbour, moves);
+                next.add(neighbour);
+            }
+        }
+        return best;
+    }
+}
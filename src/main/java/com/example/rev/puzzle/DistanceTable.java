@@ -0,0 +1,140 @@
+package com.example.rev.puzzle;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Arrays;
+import java.util.Objects;
+
+/*
+    Distance to the goal of every state, filled once by a BFS backwards from the goal; moves are reversible,
+    so that is the distance forwards too. One byte per Lehmer rank: 720 bytes for 2x3, 362,880 for 3x3.
+    A query is a parity check, a rank and an array read. Read-only after build, so one table serves any
+    number of threads.
+ */
+public final class DistanceTable implements Solver {
+
+    private static final int MAGIC = 0x44495354;
+    private static final int HEADER_BYTES = 12;
+    private static final int UNREACHED = 0xFF;
+
+    private final Grid grid;
+    private final byte[] distances;
+
+    private DistanceTable(Grid grid, byte[] distances) {
+        this.grid = grid;
+        this.distances = distances;
+    }
+
+    public static DistanceTable build(Grid grid) {
+        validate(grid);
+        final var distances = new byte[(int) grid.stateCount()];
+        Arrays.fill(distances, (byte) UNREACHED);
+        final var goal = grid.goal();
+        distances[(int) grid.rank(goal)] = 0;
+        var level = new LongList(1 << 10);
+        var next = new LongList(1 << 10);
+        level.add(goal);
+        for (int distance = 1; !level.isEmpty(); distance++) {
+            if (distance >= UNREACHED) {
+                throw new IllegalStateException("Distances don't fit a byte");
+            }
+            next.clear();
+            for (int i = 0; i < level.size(); i++) {
+                final var state = level.get(i);
+                final var blank = grid.blank(state);
+                for (final var from : grid.neighbours(blank)) {
+                    final var moved = Grid.move(state, blank, from);
+                    final var rank = (int) grid.rank(moved);
+                    if ((distances[rank] & 0xFF) == UNREACHED) {
+                        distances[rank] = (byte) distance;
+                        next.add(moved);
+                    }
+                }
+            }
+            final var swap = level;
+            level = next;
+            next = swap;
+        }
+        return new DistanceTable(grid, distances);
+    }
+
+    public static DistanceTable load(Path path) throws IOException {
+        final var bytes = Files.readAllBytes(path);
+        final var header = ByteBuffer.wrap(bytes).order(ByteOrder.LITTLE_ENDIAN);
+        if (bytes.length < HEADER_BYTES || header.getInt() != MAGIC) {
+            throw new IllegalArgumentException("Not a distance table: " + path);
+        }
+        final var grid = new Grid(header.getInt(), header.getInt());
+        validate(grid);
+        if (bytes.length != HEADER_BYTES + grid.stateCount()) {
+            throw new IllegalArgumentException("Corrupted distance table: " + path);
+        }
+        return new DistanceTable(grid, Arrays.copyOfRange(bytes, HEADER_BYTES, bytes.length));
+    }
+
+    /**
+     * Loads the table from {@code path}, building and saving it first if the file doesn't exist.
+     */
+    public static DistanceTable loadOrBuild(Path path, Grid grid) throws IOException {
+        if (!Files.exists(path)) {
+            build(grid).save(path);
+        }
+        final var loaded = load(path);
+        if (loaded.grid.rows() != grid.rows() || loaded.grid.cols() != grid.cols()) {
+            throw new IllegalArgumentException("Distance table in " + path + " is for another grid");
+        }
+        return loaded;
+    }
+
+    /**
+     * Written to a temporary file and moved into place, so a reader never sees a partial table.
+     */
+    public void save(Path path) throws IOException {
+        final var header = ByteBuffer.allocate(HEADER_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+        header.putInt(MAGIC).putInt(grid.rows()).putInt(grid.cols());
+        final var temporary = path.resolveSibling(path.getFileName() + ".tmp");
+        try (var out = Files.newOutputStream(temporary)) {
+            out.write(header.array());
+            out.write(distances);
+        }
+        Files.move(temporary, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Boards of the wrong parity are answered without a lookup.
+     */
+    @Override
+    public int solve(long state) {
+        if (!grid.isSolvable(state)) {
+            return -1;
+        }
+        return distances[(int) grid.rank(state)] & 0xFF;
+    }
+
+    public Grid grid() {
+        return grid;
+    }
+
+    /**
+     * Fewest moves of the hardest boards, 21 for 2x3 and 31 for 3x3.
+     */
+    public int diameter() {
+        var max = 0;
+        for (final var distance : distances) {
+            if ((distance & 0xFF) != UNREACHED) {
+                max = Math.max(max, distance & 0xFF);
+            }
+        }
+        return max;
+    }
+
+    private static void validate(Grid grid) {
+        if (Objects.isNull(grid) || grid.cells() > BfsSolver.MAX_CELLS) {
+            throw new IllegalArgumentException("Grid must be not null and have at most " + BfsSolver.MAX_CELLS + " cells");
+        }
+    }
+}
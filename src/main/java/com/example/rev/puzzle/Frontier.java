@@ -0,0 +1,115 @@
+package com.example.rev.puzzle;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.LongBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+/*
+    Append-then-read sequence of packed states written by one BFS worker, on the heap or spilled to a file.
+ */
+interface Frontier extends Closeable {
+
+    void add(long state) throws IOException;
+
+    long size();
+
+    long get(long index);
+
+    static Frontier onHeap() {
+        return new OnHeap();
+    }
+
+    /**
+     * Backed by a temporary file in {@code directory}, mapped window by window, deleted on close.
+     */
+    static Frontier spilled(Path directory, int windowLongs) throws IOException {
+        return new Spilled(directory, windowLongs);
+    }
+
+    final class OnHeap implements Frontier {
+
+        private final LongList states = new LongList(1 << 10);
+
+        @Override
+        public void add(long state) {
+            states.add(state);
+        }
+
+        @Override
+        public long size() {
+            return states.size();
+        }
+
+        @Override
+        public long get(long index) {
+            return states.get((int) index);
+        }
+
+        @Override
+        public void close() {
+            states.clear();
+        }
+    }
+
+    /*
+        States go into read-write mappings of consecutive windows of the file, mapping past the end grows it.
+        The pages belong to the page cache, which writes them back under memory pressure instead of
+        the heap running out. Unused space of the last window is never read.
+     */
+    final class Spilled implements Frontier {
+
+        private final Path file;
+        private final FileChannel channel;
+        private final int shift;
+        private final long mask;
+        private final List<LongBuffer> windows;
+        private long size;
+
+        private Spilled(Path directory, int windowLongs) throws IOException {
+            if (Integer.bitCount(windowLongs) != 1) {
+                throw new IllegalArgumentException("Window must be a power of two");
+            }
+            this.file = Files.createTempFile(directory, "frontier-", ".bin");
+            this.channel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            this.shift = Integer.numberOfTrailingZeros(windowLongs);
+            this.mask = windowLongs - 1;
+            this.windows = new ArrayList<>();
+        }
+
+        @Override
+        public void add(long state) throws IOException {
+            if ((size & mask) == 0) {
+                final var bytes = (mask + 1) * Long.BYTES;
+                windows.add(channel.map(FileChannel.MapMode.READ_WRITE, (size >>> shift) * bytes, bytes).asLongBuffer());
+            }
+            windows.get(windows.size() - 1).put((int) (size & mask), state);
+            size++;
+        }
+
+        @Override
+        public long size() {
+            return size;
+        }
+
+        @Override
+        public long get(long index) {
+            return windows.get((int) (index >>> shift)).get((int) (index & mask));
+        }
+
+        /**
+         * The mappings go away with the buffers, Linux keeps the deleted file's pages until then.
+         */
+        @Override
+        public void close() throws IOException {
+            windows.clear();
+            channel.close();
+            Files.deleteIfExists(file);
+        }
+    }
+}
@@ -0,0 +1,195 @@
+package com.example.rev.puzzle;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+
+/*
+    Geometry of a rows x cols sliding puzzle and its packed states.
+    A state is a long with 4 bits per cell, cell i (row-major) in bits 4i..4i+3, the blank is tile 0.
+    Moving a tile into the blank is two xors because the blank nibble is zero, and the blank is found
+    without a loop, so expanding a state allocates nothing.
+ */
+public final class Grid {
+
+    public static final int MAX_CELLS = 16;
+    private static final long LOW_BITS = 0x1111_1111_1111_1111L;
+    private static final long[] FACTORIALS = new long[MAX_CELLS + 1];
+
+    static {
+        FACTORIALS[0] = 1;
+        for (int i = 1; i <= MAX_CELLS; i++) {
+            FACTORIALS[i] = FACTORIALS[i - 1] * i;
+        }
+    }
+
+    private final int rows;
+    private final int cols;
+    private final int cells;
+    private final long cellMask;
+    private final long goal;
+    // cells the blank can swap with, per blank position
+    private final int[][] neighbours;
+
+    public Grid(int rows, int cols) {
+        if (rows < 2 || cols < 2 || rows * cols > MAX_CELLS) {
+            throw new IllegalArgumentException("Board must be at least 2x2 and have at most " + MAX_CELLS + " cells");
+        }
+        this.rows = rows;
+        this.cols = cols;
+        this.cells = rows * cols;
+        this.cellMask = cells == MAX_CELLS ? -1L : (1L << 4 * cells) - 1;
+        var target = 0L;
+        for (int i = 0; i < cells - 1; i++) {
+            target |= (long) (i + 1) << 4 * i;
+        }
+        this.goal = target;
+        this.neighbours = new int[cells][];
+        for (int position = 0; position < cells; position++) {
+            final var row = position / cols;
+            final var col = position % cols;
+            final var around = new int[4];
+            var count = 0;
+            if (row > 0) {
+                around[count++] = position - cols;
+            }
+            if (col > 0) {
+                around[count++] = position - 1;
+            }
+            if (col < cols - 1) {
+                around[count++] = position + 1;
+            }
+            if (row < rows - 1) {
+                around[count++] = position + cols;
+            }
+            neighbours[position] = Arrays.copyOf(around, count);
+        }
+    }
+
+    public int rows() {
+        return rows;
+    }
+
+    public int cols() {
+        return cols;
+    }
+
+    public int cells() {
+        return cells;
+    }
+
+    /**
+     * Tiles 1..cells-1 in order with the blank in the last cell.
+     */
+    public long goal() {
+        return goal;
+    }
+
+    public long pack(List<List<Integer>> board) {
+        if (Objects.isNull(board) || board.size() != rows
+                || board.stream().anyMatch(row -> Objects.isNull(row) || row.size() != cols)) {
+            throw new IllegalArgumentException("Board must be " + rows + "x" + cols);
+        }
+        final var tiles = new int[cells];
+        for (int i = 0; i < cells; i++) {
+            final var tile = board.get(i / cols).get(i % cols);
+            tiles[i] = tile == null ? -1 : tile;
+        }
+        return pack(tiles);
+    }
+
+    /**
+     * Tiles in row-major order, every one of 0..cells-1 exactly once.
+     */
+    public long pack(int[] tiles) {
+        if (Objects.isNull(tiles) || tiles.length != cells) {
+            throw new IllegalArgumentException("Board must have " + cells + " cells");
+        }
+        var seen = 0;
+        var state = 0L;
+        for (int i = 0; i < cells; i++) {
+            final var tile = tiles[i];
+            if (tile < 0 || tile >= cells || (seen & 1 << tile) != 0) {
+                throw new IllegalArgumentException("Board must hold every tile from 0 to " + (cells - 1) + " once");
+            }
+            seen |= 1 << tile;
+            state |= (long) tile << 4 * i;
+        }
+        return state;
+    }
+
+    public int[] unpack(long state) {
+        final var tiles = new int[cells];
+        for (int i = 0; i < cells; i++) {
+            tiles[i] = tile(state, i);
+        }
+        return tiles;
+    }
+
+    public static int tile(long state, int position) {
+        return (int) (state >>> 4 * position) & 0xF;
+    }
+
+    /**
+     * Position of the blank: the only zero nibble among the used cells.
+     */
+    public int blank(long state) {
+        var folded = state | state >>> 1;
+        folded |= folded >>> 2;
+        return Long.numberOfTrailingZeros(~folded & LOW_BITS & cellMask) >>> 2;
+    }
+
+    /**
+     * Whether the goal can be reached at all, by the parity of inversions: a horizontal move keeps it,
+     * a vertical one flips it when the width is even, together with the row of the blank.
+     */
+    public boolean isSolvable(long state) {
+        var seen = 0;
+        var inversions = 0;
+        for (int i = 0; i < cells; i++) {
+            final var tile = tile(state, i);
+            if (tile != 0) {
+                inversions += Integer.bitCount(seen >>> tile);
+                seen |= 1 << tile;
+            }
+        }
+        if (cols % 2 == 1) {
+            return inversions % 2 == 0;
+        }
+        return (inversions + blank(state) / cols) % 2 == (rows - 1) % 2;
+    }
+
+    /**
+     * Slides the tile at {@code from} into the blank at {@code blank}.
+     */
+    public static long move(long state, int blank, int from) {
+        final var tile = state >>> 4 * from & 0xF;
+        return state ^ tile << 4 * from ^ tile << 4 * blank;
+    }
+
+    /**
+     * Positions the blank can swap with, shared, must not be modified.
+     */
+    public int[] neighbours(int blank) {
+        return neighbours[blank];
+    }
+
+    public long stateCount() {
+        return FACTORIALS[cells];
+    }
+
+    /**
+     * Lehmer rank of the state among all cells! permutations. O(cells): the tiles already seen
+     * are a bitmask, so the smaller ones are counted with a single popcount.
+     */
+    public long rank(long state) {
+        var seen = 0;
+        var rank = 0L;
+        for (int i = 0; i < cells; i++) {
+            final var tile = tile(state, i);
+            rank += (tile - Integer.bitCount(seen & (1 << tile) - 1)) * FACTORIALS[cells - 1 - i];
+            seen |= 1 << tile;
+        }
+        return rank;
+    }
+}
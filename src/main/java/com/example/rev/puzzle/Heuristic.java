@@ -0,0 +1,11 @@
+package com.example.rev.puzzle;
+
+/*
+    Lower bound of the moves left to the goal. Implementations are admissible and consistent,
+    so A* never reopens a state, and thread-safe, so one instance serves every solver.
+ */
+@FunctionalInterface
+public interface Heuristic {
+
+    int estimate(long state);
+}
@@ -0,0 +1,62 @@
+package com.example.rev.puzzle;
+
+import java.util.Objects;
+
+/*
+    Iterative deepening A*: depth-first searches bounded by g + h, each bound the smallest f that exceeded
+    the previous one. Memory is the recursion only, which is what makes the 15-puzzle tractable.
+    The move that undoes the previous one is never tried. Thread-safe if the heuristic is.
+ */
+public class IdaStarSolver implements Solver {
+
+    private static final int FOUND = -1;
+
+    private final Grid grid;
+    private final Heuristic heuristic;
+
+    public IdaStarSolver(Grid grid, Heuristic heuristic) {
+        if (Objects.isNull(grid) || Objects.isNull(heuristic)) {
+            throw new IllegalArgumentException("Grid and heuristic must be not null");
+        }
+        this.grid = grid;
+        this.heuristic = heuristic;
+    }
+
+    @Override
+    public int solve(long start) {
+        if (!grid.isSolvable(start)) {
+            return -1;
+        }
+        var bound = heuristic.estimate(start);
+        while (true) {
+            final var next = search(start, grid.blank(start), -1, 0, bound);
+            if (next == FOUND) {
+                // the goal has h = 0 and every path with f up to the previous bound failed, so g == bound
+                return bound;
+            }
+            bound = next;
+        }
+    }
+
+    private int search(long state, int blank, int previousBlank, int moves, int bound) {
+        final var estimate = moves + heuristic.estimate(state);
+        if (estimate > bound) {
+            return estimate;
+        }
+        if (state == grid.goal()) {
+            return FOUND;
+        }
+        var nextBound = Integer.MAX_VALUE;
+        for (final var from : grid.neighbours(blank)) {
+            if (from == previousBlank) {
+                continue;
+            }
+            final var result = search(Grid.move(state, blank, from), from, blank, moves + 1, bound);
+            if (result == FOUND) {
+                return FOUND;
+            }
+            nextBound = Math.min(nextBound, result);
+        }
+        return nextBound;
+    }
+}
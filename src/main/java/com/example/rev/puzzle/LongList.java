@@ -0,0 +1,43 @@
+package com.example.rev.puzzle;
+
+import java.util.Arrays;
+
+/*
+    Growable array of primitive longs, used as a stack or a frontier of packed states.
+ */
+final class LongList {
+
+    private long[] values;
+    private int size;
+
+    LongList(int capacity) {
+        this.values = new long[Math.max(capacity, 16)];
+    }
+
+    void add(long value) {
+        if (size == values.length) {
+            values = Arrays.copyOf(values, values.length << 1);
+        }
+        values[size++] = value;
+    }
+
+    long get(int index) {
+        return values[index];
+    }
+
+    long pop() {
+        return values[--size];
+    }
+
+    int size() {
+        return size;
+    }
+
+    boolean isEmpty() {
+        return size == 0;
+    }
+
+    void clear() {
+        size = 0;
+    }
+}
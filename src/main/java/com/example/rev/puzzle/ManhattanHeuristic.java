@@ -0,0 +1,97 @@
+package com.example.rev.puzzle;
+
+import java.util.Objects;
+
+/*
+    Sum of the Manhattan distances of the tiles to their goal cells, optionally with linear conflicts:
+    tiles already in their goal row (column) but in the wrong order there have to leave it, every such tile
+    costs two more moves. The tiles that stay are a longest increasing run of goal columns, so the extra
+    cost is 2 * (tiles in the line - that run), which keeps the bound admissible for three or more tiles
+    in one line, unlike counting conflicting pairs.
+    Lines have at most 8 cells, so a line and its LIS table are packed into longs and nothing is allocated.
+ */
+public class ManhattanHeuristic implements Heuristic {
+
+    private final Grid grid;
+    private final boolean linearConflict;
+    // distances[tile * cells + position]
+    private final int[] distances;
+
+    public ManhattanHeuristic(Grid grid, boolean linearConflict) {
+        if (Objects.isNull(grid)) {
+            throw new IllegalArgumentException("Grid must be not null");
+        }
+        this.grid = grid;
+        this.linearConflict = linearConflict;
+        final var cells = grid.cells();
+        final var cols = grid.cols();
+        this.distances = new int[cells * cells];
+        for (int tile = 1; tile < cells; tile++) {
+            final var home = tile - 1;
+            for (int position = 0; position < cells; position++) {
+                distances[tile * cells + position] = Math.abs(home / cols - position / cols)
+                        + Math.abs(home % cols - position % cols);
+            }
+        }
+    }
+
+    @Override
+    public int estimate(long state) {
+        final var cells = grid.cells();
+        var sum = 0;
+        for (int position = 0; position < cells; position++) {
+            sum += distances[Grid.tile(state, position) * cells + position];
+        }
+        return linearConflict ? sum + conflicts(state) : sum;
+    }
+
+    private int conflicts(long state) {
+        final var rows = grid.rows();
+        final var cols = grid.cols();
+        var extra = 0;
+        for (int row = 0; row < rows; row++) {
+            var line = 0L;
+            var length = 0;
+            for (int col = 0; col < cols; col++) {
+                final var tile = Grid.tile(state, row * cols + col);
+                if (tile != 0 && (tile - 1) / cols == row) {
+                    line |= (long) ((tile - 1) % cols) << 4 * length++;
+                }
+            }
+            extra += 2 * (length - increasingRun(line, length));
+        }
+        for (int col = 0; col < cols; col++) {
+            var line = 0L;
+            var length = 0;
+            for (int row = 0; row < rows; row++) {
+                final var tile = Grid.tile(state, row * cols + col);
+                if (tile != 0 && (tile - 1) % cols == col) {
+                    line |= (long) ((tile - 1) / cols) << 4 * length++;
+                }
+            }
+            extra += 2 * (length - increasingRun(line, length));
+        }
+        return extra;
+    }
+
+    // longest increasing subsequence of the packed nibbles, O(length^2) with the dp table in a long too
+    private static int increasingRun(long line, int length) {
+        if (length < 2) {
+            return length;
+        }
+        var runs = 0L;
+        var best = 0;
+        for (int i = 0; i < length; i++) {
+            final var value = line >>> 4 * i & 0xF;
+            var run = 1L;
+            for (int j = 0; j < i; j++) {
+                if ((line >>> 4 * j & 0xF) < value) {
+                    run = Math.max(run, (runs >>> 4 * j & 0xF) + 1);
+                }
+            }
+            runs |= run << 4 * i;
+            best = Math.max(best, (int) run);
+        }
+        return best;
+    }
+}
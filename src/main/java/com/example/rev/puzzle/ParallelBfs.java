@@ -0,0 +1,215 @@
+package com.example.rev.puzzle;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/*
+    Level-synchronous BFS: each level's frontier is cut into ranges, workers expand their range into
+    a frontier of their own, and the next level starts when all of them are done. Workers share only
+    the visited bitset over Lehmer ranks, where a state is claimed by the worker whose CAS sets its bit,
+    so every state is expanded exactly once.
+    With a spill directory frontiers are memory-mapped files instead of heap arrays; the heap then holds
+    only the bitset, n!/8 bytes: 60 MB for 3x4, 10.9 GB for 2x7. That is also the limit: the 15-puzzle
+    would need 2.6 TB of bitset, so boards are capped at 14 cells.
+ */
+public class ParallelBfs implements Solver {
+
+    public static final int MAX_CELLS = 14;
+    private static final int SPILL_WINDOW_LONGS = 1 << 20;
+    // ranges per worker, so a worker that finishes early picks up another one
+    private static final int RANGES_PER_WORKER = 4;
+    private static final long NO_TARGET = 0;
+
+    private final Grid grid;
+    private final ForkJoinPool pool;
+    // null keeps frontiers on the heap
+    private final Path spillDirectory;
+    private final int spillWindowLongs;
+
+    public ParallelBfs(Grid grid, ForkJoinPool pool) {
+        this(grid, pool, null, SPILL_WINDOW_LONGS);
+    }
+
+    /**
+     * Frontiers are written to temporary files in {@code spillDirectory} and deleted once expanded.
+     */
+    public ParallelBfs(Grid grid, ForkJoinPool pool, Path spillDirectory) {
+        this(grid, pool, spillDirectory, SPILL_WINDOW_LONGS);
+    }
+
+    ParallelBfs(Grid grid, ForkJoinPool pool, Path spillDirectory, int spillWindowLongs) {
+        if (Objects.isNull(grid) || Objects.isNull(pool)) {
+            throw new IllegalArgumentException("Grid and pool must be not null");
+        }
+        if (grid.cells() > MAX_CELLS) {
+            throw new IllegalArgumentException("Visited bitset of a grid with more than " + MAX_CELLS + " cells doesn't fit an array");
+        }
+        if (spillDirectory != null && !Files.isDirectory(spillDirectory)) {
+            throw new IllegalArgumentException("Spill directory must exist");
+        }
+        this.grid = grid;
+        this.pool = pool;
+        this.spillDirectory = spillDirectory;
+        this.spillWindowLongs = spillWindowLongs;
+    }
+
+    @Override
+    public int solve(long start) {
+        if (start == grid.goal()) {
+            return 0;
+        }
+        if (!grid.isSolvable(start)) {
+            return -1;
+        }
+        final var sizes = new LongList(64);
+        return search(start, grid.goal(), sizes);
+    }
+
+    /**
+     * Number of states at each distance from {@code start}, the whole component is enumerated:
+     * the length is the eccentricity of start plus one and the sum is the number of reachable states.
+     */
+    public long[] levelSizes(long start) {
+        final var sizes = new LongList(64);
+        search(start, NO_TARGET, sizes);
+        final var result = new long[sizes.size()];
+        for (int i = 0; i < result.length; i++) {
+            result[i] = sizes.get(i);
+        }
+        return result;
+    }
+
+    // depth at which target was generated, -1 when the component is exhausted without it
+    private int search(long start, long target, LongList sizes) {
+        final var visited = new AtomicLongArray((int) ((grid.stateCount() + 63) >>> 6));
+        claim(visited, grid.rank(start));
+        List<Frontier> level = new ArrayList<>();
+        try {
+            final var first = newFrontier();
+            level.add(first);
+            first.add(start);
+            sizes.add(1);
+            for (int depth = 1; ; depth++) {
+                final var next = expand(level, visited, target);
+                close(level);
+                level = next.frontiers();
+                if (next.found()) {
+                    return depth;
+                }
+                final var size = level.stream().mapToLong(Frontier::size).sum();
+                if (size == 0) {
+                    return -1;
+                }
+                sizes.add(size);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } finally {
+            close(level);
+        }
+    }
+
+    private record Level(List<Frontier> frontiers, boolean found) {}
+
+    private Level expand(List<Frontier> level, AtomicLongArray visited, long target) throws IOException {
+        final var offsets = new long[level.size() + 1];
+        for (int i = 0; i < level.size(); i++) {
+            offsets[i + 1] = offsets[i] + level.get(i).size();
+        }
+        final var total = offsets[level.size()];
+        final var ranges = (int) Math.max(1, Math.min(total, (long) pool.getParallelism() * RANGES_PER_WORKER));
+        final var outputs = new ArrayList<Frontier>(ranges);
+        final var tasks = new ArrayList<Callable<Boolean>>(ranges);
+        for (int i = 0; i < ranges; i++) {
+            final var from = total * i / ranges;
+            final var to = total * (i + 1) / ranges;
+            final var output = newFrontier();
+            outputs.add(output);
+            tasks.add(() -> expandRange(level, offsets, from, to, output, visited, target));
+        }
+        var found = false;
+        try {
+            for (final var result : pool.invokeAll(tasks)) {
+                found |= result.get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            close(outputs);
+            throw new IllegalStateException("Interrupted while expanding a level", e);
+        } catch (ExecutionException e) {
+            close(outputs);
+            if (e.getCause() instanceof IOException io) {
+                throw io;
+            }
+            if (e.getCause() instanceof RuntimeException runtime) {
+                throw runtime;
+            }
+            throw new IllegalStateException(e.getCause());
+        }
+        return new Level(outputs, found);
+    }
+
+    // expands states [from, to) of the concatenated level, true if the target was generated
+    private boolean expandRange(List<Frontier> level, long[] offsets, long from, long to, Frontier output,
+                                AtomicLongArray visited, long target) throws IOException {
+        var segment = 0;
+        while (offsets[segment + 1] <= from) {
+            segment++;
+        }
+        for (var index = from; index < to; index++) {
+            while (index >= offsets[segment + 1]) {
+                segment++;
+            }
+            final var state = level.get(segment).get(index - offsets[segment]);
+            final var blank = grid.blank(state);
+            for (final var cell : grid.neighbours(blank)) {
+                final var next = Grid.move(state, blank, cell);
+                if (next == target) {
+                    return true;
+                }
+                if (claim(visited, grid.rank(next))) {
+                    output.add(next);
+                }
+            }
+        }
+        return false;
+    }
+
+    // true if this call set the bit
+    private static boolean claim(AtomicLongArray visited, long rank) {
+        final var word = (int) (rank >>> 6);
+        final var bit = 1L << rank;
+        var current = visited.get(word);
+        while ((current & bit) == 0) {
+            final var witness = visited.compareAndExchange(word, current, current | bit);
+            if (witness == current) {
+                return true;
+            }
+            current = witness;
+        }
+        return false;
+    }
+
+    private Frontier newFrontier() throws IOException {
+        return spillDirectory == null ? Frontier.onHeap() : Frontier.spilled(spillDirectory, spillWindowLongs);
+    }
+
+    private static void close(List<Frontier> frontiers) {
+        for (final var frontier : frontiers) {
+            try {
+                frontier.close();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+    }
+}
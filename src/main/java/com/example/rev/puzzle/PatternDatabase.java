@@ -0,0 +1,267 @@
+package com.example.rev.puzzle;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Objects;
+
+/*
+    Exact number of moves of a group of tiles needed to bring them home, for every placement of the group,
+    with moves of the other tiles free. Disjoint groups can be added up and stay admissible.
+    A placement is the tuple of cells of the group tiles ranked among all k-permutations of the cells,
+    one byte per rank: 5 tiles of the 15-puzzle take 524,160 bytes, 6 tiles 5,765,760.
+    Built by a 0-1 BFS from the goal over (placement, blank cell), saved as a small header and the bytes,
+    and loaded by mapping the file read-only, so the table lives in the page cache and not on the heap.
+ */
+public final class PatternDatabase {
+
+    private static final int MAGIC = 0x50444231;
+    private static final int UNSET = 0xFF;
+
+    private final Grid grid;
+    private final int[] tiles;
+    private final ByteBuffer distances;
+    private final long[] multipliers;
+
+    private PatternDatabase(Grid grid, int[] tiles, ByteBuffer distances) {
+        this.grid = grid;
+        this.tiles = tiles;
+        this.distances = distances;
+        this.multipliers = multipliers(grid.cells(), tiles.length);
+    }
+
+    /**
+     * Builds the table in memory, it takes P(cells, tiles + 1) bits of scratch space while building.
+     */
+    public static PatternDatabase build(Grid grid, int... tiles) {
+        validate(grid, tiles);
+        final var cells = grid.cells();
+        final var k = tiles.length;
+        final var table = new byte[(int) permutations(cells, k)];
+        Arrays.fill(table, (byte) UNSET);
+        final var seen = new long[(int) ((permutations(cells, k + 1) + 63) >>> 6)];
+        final var patternMultipliers = multipliers(cells, k);
+        final var abstractMultipliers = multipliers(cells, k + 1);
+
+        // nibble i: cell of tiles[i], nibble k: cell of the blank
+        var goal = (long) (cells - 1) << 4 * k;
+        for (int i = 0; i < k; i++) {
+            goal |= (long) (tiles[i] - 1) << 4 * i;
+        }
+        final var current = new LongList(1 << 12);
+        var reached = new LongList(1 << 12);
+        var next = new LongList(1 << 12);
+        next.add(goal);
+        for (int distance = 0; !next.isEmpty(); distance++) {
+            final var swap = reached;
+            reached = next;
+            next = swap;
+            next.clear();
+            // states one group move further are claimed only now, a free move may have got there first
+            for (int i = 0; i < reached.size(); i++) {
+                final var state = reached.get(i);
+                if (mark(seen, rank(state, k + 1, abstractMultipliers))) {
+                    current.add(state);
+                }
+            }
+            while (!current.isEmpty()) {
+                final var state = current.pop();
+                final var patternIndex = (int) rank(state, k, patternMultipliers);
+                if ((table[patternIndex] & 0xFF) == UNSET) {
+                    table[patternIndex] = (byte) distance;
+                }
+                final var blank = (int) (state >>> 4 * k) & 0xF;
+                for (final var cell : grid.neighbours(blank)) {
+                    final var tile = tileAt(state, k, cell);
+                    if (tile < 0) {
+                        // a tile outside the group moves: same distance
+                        final var moved = state & ~(0xFL << 4 * k) | (long) cell << 4 * k;
+                        if (mark(seen, rank(moved, k + 1, abstractMultipliers))) {
+                            current.add(moved);
+                        }
+                    } else {
+                        final var moved = state & ~(0xFL << 4 * k) & ~(0xFL << 4 * tile)
+                                | (long) cell << 4 * k | (long) blank << 4 * tile;
+                        final var index = rank(moved, k + 1, abstractMultipliers);
+                        if ((seen[(int) (index >>> 6)] & 1L << index) == 0) {
+                            next.add(moved);
+                        }
+                    }
+                }
+            }
+        }
+        return new PatternDatabase(grid, tiles.clone(), ByteBuffer.wrap(table));
+    }
+
+    /**
+     * Maps a table saved by {@link #save(Path)}.
+     */
+    public static PatternDatabase load(Path path) throws IOException {
+        try (var channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            final var header = ByteBuffer.allocate(4 * 4).order(ByteOrder.LITTLE_ENDIAN);
+            channel.read(header, 0);
+            header.flip();
+            if (header.remaining() < 16 || header.getInt() != MAGIC) {
+                throw new IllegalArgumentException("Not a pattern database: " + path);
+            }
+            final var grid = new Grid(header.getInt(), header.getInt());
+            final var k = header.getInt();
+            if (k <= 0 || k >= grid.cells()) {
+                throw new IllegalArgumentException("Corrupted pattern database: " + path);
+            }
+            final var tileBytes = ByteBuffer.allocate(4 * k).order(ByteOrder.LITTLE_ENDIAN);
+            channel.read(tileBytes, 16);
+            tileBytes.flip();
+            final var tiles = new int[k];
+            for (int i = 0; i < k; i++) {
+                tiles[i] = tileBytes.getInt();
+            }
+            validate(grid, tiles);
+            final var offset = 16L + 4L * k;
+            final var size = permutations(grid.cells(), k);
+            if (channel.size() != offset + size) {
+                throw new IllegalArgumentException("Corrupted pattern database: " + path);
+            }
+            return new PatternDatabase(grid, tiles, channel.map(FileChannel.MapMode.READ_ONLY, offset, size));
+        }
+    }
+
+    /**
+     * Loads the table from {@code path}, building and saving it first if the file doesn't exist.
+     */
+    public static PatternDatabase loadOrBuild(Path path, Grid grid, int... tiles) throws IOException {
+        if (!Files.exists(path)) {
+            build(grid, tiles).save(path);
+        }
+        final var loaded = load(path);
+        if (loaded.grid.rows() != grid.rows() || loaded.grid.cols() != grid.cols()
+                || !Arrays.equals(loaded.tiles, tiles)) {
+            throw new IllegalArgumentException("Pattern database in " + path + " is for other tiles");
+        }
+        return loaded;
+    }
+
+    /**
+     * Written to a temporary file and moved into place, so a reader never maps a partial table.
+     */
+    public void save(Path path) throws IOException {
+        final var temporary = path.resolveSibling(path.getFileName() + ".tmp");
+        try (var channel = FileChannel.open(temporary, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            final var header = ByteBuffer.allocate(16 + 4 * tiles.length).order(ByteOrder.LITTLE_ENDIAN);
+            header.putInt(MAGIC).putInt(grid.rows()).putInt(grid.cols()).putInt(tiles.length);
+            for (final var tile : tiles) {
+                header.putInt(tile);
+            }
+            header.flip();
+            while (header.hasRemaining()) {
+                channel.write(header);
+            }
+            final var body = distances.duplicate();
+            body.clear();
+            while (body.hasRemaining()) {
+                channel.write(body);
+            }
+            channel.force(false);
+        }
+        Files.move(temporary, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Moves of the group tiles left, given the cell of every tile: nibble t of {@code cells} is the cell of tile t.
+     */
+    public int distance(long cells) {
+        var seen = 0;
+        var rank = 0L;
+        for (int i = 0; i < tiles.length; i++) {
+            final var cell = (int) (cells >>> 4 * tiles[i]) & 0xF;
+            rank += (cell - Integer.bitCount(seen & (1 << cell) - 1)) * multipliers[i];
+            seen |= 1 << cell;
+        }
+        return distances.get((int) rank) & 0xFF;
+    }
+
+    public Grid grid() {
+        return grid;
+    }
+
+    public int[] tiles() {
+        return tiles.clone();
+    }
+
+    public long size() {
+        return distances.capacity();
+    }
+
+    private static void validate(Grid grid, int[] tiles) {
+        if (Objects.isNull(grid) || Objects.isNull(tiles) || tiles.length == 0 || tiles.length >= grid.cells()) {
+            throw new IllegalArgumentException("Grid must be not null and the group must have 1 to cells - 1 tiles");
+        }
+        var seen = 0;
+        for (final var tile : tiles) {
+            if (tile <= 0 || tile >= grid.cells() || (seen & 1 << tile) != 0) {
+                throw new IllegalArgumentException("Group tiles must be distinct tiles of the grid");
+            }
+            seen |= 1 << tile;
+        }
+        if (permutations(grid.cells(), tiles.length + 1) > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Group is too large for the grid");
+        }
+    }
+
+    // true if the bit was clear
+    private static boolean mark(long[] bits, long index) {
+        final var word = (int) (index >>> 6);
+        final var bit = 1L << index;
+        if ((bits[word] & bit) != 0) {
+            return false;
+        }
+        bits[word] |= bit;
+        return true;
+    }
+
+    // nibble of the group tile standing in the cell, -1 for a tile outside the group
+    private static int tileAt(long state, int k, int cell) {
+        for (int i = 0; i < k; i++) {
+            if ((state >>> 4 * i & 0xF) == cell) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    // rank of the first m nibbles, distinct cells, among the m-permutations of the cells
+    private static long rank(long state, int m, long[] multipliers) {
+        var seen = 0;
+        var rank = 0L;
+        for (int i = 0; i < m; i++) {
+            final var cell = (int) (state >>> 4 * i) & 0xF;
+            rank += (cell - Integer.bitCount(seen & (1 << cell) - 1)) * multipliers[i];
+            seen |= 1 << cell;
+        }
+        return rank;
+    }
+
+    // multipliers[i] = P(cells - 1 - i, m - 1 - i)
+    private static long[] multipliers(int cells, int m) {
+        final var result = new long[m];
+        for (int i = 0; i < m; i++) {
+            result[i] = permutations(cells - 1 - i, m - 1 - i);
+        }
+        return result;
+    }
+
+    private static long permutations(int n, int k) {
+        var result = 1L;
+        for (int i = 0; i < k; i++) {
+            result *= n - i;
+        }
+        return result;
+    }
+}
@@ -0,0 +1,72 @@
+package com.example.rev.puzzle;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+import java.util.stream.Collectors;
+
+/*
+    Sum of disjoint pattern databases. Each database only counts moves of its own tiles,
+    so the sum is still a lower bound, and it is much tighter than Manhattan distance
+    because it sees how the tiles of a group get in each other's way.
+ */
+public class PatternHeuristic implements Heuristic {
+
+    private final PatternDatabase[] databases;
+    private final int cells;
+
+    public PatternHeuristic(List<PatternDatabase> databases) {
+        if (Objects.isNull(databases) || databases.isEmpty() || databases.stream().anyMatch(Objects::isNull)) {
+            throw new IllegalArgumentException("Databases must be not null and not empty");
+        }
+        final var grid = databases.get(0).grid();
+        var used = 0;
+        for (final var database : databases) {
+            if (database.grid().rows() != grid.rows() || database.grid().cols() != grid.cols()) {
+                throw new IllegalArgumentException("Databases must be built for the same grid");
+            }
+            for (final var tile : database.tiles()) {
+                if ((used & 1 << tile) != 0) {
+                    throw new IllegalArgumentException("Tile " + tile + " is in two databases, the sum would overestimate");
+                }
+                used |= 1 << tile;
+            }
+        }
+        this.databases = databases.toArray(PatternDatabase[]::new);
+        this.cells = grid.cells();
+    }
+
+    /**
+     * Loads one database per group from {@code directory}, building the missing ones,
+     * e.g. groups {1, 5, 6, 9, 10, 13}, {7, 8, 11, 12, 14, 15}, {2, 3, 4} for the 15-puzzle.
+     */
+    public static PatternHeuristic loadOrBuild(Path directory, Grid grid, int[]... groups) throws IOException {
+        if (Objects.isNull(directory) || Objects.isNull(grid) || Objects.isNull(groups)) {
+            throw new IllegalArgumentException("Directory, grid and groups must be not null");
+        }
+        final var databases = new ArrayList<PatternDatabase>(groups.length);
+        for (final var group : groups) {
+            final var name = Arrays.stream(group).mapToObj(String::valueOf).collect(Collectors.joining("-"));
+            final var file = directory.resolve("pdb-" + grid.rows() + "x" + grid.cols() + "-" + name + ".bin");
+            databases.add(PatternDatabase.loadOrBuild(file, grid, group));
+        }
+        return new PatternHeuristic(databases);
+    }
+
+    @Override
+    public int estimate(long state) {
+        // nibble t: cell of tile t
+        var cellsOfTiles = 0L;
+        for (int position = 0; position < cells; position++) {
+            cellsOfTiles |= (long) position << 4 * Grid.tile(state, position);
+        }
+        var sum = 0;
+        for (final var database : databases) {
+            sum += database.distance(cellsOfTiles);
+        }
+        return sum;
+    }
+}
@@ -0,0 +1,9 @@
+package com.example.rev.puzzle;
+
+public interface Solver {
+
+    /**
+     * Fewest moves from {@code start} to the goal of the grid, -1 if the goal is unreachable.
+     */
+    int solve(long start);
+}
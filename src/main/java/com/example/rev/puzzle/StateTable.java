@@ -0,0 +1,80 @@
+package com.example.rev.puzzle;
+
+/*
+    Open addressing map from packed states to non-negative ints, without boxing.
+    Zero is never a valid state (tiles are distinct, so at most one nibble is zero) and marks an empty slot.
+ */
+final class StateTable {
+
+    private long[] keys;
+    private int[] values;
+    private int size;
+
+    StateTable(int expected) {
+        var capacity = 16;
+        while (capacity < expected * 2) {
+            capacity <<= 1;
+        }
+        this.keys = new long[capacity];
+        this.values = new int[capacity];
+    }
+
+    /**
+     * The value of the state, -1 if absent.
+     */
+    int get(long state) {
+        final var mask = keys.length - 1;
+        for (int slot = slot(state, mask); ; slot = slot + 1 & mask) {
+            final var key = keys[slot];
+            if (key == state) {
+                return values[slot];
+            }
+            if (key == 0) {
+                return -1;
+            }
+        }
+    }
+
+    void put(long state, int value) {
+        if (size * 2 >= keys.length) {
+            resize();
+        }
+        final var mask = keys.length - 1;
+        var slot = slot(state, mask);
+        while (keys[slot] != 0 && keys[slot] != state) {
+            slot = slot + 1 & mask;
+        }
+        if (keys[slot] == 0) {
+            keys[slot] = state;
+            size++;
+        }
+        values[slot] = value;
+    }
+
+    int size() {
+        return size;
+    }
+
+    private void resize() {
+        final var oldKeys = keys;
+        final var oldValues = values;
+        keys = new long[oldKeys.length << 1];
+        values = new int[oldKeys.length << 1];
+        final var mask = keys.length - 1;
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldKeys[i] != 0) {
+                var slot = slot(oldKeys[i], mask);
+                while (keys[slot] != 0) {
+                    slot = slot + 1 & mask;
+                }
+                keys[slot] = oldKeys[i];
+                values[slot] = oldValues[i];
+            }
+        }
+    }
+
+    private static int slot(long state, int mask) {
+        final var mixed = state * 0x9E37_79B9_7F4A_7C15L;
+        return (int) (mixed >>> 32) & mask;
+    }
+}
@@ -0,0 +1,72 @@
+package com.example.rev.shortener;
+
+import java.util.Arrays;
+
+/*
+    [0-9A-Za-z] encoding of non-negative longs, codes are left padded with '0' to a fixed width.
+ */
+public final class Base62 {
+
+    private static final char[] ALPHABET = "0123456789ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz".toCharArray();
+    private static final int BASE = ALPHABET.length;
+    private static final byte[] DIGITS = new byte[128];
+
+    static {
+        Arrays.fill(DIGITS, (byte) -1);
+        for (int i = 0; i < BASE; i++) {
+            DIGITS[ALPHABET[i]] = (byte) i;
+        }
+    }
+
+    private Base62() {
+    }
+
+    public static String encode(long value, int width) {
+        if (value < 0) {
+            throw new IllegalArgumentException("Value must not be negative");
+        }
+        final var chars = new char[Math.max(width, 11)];
+        var position = chars.length;
+        do {
+            chars[--position] = ALPHABET[(int) (value % BASE)];
+            value /= BASE;
+        } while (value > 0);
+        while (chars.length - position < width) {
+            chars[--position] = ALPHABET[0];
+        }
+        return new String(chars, position, chars.length - position);
+    }
+
+    /**
+     * Returns the decoded value or -1 when the input is empty, has a character outside of the alphabet or overflows.
+     */
+    public static long decode(CharSequence code) {
+        if (code == null || code.length() == 0) {
+            return -1;
+        }
+        var value = 0L;
+        for (int i = 0; i < code.length(); i++) {
+            final var c = code.charAt(i);
+            final var digit = c < DIGITS.length ? DIGITS[c] : -1;
+            if (digit < 0 || value > (Long.MAX_VALUE - digit) / BASE) {
+                return -1;
+            }
+            value = value * BASE + digit;
+        }
+        return value;
+    }
+
+    /**
+     * 62^width, the number of distinct codes of the given width.
+     */
+    public static long capacity(int width) {
+        if (width <= 0 || width > 10) {
+            throw new IllegalArgumentException("Width must be in [1, 10]");
+        }
+        var capacity = 1L;
+        for (int i = 0; i < width; i++) {
+            capacity *= BASE;
+        }
+        return capacity;
+    }
+}
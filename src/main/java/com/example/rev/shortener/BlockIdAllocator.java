@@ -0,0 +1,81 @@
+package com.example.rev.shortener;
+
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicLong;
+
+/*
+    Hands out ids from a leased block, only the thread exhausting the block goes back to the sequence.
+    Released ids are handed out again before new ones, the free list lives in memory only,
+    so ids released before a restart are just skipped.
+ */
+public class BlockIdAllocator {
+
+    private final IdSequence sequence;
+    private final int blockSize;
+    private final ConcurrentLinkedQueue<Long> released;
+    private volatile Block block;
+
+    public BlockIdAllocator(IdSequence sequence, int blockSize) {
+        if (sequence == null || blockSize <= 0) {
+            throw new IllegalArgumentException("Sequence must be not null and block size must be more than zero");
+        }
+        this.sequence = sequence;
+        this.blockSize = blockSize;
+        this.released = new ConcurrentLinkedQueue<>();
+        this.block = new Block(0, 0);
+    }
+
+    public long next() {
+        final var recycled = released.poll();
+        if (recycled != null) {
+            return recycled;
+        }
+        while (true) {
+            final var current = block;
+            final var id = current.next.getAndIncrement();
+            if (id < current.end) {
+                return id;
+            }
+            refill(current);
+        }
+    }
+
+    /**
+     * Leases {@code count} contiguous ids straight from the sequence and returns the first one,
+     * for batches that would otherwise drain several blocks id by id.
+     */
+    public synchronized long reserve(int count) {
+        if (count <= 0) {
+            throw new IllegalArgumentException("Count must be more than zero");
+        }
+        return sequence.reserve(count);
+    }
+
+    /**
+     * Returns an id that is no longer used, the caller guarantees it is released once.
+     */
+    public void release(long id) {
+        if (id < 0) {
+            throw new IllegalArgumentException("Id must not be negative");
+        }
+        released.add(id);
+    }
+
+    private synchronized void refill(Block exhausted) {
+        if (block == exhausted) {
+            final var first = sequence.reserve(blockSize);
+            block = new Block(first, first + blockSize);
+        }
+    }
+
+    private static final class Block {
+
+        private final AtomicLong next;
+        private final long end;
+
+        Block(long first, long end) {
+            this.next = new AtomicLong(first);
+            this.end = end;
+        }
+    }
+}
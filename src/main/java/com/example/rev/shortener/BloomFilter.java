@@ -0,0 +1,92 @@
+package com.example.rev.shortener;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/*
+    Blocked Bloom filter: all bits of a key live in one 512-bit block, so a lookup touches a single cache line.
+    The block is picked by the high half of the hash, bit positions inside it come from double hashing
+    of the remixed hash. Blocks skew the fill a little, so the filter gets BLOCK_OVERHEAD more bits than
+    the textbook -n * ln(p) / ln(2)^2 to keep the false positive rate at the requested one.
+    Lock-free: bits are only ever set, with a CAS, and readers need no synchronization.
+ */
+public class BloomFilter {
+
+    private static final int BLOCK_LONGS = 8;
+    private static final int BLOCK_BITS = BLOCK_LONGS * Long.SIZE;
+    private static final int MAX_HASH_FUNCTIONS = 16;
+    private static final double BLOCK_OVERHEAD = 1.2;
+
+    private final AtomicLongArray bits;
+    private final long blocks;
+    private final int hashFunctions;
+
+    public BloomFilter(long expectedInsertions, double falsePositiveRate) {
+        if (expectedInsertions <= 0 || falsePositiveRate <= 0 || falsePositiveRate >= 1) {
+            throw new IllegalArgumentException("Expected insertions must be positive and rate must be in (0, 1)");
+        }
+        final var bitsPerKey = -Math.log(falsePositiveRate) / (Math.log(2) * Math.log(2));
+        final var totalBits = Math.ceil(expectedInsertions * bitsPerKey * BLOCK_OVERHEAD);
+        final var blockCount = Math.max(1, (long) Math.ceil(totalBits / BLOCK_BITS));
+        if (blockCount * BLOCK_LONGS > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Filter is too large");
+        }
+        this.bits = new AtomicLongArray((int) (blockCount * BLOCK_LONGS));
+        this.blocks = blockCount;
+        this.hashFunctions = (int) Math.max(1, Math.min(MAX_HASH_FUNCTIONS, Math.round(bitsPerKey * Math.log(2))));
+    }
+
+    public void put(CharSequence value) {
+        put(Hashing.hash(value));
+    }
+
+    /**
+     * False means the value was definitely never put, true means it probably was.
+     */
+    public boolean mightContain(CharSequence value) {
+        return mightContain(Hashing.hash(value));
+    }
+
+    public void put(long hash) {
+        final var base = block(hash);
+        final var mixed = Hashing.mix(hash);
+        final var first = (int) mixed;
+        final var step = (int) (mixed >>> 32) | 1;
+        for (int i = 0; i < hashFunctions; i++) {
+            final var bit = (first + i * step) & (BLOCK_BITS - 1);
+            final var index = base + (bit >>> 6);
+            final var mask = 1L << bit;
+            if ((bits.get(index) & mask) == 0) {
+                bits.accumulateAndGet(index, mask, (current, added) -> current | added);
+            }
+        }
+    }
+
+    public boolean mightContain(long hash) {
+        final var base = block(hash);
+        final var mixed = Hashing.mix(hash);
+        final var first = (int) mixed;
+        final var step = (int) (mixed >>> 32) | 1;
+        for (int i = 0; i < hashFunctions; i++) {
+            final var bit = (first + i * step) & (BLOCK_BITS - 1);
+            if ((bits.get(base + (bit >>> 6)) & (1L << bit)) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    public long bitSize() {
+        return (long) bits.length() * Long.SIZE;
+    }
+
+    public int hashFunctions() {
+        return hashFunctions;
+    }
+
+    /*
+        Multiply-shift maps the high half of the hash onto [0, blocks) without a division.
+     */
+    private int block(long hash) {
+        return (int) (((hash >>> 32) * blocks) >>> 32) * BLOCK_LONGS;
+    }
+}
@@ -0,0 +1,163 @@
+package com.example.rev.shortener;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+import java.util.function.ObjLongConsumer;
+import java.util.function.Supplier;
+
+/*
+    Answers lookups of codes that were never issued without touching the store behind it.
+    Every code goes into a Bloom filter before its mapping is published, so the filter has no false negatives;
+    removed codes stay in it and only cost a lookup until the next rebuild().
+ */
+public class BloomFilteredUrlStore implements UrlStore {
+
+    private final UrlStore delegate;
+    private final long expectedInsertions;
+    private final double falsePositiveRate;
+    private final LongAdder rejected;
+    private volatile BloomFilter filter;
+    // filter being filled by rebuild(), new codes go into both
+    private volatile BloomFilter building;
+
+    /**
+     * The filter is built from the codes the store already has, e.g. after it was loaded from disk.
+     */
+    public BloomFilteredUrlStore(UrlStore delegate, long expectedInsertions, double falsePositiveRate) {
+        if (Objects.isNull(delegate)) {
+            throw new IllegalArgumentException("Delegate must be not null");
+        }
+        this.delegate = delegate;
+        this.expectedInsertions = expectedInsertions;
+        this.falsePositiveRate = falsePositiveRate;
+        this.rejected = new LongAdder();
+        this.filter = new BloomFilter(expectedInsertions, falsePositiveRate);
+        rebuild();
+    }
+
+    @Override
+    public String getOrCreate(String url, Supplier<String> codes) {
+        return getOrCreate(url, codes, 0);
+    }
+
+    @Override
+    public String getOrCreate(String url, Supplier<String> codes, long expiresAtMillis) {
+        final var code = delegate.getOrCreate(url, () -> {
+            final var created = codes.get();
+            add(created);
+            return created;
+        }, expiresAtMillis);
+        // covers a rebuild that started after the code was added but listed the store before it was published
+        add(code);
+        return code;
+    }
+
+    @Override
+    public List<String> getOrCreateAll(List<String> urls, Supplier<String> codes) {
+        final var result = delegate.getOrCreateAll(urls, () -> {
+            final var created = codes.get();
+            add(created);
+            return created;
+        });
+        result.forEach(this::add);
+        return result;
+    }
+
+    @Override
+    public String findOriginal(String code) {
+        if (code == null || !filter.mightContain(code)) {
+            rejected.increment();
+            return null;
+        }
+        return delegate.findOriginal(code);
+    }
+
+    @Override
+    public List<String> findOriginals(List<String> codes) {
+        final var current = filter;
+        final var passed = new boolean[codes.size()];
+        final var candidates = new ArrayList<String>(codes.size());
+        for (int i = 0; i < passed.length; i++) {
+            final var code = codes.get(i);
+            passed[i] = code != null && current.mightContain(code);
+            if (passed[i]) {
+                candidates.add(code);
+            }
+        }
+        rejected.add(passed.length - candidates.size());
+        final var found = candidates.isEmpty() ? List.<String>of() : delegate.findOriginals(candidates);
+        final var result = new ArrayList<String>(passed.length);
+        var next = 0;
+        for (final var candidate : passed) {
+            result.add(candidate ? found.get(next++) : null);
+        }
+        return result;
+    }
+
+    @Override
+    public String findCode(String url) {
+        return delegate.findCode(url);
+    }
+
+    @Override
+    public boolean remove(String code) {
+        return delegate.remove(code);
+    }
+
+    @Override
+    public void forEachCode(Consumer<String> action) {
+        delegate.forEachCode(action);
+    }
+
+    @Override
+    public boolean persistsDeadlines() {
+        return delegate.persistsDeadlines();
+    }
+
+    @Override
+    public long deadline(String code) {
+        return delegate.deadline(code);
+    }
+
+    @Override
+    public void forEachDeadline(long fromMillis, long untilMillis, ObjLongConsumer<String> action) {
+        delegate.forEachDeadline(fromMillis, untilMillis, action);
+    }
+
+    /**
+     * Builds a fresh filter from the codes in the store and swaps it in, dropping bits of removed codes.
+     * Sized for at least the current number of codes. Lookups keep using the old filter meanwhile.
+     */
+    public synchronized void rebuild() {
+        final var count = new long[1];
+        delegate.forEachCode(code -> count[0]++);
+        final var rebuilt = new BloomFilter(Math.max(expectedInsertions, count[0]), falsePositiveRate);
+        building = rebuilt;
+        delegate.forEachCode(rebuilt::put);
+        filter = rebuilt;
+        building = null;
+    }
+
+    /**
+     * Lookups answered by the filter alone.
+     */
+    public long rejected() {
+        return rejected.sum();
+    }
+
+    /*
+        building is read before filter: if it is null, either the rebuild hasn't listed the store yet
+        and will see the code there, or it is over and filter is already the rebuilt one.
+     */
+    private void add(String code) {
+        final var hash = Hashing.hash(code);
+        final var inProgress = building;
+        if (inProgress != null) {
+            inProgress.put(hash);
+        }
+        filter.put(hash);
+    }
+}
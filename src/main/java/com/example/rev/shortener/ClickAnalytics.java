@@ -0,0 +1,266 @@
+package com.example.rev.shortener;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.PriorityQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/*
+    Click counters of short links.
+    The redirect path only bumps a striped LongAdder of the code, it never takes a lock or writes a shared line
+    that other threads write too. A single aggregator pass periodically reads every counter, takes the difference
+    from the sum it saw last time and adds it to the bucket of the current minute; closed minutes are handed
+    to the sink. A click lands in the minute of the pass that collected it, at most one interval late.
+    Counters of links not clicked for idleAfter are dropped, so top() covers recently clicked links only; their clicks
+    were reported to the sink already. A click may still land in a counter right after it was dropped, so dropped
+    counters are collected on later passes too, until one finds them quiet: late clicks of an idle link move to
+    its new counter, those of a forgotten code go straight to the sink.
+    While the sink fails closed minutes are kept for a retry, up to maxPendingBuckets, then the oldest are dropped
+    and counted.
+ */
+public class ClickAnalytics {
+
+    private static final long MINUTE_MILLIS = 60_000;
+    private static final Duration DEFAULT_IDLE_AFTER = Duration.ofHours(1);
+    private static final int DEFAULT_MAX_PENDING_BUCKETS = 1 << 20;
+    private static final long NEVER = Long.MIN_VALUE;
+
+    private final ConcurrentHashMap<String, Counter> counters;
+    private final ClickSink sink;
+    private final Clock clock;
+    private final LongAdder sinkFailures;
+    private final LongAdder droppedBuckets;
+    private final long idleAfterMillis;
+    private final int maxPendingBuckets;
+    // touched by the aggregator only
+    private final Map<String, Long> openMinute;
+    private final List<ClickBucket> pending;
+    // counters dropped from the map that may still get a click
+    private final ConcurrentLinkedQueue<Counter> retired;
+    private long openMinuteStart;
+
+    @FunctionalInterface
+    public interface ClickSink {
+        void accept(List<ClickBucket> buckets);
+    }
+
+    public record ClickBucket(String code, long minuteStartMillis, long clicks) {}
+
+    public record LinkClicks(String code, long clicks) {}
+
+    public ClickAnalytics(ClickSink sink) {
+        this(sink, DEFAULT_IDLE_AFTER, DEFAULT_MAX_PENDING_BUCKETS, Clock.systemUTC());
+    }
+
+    public ClickAnalytics(ClickSink sink, Duration idleAfter, int maxPendingBuckets) {
+        this(sink, idleAfter, maxPendingBuckets, Clock.systemUTC());
+    }
+
+    ClickAnalytics(ClickSink sink, Clock clock) {
+        this(sink, DEFAULT_IDLE_AFTER, DEFAULT_MAX_PENDING_BUCKETS, clock);
+    }
+
+    ClickAnalytics(ClickSink sink, Duration idleAfter, int maxPendingBuckets, Clock clock) {
+        if (Objects.isNull(sink) || Objects.isNull(idleAfter)) {
+            throw new IllegalArgumentException("Sink and idle interval must be not null");
+        }
+        if (idleAfter.isNegative() || idleAfter.isZero() || maxPendingBuckets <= 0) {
+            throw new IllegalArgumentException("Idle interval and max pending buckets must be positive");
+        }
+        this.counters = new ConcurrentHashMap<>();
+        this.sink = sink;
+        this.clock = clock;
+        this.sinkFailures = new LongAdder();
+        this.droppedBuckets = new LongAdder();
+        this.idleAfterMillis = idleAfter.toMillis();
+        this.maxPendingBuckets = maxPendingBuckets;
+        this.openMinute = new HashMap<>();
+        this.pending = new ArrayList<>();
+        this.retired = new ConcurrentLinkedQueue<>();
+        this.openMinuteStart = minuteOf(clock.millis());
+    }
+
+    /**
+     * The hot path: a map lookup and a striped increment, the counter is created on the first click only.
+     */
+    public void record(String code) {
+        counter(code).click();
+    }
+
+    /**
+     * Clicks recorded so far, including the ones not aggregated yet.
+     */
+    public long clicks(String code) {
+        final var counter = counters.get(code);
+        return counter == null ? 0 : counter.clicks.sum();
+    }
+
+    /**
+     * Drops the counter of a code that is about to be reused for another link,
+     * clicks not aggregated yet are still reported.
+     */
+    public void forget(String code) {
+        final var counter = counters.remove(code);
+        if (counter != null) {
+            counter.forgotten = true;
+            retired.add(counter);
+        }
+    }
+
+    /**
+     * Links with the most clicks as of the last aggregation, the most clicked first.
+     */
+    public List<LinkClicks> top(int n) {
+        if (n <= 0) {
+            throw new IllegalArgumentException("N must be more than zero");
+        }
+        final var heap = new PriorityQueue<LinkClicks>(n + 1, Comparator.comparingLong(LinkClicks::clicks));
+        counters.forEach((code, counter) -> {
+            final var clicks = counter.aggregated;
+            if (clicks == 0 || (heap.size() == n && heap.peek().clicks() >= clicks)) {
+                return;
+            }
+            heap.add(new LinkClicks(code, clicks));
+            if (heap.size() > n) {
+                heap.poll();
+            }
+        });
+        final var result = new ArrayList<>(heap);
+        result.sort(Comparator.comparingLong(LinkClicks::clicks).reversed());
+        return result;
+    }
+
+    /**
+     * One aggregation pass, passes must not overlap.
+     */
+    public synchronized void aggregate() {
+        final var now = clock.millis();
+        // the closed minute goes first, clicks collected by this pass belong to the current one
+        if (minuteOf(now) != openMinuteStart) {
+            openMinute.forEach((code, clicks) -> pending.add(new ClickBucket(code, openMinuteStart, clicks)));
+            openMinute.clear();
+            openMinuteStart = minuteOf(now);
+            if (pending.size() > maxPendingBuckets) {
+                final var excess = pending.size() - maxPendingBuckets;
+                pending.subList(0, excess).clear();
+                droppedBuckets.add(excess);
+            }
+        }
+        counters.forEach((code, counter) -> {
+            if (collect(code, counter)) {
+                counter.lastActive = now;
+            } else if (counter.lastActive == NEVER) {
+                counter.lastActive = now;
+            } else if (now - counter.lastActive >= idleAfterMillis && counters.remove(code, counter)) {
+                retired.add(counter);
+            }
+        });
+        // a record() that looked a counter up just before it was dropped increments it right after: a retired counter
+        // is collected by the passes that follow too and dropped by the first of them that finds it quiet
+        for (final var iterator = retired.iterator(); iterator.hasNext(); ) {
+            final var counter = iterator.next();
+            final var late = counter.forgotten ? collect(counter.code, counter) : moveToLive(counter);
+            if (!counter.lingering) {
+                counter.lingering = true;
+            } else if (!late) {
+                iterator.remove();
+            }
+        }
+        if (pending.isEmpty()) {
+            return;
+        }
+        try {
+            sink.accept(List.copyOf(pending));
+            pending.clear();
+        } catch (RuntimeException e) {
+            // kept for the next pass, a throwing task would also stop the scheduler from running it again
+            sinkFailures.increment();
+        }
+    }
+
+    public ScheduledFuture<?> scheduleAggregation(ScheduledExecutorService scheduler, Duration interval) {
+        final var millis = interval.toMillis();
+        return scheduler.scheduleWithFixedDelay(this::aggregate, millis, millis, TimeUnit.MILLISECONDS);
+    }
+
+    public long sinkFailures() {
+        return sinkFailures.sum();
+    }
+
+    /**
+     * Closed minutes dropped because the sink kept failing and more than maxPendingBuckets piled up.
+     */
+    public long droppedBuckets() {
+        return droppedBuckets.sum();
+    }
+
+    int trackedLinks() {
+        return counters.size();
+    }
+
+    // the lookup half of record(), the click may come any time later
+    Counter counter(String code) {
+        final var counter = counters.get(code);
+        return counter == null ? counters.computeIfAbsent(code, Counter::new) : counter;
+    }
+
+    // true if the counter had new clicks
+    private boolean collect(String code, Counter counter) {
+        final var total = counter.clicks.sum();
+        final var delta = total - counter.aggregated;
+        if (delta <= 0) {
+            return false;
+        }
+        counter.aggregated = total;
+        openMinute.merge(code, delta, Long::sum);
+        return true;
+    }
+
+    // late clicks of an idle counter go to the live one, so clicks(code) sees them and the next pass collects them
+    private boolean moveToLive(Counter counter) {
+        final var total = counter.clicks.sum();
+        final var delta = total - counter.aggregated;
+        if (delta <= 0) {
+            return false;
+        }
+        counter.aggregated = total;
+        counters.computeIfAbsent(counter.code, Counter::new).clicks.add(delta);
+        return true;
+    }
+
+    private static long minuteOf(long millis) {
+        return millis - Math.floorMod(millis, MINUTE_MILLIS);
+    }
+
+    static final class Counter {
+
+        private final String code;
+        private final LongAdder clicks = new LongAdder();
+        private volatile long aggregated;
+        // set before the counter is retired
+        private volatile boolean forgotten;
+        // aggregator only
+        private long lastActive = NEVER;
+        // collected once since it was retired
+        private boolean lingering;
+
+        Counter(String code) {
+            this.code = code;
+        }
+
+        void click() {
+            clicks.increment();
+        }
+    }
+}
@@ -0,0 +1,145 @@
+package com.example.rev.shortener;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/*
+    Generates fixed length base62 codes from unique ids, so codes never collide and need no probing.
+    Ids are scrambled with a bijection over [0, 62^length) first, consecutive ids give unrelated looking codes.
+ */
+public class CodeGenerator {
+
+    private static final long FIRST_MULTIPLIER = 0x9E3779B97F4A7C15L;
+    private static final long SECOND_MULTIPLIER = 0xC2B2AE3D27D4EB4FL;
+    private static final long SALT = 0x5DEECE66DL;
+    private static final long FIRST_INVERSE = inverse(FIRST_MULTIPLIER);
+    private static final long SECOND_INVERSE = inverse(SECOND_MULTIPLIER);
+
+    private final BlockIdAllocator allocator;
+    private final int length;
+    private final long capacity;
+    private final long mask;
+    private final int shift;
+
+    public CodeGenerator(BlockIdAllocator allocator, int length) {
+        if (allocator == null) {
+            throw new IllegalArgumentException("Allocator must be not null");
+        }
+        this.allocator = allocator;
+        this.length = length;
+        this.capacity = Base62.capacity(length);
+        final var bits = Long.SIZE - Long.numberOfLeadingZeros(capacity - 1);
+        this.mask = bits == Long.SIZE ? -1L : (1L << bits) - 1;
+        this.shift = (bits + 1) / 2;
+    }
+
+    public static CodeGenerator inMemory(int length) {
+        return new CodeGenerator(new BlockIdAllocator(IdSequence.inMemory(), 1024), length);
+    }
+
+    public String next() {
+        return encode(allocator.next());
+    }
+
+    /**
+     * Reserves ids for {@code count} codes at once. The batch falls back to {@link #next()} when it runs out,
+     * closing it gives the ids it didn't hand out back to the allocator.
+     */
+    public Batch batch(int count) {
+        return new Batch(allocator.reserve(count), count);
+    }
+
+    public String encode(long id) {
+        if (id < 0 || id >= capacity) {
+            throw new IllegalStateException("Code space of length " + length + " is exhausted");
+        }
+        return Base62.encode(scramble(id), length);
+    }
+
+    /**
+     * Id the code was generated from or -1 when the code is not one of this generator's codes.
+     */
+    public long decode(String code) {
+        final var value = code == null || code.length() != length ? -1 : Base62.decode(code);
+        if (value < 0 || value >= capacity) {
+            return -1;
+        }
+        return unscramble(value);
+    }
+
+    /**
+     * Gives the id of a code that is no longer mapped back to the allocator, so the code is issued again.
+     */
+    public void recycle(String code) {
+        final var id = decode(code);
+        if (id < 0) {
+            throw new IllegalArgumentException("Invalid code: " + code);
+        }
+        allocator.release(id);
+    }
+
+    public int length() {
+        return length;
+    }
+
+    public final class Batch implements Supplier<String>, AutoCloseable {
+
+        private final AtomicLong next;
+        private final long end;
+
+        private Batch(long first, int count) {
+            this.next = new AtomicLong(first);
+            this.end = first + count;
+        }
+
+        @Override
+        public String get() {
+            final var id = next.getAndIncrement();
+            return id < end ? encode(id) : CodeGenerator.this.next();
+        }
+
+        @Override
+        public void close() {
+            for (var id = next.getAndSet(end); id < end; id++) {
+                allocator.release(id);
+            }
+        }
+    }
+
+    /*
+        Xor with a constant, multiply by odd constants and xor-shift are bijections modulo 2^bits,
+        values landing outside of [0, capacity) are permuted again (cycle walking).
+     */
+    private long scramble(long value) {
+        do {
+            value = ((value ^ SALT) * FIRST_MULTIPLIER) & mask;
+            value ^= value >>> shift;
+            value = (value * SECOND_MULTIPLIER) & mask;
+        } while (value >= capacity);
+        return value;
+    }
+
+    /*
+        Steps of scramble in reverse: the xor-shift undoes itself because 2 * shift >= bits,
+        the multiplications are undone by the inverses of the multipliers modulo 2^64.
+     */
+    private long unscramble(long value) {
+        do {
+            value = (value * SECOND_INVERSE) & mask;
+            value ^= value >>> shift;
+            value = ((value * FIRST_INVERSE) ^ SALT) & mask;
+        } while (value >= capacity);
+        return value;
+    }
+
+    /*
+        Newton iteration, every step doubles the number of correct low bits of the inverse of an odd number.
+     */
+    private static long inverse(long odd) {
+        var inverse = odd;
+        for (int i = 0; i < 5; i++) {
+            inverse *= 2 - odd * inverse;
+        }
+        return inverse;
+    }
+}
@@ -0,0 +1,70 @@
+package com.example.rev.shortener;
+
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+/*
+    Reads are lock-free, creating a mapping locks only the hash bin of the url.
+ */
+public class ConcurrentUrlStore implements UrlStore {
+
+    private final ConcurrentHashMap<String, String> shortToOriginal;
+    private final ConcurrentHashMap<String, String> originalToShort;
+
+    public ConcurrentUrlStore() {
+        this.shortToOriginal = new ConcurrentHashMap<>();
+        this.originalToShort = new ConcurrentHashMap<>();
+    }
+
+    @Override
+    public String getOrCreate(String url, Supplier<String> codes) {
+        final var existing = originalToShort.get(url);
+        if (existing != null) {
+            return existing;
+        }
+        // the reverse mapping is published before the code is returned to anyone
+        return originalToShort.computeIfAbsent(url, key -> {
+            final var code = codes.get();
+            shortToOriginal.put(code, key);
+            return code;
+        });
+    }
+
+    /**
+     * There is no store-wide lock to batch, urls are spread over the common pool instead.
+     */
+    @Override
+    public List<String> getOrCreateAll(List<String> urls, Supplier<String> codes) {
+        return urls.parallelStream()
+                .map(url -> getOrCreate(url, codes))
+                .toList();
+    }
+
+    @Override
+    public String findOriginal(String code) {
+        return shortToOriginal.get(code);
+    }
+
+    @Override
+    public String findCode(String url) {
+        return originalToShort.get(url);
+    }
+
+    @Override
+    public boolean remove(String code) {
+        final var url = shortToOriginal.get(code);
+        if (url == null) {
+            return false;
+        }
+        // the url is unlinked first, so a concurrent getOrCreate makes a new code instead of returning this one
+        originalToShort.remove(url, code);
+        return shortToOriginal.remove(code, url);
+    }
+
+    @Override
+    public void forEachCode(Consumer<String> action) {
+        shortToOriginal.keySet().forEach(action);
+    }
+}
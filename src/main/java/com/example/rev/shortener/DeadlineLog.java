@@ -0,0 +1,181 @@
+package com.example.rev.shortener;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.LongConsumer;
+import java.util.function.LongPredicate;
+
+/*
+    Deadline-ordered side log of expiring links: (long code, long deadline) entries appended to one file
+    per slot of SLOT_MILLIS, named after the slot. Reading a time range maps only the files of its slots,
+    so a restart picks up the near-term deadlines without touching the rest.
+    Entries are never rewritten, slots that ended are deleted whole. A torn entry at the end of a file
+    (a crash in the middle of an append) is ignored and overwritten by the next append.
+    Appends and drops are serialized by the owning store, reads may run concurrently with each other.
+ */
+final class DeadlineLog implements Closeable {
+
+    static final long SLOT_MILLIS = 60 * 60 * 1000;
+    private static final String PREFIX = "deadlines-";
+    private static final String SUFFIX = ".log";
+    private static final int ENTRY_SIZE = 2 * Long.BYTES;
+    private static final int MAX_OPEN_SLOTS = 64;
+
+    @FunctionalInterface
+    interface EntryConsumer {
+        void accept(long code, long deadline);
+    }
+
+    private final Path directory;
+    // slots appended to lately, the least recently used one is closed past MAX_OPEN_SLOTS
+    private final LinkedHashMap<Long, FileChannel> open;
+    private final ByteBuffer entry;
+
+    DeadlineLog(Path directory) {
+        this.directory = directory;
+        this.open = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Long, FileChannel> eldest) {
+                if (size() <= MAX_OPEN_SLOTS) {
+                    return false;
+                }
+                closeQuietly(eldest.getValue());
+                return true;
+            }
+        };
+        this.entry = ByteBuffer.allocate(ENTRY_SIZE);
+    }
+
+    void append(long code, long deadline) {
+        try {
+            final var channel = channel(slotOf(deadline));
+            final var size = channel.size();
+            final var position = size - size % ENTRY_SIZE;
+            entry.clear();
+            entry.putLong(code).putLong(deadline).flip();
+            while (entry.hasRemaining()) {
+                channel.write(entry, position + entry.position());
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Passes entries with a deadline in [fromMillis, untilMillis), slot by slot, unordered within a slot.
+     */
+    void forEach(long fromMillis, long untilMillis, EntryConsumer action) {
+        if (fromMillis >= untilMillis) {
+            return;
+        }
+        final var first = slotOf(fromMillis);
+        final var last = slotOf(untilMillis - 1);
+        forEachSlot(slot -> slot >= first && slot <= last, slot -> {
+            final var buffer = map(slot);
+            for (int offset = 0; offset + ENTRY_SIZE <= buffer.limit(); offset += ENTRY_SIZE) {
+                final var deadline = buffer.getLong(offset + Long.BYTES);
+                if (deadline >= fromMillis && deadline < untilMillis) {
+                    action.accept(buffer.getLong(offset), deadline);
+                }
+            }
+        });
+    }
+
+    /**
+     * Deletes the slots that end at or before {@code millis}.
+     */
+    void dropBefore(long millis) {
+        final var limit = slotOf(millis);
+        forEachSlot(slot -> slot < limit, slot -> {
+            final var channel = open.remove(slot);
+            if (channel != null) {
+                closeQuietly(channel);
+            }
+            try {
+                Files.deleteIfExists(path(slot));
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+    }
+
+    void force() {
+        try {
+            for (final var channel : open.values()) {
+                channel.force(false);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Override
+    public void close() {
+        force();
+        open.values().forEach(DeadlineLog::closeQuietly);
+        open.clear();
+    }
+
+    private void forEachSlot(LongPredicate filter, LongConsumer action) {
+        final long[] slots;
+        try (var files = Files.list(directory)) {
+            slots = files.map(path -> path.getFileName().toString())
+                    .filter(name -> name.startsWith(PREFIX) && name.endsWith(SUFFIX))
+                    .mapToLong(name -> Long.parseLong(name.substring(PREFIX.length(), name.length() - SUFFIX.length())))
+                    .filter(filter)
+                    .sorted()
+                    .toArray();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        for (final var slot : slots) {
+            action.accept(slot);
+        }
+    }
+
+    private FileChannel channel(long slot) throws IOException {
+        var channel = open.get(slot);
+        if (channel == null) {
+            channel = FileChannel.open(path(slot), StandardOpenOption.CREATE, StandardOpenOption.READ,
+                    StandardOpenOption.WRITE);
+            open.put(slot, channel);
+        }
+        return channel;
+    }
+
+    private ByteBuffer map(long slot) {
+        try (var channel = FileChannel.open(path(slot), StandardOpenOption.READ)) {
+            final var size = channel.size() - channel.size() % ENTRY_SIZE;
+            return channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+        } catch (NoSuchFileException e) {
+            return ByteBuffer.allocate(0);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private Path path(long slot) {
+        return directory.resolve(PREFIX + slot + SUFFIX);
+    }
+
+    private static long slotOf(long millis) {
+        return Math.floorDiv(millis, SLOT_MILLIS);
+    }
+
+    private static void closeQuietly(FileChannel channel) {
+        try {
+            channel.close();
+        } catch (IOException e) {
+            // the written entries are in the page cache already, closing loses none of them
+        }
+    }
+}
@@ -0,0 +1,72 @@
+package com.example.rev.shortener;
+
+/*
+    Count-min sketch of 4-bit counters, sixteen counters packed per long.
+    Every key is counted in DEPTH rows, its estimate is the minimum of them.
+    After sampleSize increments all counters are halved, so old popularity fades away.
+    Not thread-safe, callers guard it.
+ */
+final class FrequencySketch {
+
+    private static final int DEPTH = 4;
+    private static final long[] SEEDS = {
+            0xc3a5c85c97cb3127L, 0xb492b66fbe98f273L, 0x9ae16a3b2f90404fL, 0xcbf29ce484222325L
+    };
+    private static final long RESET_MASK = 0x7777777777777777L;
+    private static final int MAX_COUNT = 15;
+
+    private final long[] table;
+    private final int tableMask;
+    private final int sampleSize;
+    private int additions;
+
+    FrequencySketch(int maximumSize) {
+        final var tableSize = Integer.highestOneBit(Math.max(2, maximumSize) - 1) << 1;
+        this.table = new long[tableSize];
+        this.tableMask = tableSize - 1;
+        this.sampleSize = (int) Math.min(Integer.MAX_VALUE, 10L * Math.max(1, maximumSize));
+    }
+
+    int frequency(long hash) {
+        var frequency = MAX_COUNT;
+        for (int row = 0; row < DEPTH; row++) {
+            final var value = table[index(hash, row)];
+            final var shift = offset(hash, row) << 2;
+            frequency = Math.min(frequency, (int) ((value >>> shift) & 0xF));
+        }
+        return frequency;
+    }
+
+    void increment(long hash) {
+        var added = false;
+        for (int row = 0; row < DEPTH; row++) {
+            final var index = index(hash, row);
+            final var shift = offset(hash, row) << 2;
+            if (((table[index] >>> shift) & 0xF) < MAX_COUNT) {
+                table[index] += 1L << shift;
+                added = true;
+            }
+        }
+        if (added && ++additions == sampleSize) {
+            reset();
+        }
+    }
+
+    private void reset() {
+        for (int i = 0; i < table.length; i++) {
+            table[i] = (table[i] >>> 1) & RESET_MASK;
+        }
+        additions /= 2;
+    }
+
+    private int index(long hash, int row) {
+        return (int) Hashing.mix(hash + SEEDS[row]) & tableMask;
+    }
+
+    /*
+        Every row owns four of the sixteen counters of a long, so rows never share a counter.
+     */
+    private static int offset(long hash, int row) {
+        return (row << 2) + (int) ((hash >>> (row << 3)) & 3);
+    }
+}
@@ -0,0 +1,44 @@
+package com.example.rev.shortener;
+
+import java.nio.charset.StandardCharsets;
+
+final class Hashing {
+
+    private static final long FNV_OFFSET = 0xcbf29ce484222325L;
+    private static final long FNV_PRIME = 0x100000001b3L;
+
+    private Hashing() {
+    }
+
+    static long mix(long value) {
+        value = (value ^ (value >>> 33)) * 0xff51afd7ed558ccdL;
+        value = (value ^ (value >>> 33)) * 0xc4ceb9fe1a85ec53L;
+        return value ^ (value >>> 33);
+    }
+
+    /**
+     * 64-bit fingerprint of the bytes: FNV-1a finished with a murmur mix.
+     */
+    static long fingerprint(byte[] bytes) {
+        var hash = FNV_OFFSET;
+        for (byte b : bytes) {
+            hash = (hash ^ (b & 0xFF)) * FNV_PRIME;
+        }
+        return mix(hash ^ bytes.length);
+    }
+
+    static long fingerprint(String value) {
+        return fingerprint(value.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Same mixing as {@link #fingerprint(byte[])} over the chars, without encoding the string first.
+     */
+    static long hash(CharSequence value) {
+        var hash = FNV_OFFSET;
+        for (int i = 0; i < value.length(); i++) {
+            hash = (hash ^ value.charAt(i)) * FNV_PRIME;
+        }
+        return mix(hash ^ value.length());
+    }
+}
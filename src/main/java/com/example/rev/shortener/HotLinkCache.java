@@ -0,0 +1,332 @@
+package com.example.rev.shortener;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+import java.util.function.ObjLongConsumer;
+import java.util.function.Supplier;
+
+/*
+    Bounded read-through cache of code -> original url in front of a slower store.
+    Eviction is W-TinyLFU: new entries land in a small LRU window, an entry leaving the window
+    is admitted to the main SLRU area (probation + protected) only if the frequency sketch says
+    it is requested more often than the entry it would evict. One-off scans stay in the window
+    and never push hot links out.
+    Lookups are lock-free, the policy is updated under a lock taken with tryLock on the hit path,
+    so under contention some accesses are simply not recorded.
+    Entries older than refreshAfter are reloaded in the background while the old value is served.
+    A miss loads from the delegate without the lock; a removal counter read before the load and checked
+    under the lock keeps a mapping removed in the meantime from being cached again.
+ */
+public class HotLinkCache implements UrlStore {
+
+    private static final int WINDOW_PERCENT = 1;
+    private static final int PROTECTED_PERCENT = 80;
+
+    private final UrlStore delegate;
+    private final ConcurrentHashMap<String, Node> data;
+    private final ReentrantLock evictionLock;
+    private final FrequencySketch sketch;
+    private final Queue window;
+    private final Queue probation;
+    private final Queue protectedQueue;
+    private final int maximumSize;
+    private final int windowMaximum;
+    private final int protectedMaximum;
+    private final long refreshAfterMillis;
+    private final Executor refresher;
+    private final Clock clock;
+    private final LongAdder hits;
+    private final LongAdder misses;
+    private final LongAdder evictions;
+    private final LongAdder refreshes;
+    // bumped under the eviction lock by every invalidation
+    private volatile long removals;
+
+    public record Stats(long hits, long misses, long evictions, long refreshes) {
+
+        public double hitRate() {
+            final var requests = hits + misses;
+            return requests == 0 ? 1.0 : (double) hits / requests;
+        }
+    }
+
+    public HotLinkCache(UrlStore delegate, int maximumSize, Duration refreshAfter, Executor refresher) {
+        this(delegate, maximumSize, refreshAfter, refresher, Clock.systemUTC());
+    }
+
+    HotLinkCache(UrlStore delegate, int maximumSize, Duration refreshAfter, Executor refresher, Clock clock) {
+        if (Objects.isNull(delegate) || Objects.isNull(refresher) || Objects.isNull(refreshAfter)) {
+            throw new IllegalArgumentException("Delegate, refresh interval and refresher must be not null");
+        }
+        if (maximumSize <= 0 || refreshAfter.isNegative() || refreshAfter.isZero()) {
+            throw new IllegalArgumentException("Maximum size and refresh interval must be positive");
+        }
+        this.delegate = delegate;
+        this.data = new ConcurrentHashMap<>();
+        this.evictionLock = new ReentrantLock();
+        this.sketch = new FrequencySketch(maximumSize);
+        this.window = new Queue();
+        this.probation = new Queue();
+        this.protectedQueue = new Queue();
+        this.maximumSize = maximumSize;
+        this.windowMaximum = Math.max(1, maximumSize * WINDOW_PERCENT / 100);
+        this.protectedMaximum = (maximumSize - windowMaximum) * PROTECTED_PERCENT / 100;
+        this.refreshAfterMillis = refreshAfter.toMillis();
+        this.refresher = refresher;
+        this.clock = clock;
+        this.hits = new LongAdder();
+        this.misses = new LongAdder();
+        this.evictions = new LongAdder();
+        this.refreshes = new LongAdder();
+    }
+
+    @Override
+    public String getOrCreate(String url, Supplier<String> codes) {
+        return delegate.getOrCreate(url, codes);
+    }
+
+    @Override
+    public String getOrCreate(String url, Supplier<String> codes, long expiresAtMillis) {
+        return delegate.getOrCreate(url, codes, expiresAtMillis);
+    }
+
+    @Override
+    public String findOriginal(String code) {
+        final var node = data.get(code);
+        if (node != null) {
+            hits.increment();
+            if (evictionLock.tryLock()) {
+                try {
+                    onAccess(node);
+                } finally {
+                    evictionLock.unlock();
+                }
+            }
+            final var value = node.value;
+            refreshIfStale(node);
+            return value;
+        }
+        misses.increment();
+        final var generation = removals;
+        final var original = delegate.findOriginal(code);
+        evictionLock.lock();
+        try {
+            final var hash = hash(code);
+            sketch.increment(hash);
+            if (original != null && generation == removals && !data.containsKey(code)) {
+                final var added = new Node(code, hash, original, clock.millis());
+                data.put(code, added);
+                onInsert(added);
+            }
+        } finally {
+            evictionLock.unlock();
+        }
+        return original;
+    }
+
+    @Override
+    public String findCode(String url) {
+        return delegate.findCode(url);
+    }
+
+    @Override
+    public boolean remove(String code) {
+        final var removed = delegate.remove(code);
+        invalidate(code);
+        return removed;
+    }
+
+    @Override
+    public void forEachCode(Consumer<String> action) {
+        delegate.forEachCode(action);
+    }
+
+    @Override
+    public boolean persistsDeadlines() {
+        return delegate.persistsDeadlines();
+    }
+
+    @Override
+    public long deadline(String code) {
+        return delegate.deadline(code);
+    }
+
+    @Override
+    public void forEachDeadline(long fromMillis, long untilMillis, ObjLongConsumer<String> action) {
+        delegate.forEachDeadline(fromMillis, untilMillis, action);
+    }
+
+    /**
+     * Drops the cached mapping, e.g. after the code was deleted from the underlying store.
+     */
+    public void invalidate(String code) {
+        evictionLock.lock();
+        try {
+            removals++;
+            final var node = data.remove(code);
+            if (node != null) {
+                unlink(node);
+            }
+        } finally {
+            evictionLock.unlock();
+        }
+    }
+
+    public int estimatedSize() {
+        return data.size();
+    }
+
+    public Stats stats() {
+        return new Stats(hits.sum(), misses.sum(), evictions.sum(), refreshes.sum());
+    }
+
+    private void refreshIfStale(Node node) {
+        if (clock.millis() - node.loadedAt < refreshAfterMillis || !node.refreshing.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            refresher.execute(() -> {
+                try {
+                    final var original = delegate.findOriginal(node.key);
+                    if (original == null) {
+                        invalidate(node.key);
+                    } else {
+                        node.value = original;
+                        node.loadedAt = clock.millis();
+                    }
+                    refreshes.increment();
+                } finally {
+                    node.refreshing.set(false);
+                }
+            });
+        } catch (RuntimeException e) {
+            // a rejected refresh is retried on a later hit, the stale value is still served
+            node.refreshing.set(false);
+        }
+    }
+
+    private void onAccess(Node node) {
+        if (node.queue == null) {
+            // evicted or invalidated concurrently with the lookup
+            return;
+        }
+        sketch.increment(node.hash);
+        if (node.queue == probation) {
+            probation.remove(node);
+            protectedQueue.add(node);
+            if (protectedQueue.size > protectedMaximum) {
+                probation.add(protectedQueue.remove(protectedQueue.head));
+            }
+        } else {
+            node.queue.moveToTail(node);
+        }
+    }
+
+    private void onInsert(Node node) {
+        window.add(node);
+        if (window.size <= windowMaximum) {
+            return;
+        }
+        final var candidate = window.remove(window.head);
+        probation.add(candidate);
+        if (window.size + probation.size + protectedQueue.size <= maximumSize) {
+            return;
+        }
+        final var victim = probation.head;
+        if (victim == candidate || sketch.frequency(candidate.hash) <= sketch.frequency(victim.hash)) {
+            evict(candidate);
+        } else {
+            evict(victim);
+        }
+    }
+
+    private void evict(Node node) {
+        unlink(node);
+        data.remove(node.key, node);
+        evictions.increment();
+    }
+
+    private void unlink(Node node) {
+        if (node.queue != null) {
+            node.queue.remove(node);
+        }
+    }
+
+    private static long hash(String code) {
+        return Hashing.mix(code.hashCode());
+    }
+
+    private static final class Node {
+
+        private final String key;
+        private final long hash;
+        private final AtomicBoolean refreshing;
+        private volatile String value;
+        private volatile long loadedAt;
+        private Queue queue;
+        private Node previous;
+        private Node next;
+
+        Node(String key, long hash, String value, long loadedAt) {
+            this.key = key;
+            this.hash = hash;
+            this.value = value;
+            this.loadedAt = loadedAt;
+            this.refreshing = new AtomicBoolean();
+        }
+    }
+
+    /*
+        Intrusive doubly linked list, head is the least recently used node.
+     */
+    private static final class Queue {
+
+        private Node head;
+        private Node tail;
+        private int size;
+
+        void add(Node node) {
+            node.queue = this;
+            node.previous = tail;
+            node.next = null;
+            if (tail == null) {
+                head = node;
+            } else {
+                tail.next = node;
+            }
+            tail = node;
+            size++;
+        }
+
+        Node remove(Node node) {
+            if (node.previous == null) {
+                head = node.next;
+            } else {
+                node.previous.next = node.next;
+            }
+            if (node.next == null) {
+                tail = node.previous;
+            } else {
+                node.next.previous = node.previous;
+            }
+            node.previous = null;
+            node.next = null;
+            node.queue = null;
+            size--;
+            return node;
+        }
+
+        void moveToTail(Node node) {
+            if (node != tail) {
+                add(remove(node));
+            }
+        }
+    }
+}
@@ -0,0 +1,21 @@
+package com.example.rev.shortener;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/*
+    Source of unique ids shared by all nodes (e.g. a database sequence),
+    nodes lease contiguous ranges of ids from it instead of asking for every id.
+ */
+@FunctionalInterface
+public interface IdSequence {
+
+    /**
+     * Reserves {@code count} ids and returns the first one of the range [first, first + count).
+     */
+    long reserve(int count);
+
+    static IdSequence inMemory() {
+        final var next = new AtomicLong();
+        return next::getAndAdd;
+    }
+}
@@ -0,0 +1,256 @@
+package com.example.rev.shortener;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.function.LongPredicate;
+
+/*
+    Memory-mapped open-addressing hash index: a header and TABLES tables of (long key, long value) slots
+    with linear probing. Value 0 marks an empty slot, so callers store non-zero values only.
+    Slots are mapped in pages because a single mapping can't exceed 2GB.
+ */
+final class MappedIndex implements Closeable {
+
+    static final int TABLES = 2;
+    private static final int MAGIC = 0x55524C49;
+    private static final int HEADER_SIZE = 64;
+    private static final int SLOT_SIZE = 16;
+    private static final int PAGE_BITS = 26;
+    private static final long PAGE_SLOTS = 1L << PAGE_BITS;
+
+    private static final int MAGIC_OFFSET = 0;
+    private static final int CAPACITY_OFFSET = 8;
+    private static final int FIRST_SEGMENT_OFFSET = 16;
+    private static final int COMMIT_SEGMENT_OFFSET = 20;
+    private static final int COMMIT_OFFSET_OFFSET = 24;
+    private static final int NEXT_ID_OFFSET = 32;
+    private static final int SIZES_OFFSET = 40;
+
+    private final FileChannel channel;
+    private final MappedByteBuffer header;
+    private final MappedByteBuffer[] pages;
+    private final long capacity;
+    private final long mask;
+
+    private MappedIndex(FileChannel channel, long capacity) throws IOException {
+        this.channel = channel;
+        this.capacity = capacity;
+        this.mask = capacity - 1;
+        this.header = channel.map(FileChannel.MapMode.READ_WRITE, 0, HEADER_SIZE);
+        final var slots = capacity * TABLES;
+        final var pageCount = (int) ((slots + PAGE_SLOTS - 1) >>> PAGE_BITS);
+        this.pages = new MappedByteBuffer[pageCount];
+        for (int i = 0; i < pageCount; i++) {
+            final var pageSlots = Math.min(PAGE_SLOTS, slots - i * PAGE_SLOTS);
+            pages[i] = channel.map(FileChannel.MapMode.READ_WRITE,
+                    HEADER_SIZE + i * PAGE_SLOTS * SLOT_SIZE, pageSlots * SLOT_SIZE);
+        }
+    }
+
+    /**
+     * Maps an existing index file or creates an empty one with the given capacity (a power of two) per table.
+     */
+    static MappedIndex open(Path path, long capacity) {
+        try {
+            final var exists = Files.exists(path) && Files.size(path) >= HEADER_SIZE;
+            final var channel = FileChannel.open(path,
+                    StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            if (exists) {
+                final var probe = channel.map(FileChannel.MapMode.READ_ONLY, 0, HEADER_SIZE);
+                if (probe.getInt(MAGIC_OFFSET) != MAGIC) {
+                    channel.close();
+                    throw new IllegalStateException("Not an index file: " + path);
+                }
+                return new MappedIndex(channel, probe.getLong(CAPACITY_OFFSET));
+            }
+            if (Long.bitCount(capacity) != 1) {
+                throw new IllegalArgumentException("Capacity must be a power of two");
+            }
+            channel.truncate(0);
+            final var index = new MappedIndex(channel, capacity);
+            index.header.putLong(CAPACITY_OFFSET, capacity);
+            index.header.putInt(MAGIC_OFFSET, MAGIC);
+            return index;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    long capacity() {
+        return capacity;
+    }
+
+    long size(int table) {
+        return header.getLong(SIZES_OFFSET + table * Long.BYTES);
+    }
+
+    boolean isFull() {
+        for (int table = 0; table < TABLES; table++) {
+            if (size(table) * 4 > capacity * 3) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    int firstSegment() {
+        return header.getInt(FIRST_SEGMENT_OFFSET);
+    }
+
+    int commitSegment() {
+        return header.getInt(COMMIT_SEGMENT_OFFSET);
+    }
+
+    int commitOffset() {
+        return header.getInt(COMMIT_OFFSET_OFFSET);
+    }
+
+    long nextId() {
+        return header.getLong(NEXT_ID_OFFSET);
+    }
+
+    void setFirstSegment(int segment) {
+        header.putInt(FIRST_SEGMENT_OFFSET, segment);
+    }
+
+    void setCommit(int segment, int offset) {
+        header.putInt(COMMIT_SEGMENT_OFFSET, segment);
+        header.putInt(COMMIT_OFFSET_OFFSET, offset);
+    }
+
+    void setNextId(long nextId) {
+        header.putLong(NEXT_ID_OFFSET, nextId);
+    }
+
+    /**
+     * Returns the value of the first slot with the key accepted by {@code matches}, or 0.
+     */
+    long find(int table, long key, LongPredicate matches) {
+        var slot = Hashing.mix(key) & mask;
+        while (true) {
+            final var value = value(table, slot);
+            if (value == 0) {
+                return 0;
+            }
+            if (key(table, slot) == key && matches.test(value)) {
+                return value;
+            }
+            slot = (slot + 1) & mask;
+        }
+    }
+
+    /**
+     * Replaces the value of the slot with the key accepted by {@code matches} or inserts a new slot.
+     */
+    void put(int table, long key, long value, LongPredicate matches) {
+        var slot = Hashing.mix(key) & mask;
+        while (true) {
+            final var current = value(table, slot);
+            if (current == 0) {
+                setKey(table, slot, key);
+                setValue(table, slot, value);
+                header.putLong(SIZES_OFFSET + table * Long.BYTES, size(table) + 1);
+                return;
+            }
+            if (key(table, slot) == key && matches.test(current)) {
+                setValue(table, slot, value);
+                return;
+            }
+            slot = (slot + 1) & mask;
+        }
+    }
+
+    /**
+     * Removes the slot with the key accepted by {@code matches}, following slots are shifted back
+     * so probing never needs tombstones.
+     */
+    boolean remove(int table, long key, LongPredicate matches) {
+        var slot = Hashing.mix(key) & mask;
+        while (true) {
+            final var current = value(table, slot);
+            if (current == 0) {
+                return false;
+            }
+            if (key(table, slot) == key && matches.test(current)) {
+                break;
+            }
+            slot = (slot + 1) & mask;
+        }
+        var hole = slot;
+        var next = (hole + 1) & mask;
+        while (value(table, next) != 0) {
+            final var home = Hashing.mix(key(table, next)) & mask;
+            // move the entry back when the hole lies on its probe path
+            if (((next - home) & mask) >= ((next - hole) & mask)) {
+                setKey(table, hole, key(table, next));
+                setValue(table, hole, value(table, next));
+                hole = next;
+            }
+            next = (next + 1) & mask;
+        }
+        setKey(table, hole, 0);
+        setValue(table, hole, 0);
+        header.putLong(SIZES_OFFSET + table * Long.BYTES, size(table) - 1);
+        return true;
+    }
+
+    interface SlotConsumer {
+        void accept(long key, long value);
+    }
+
+    void forEach(int table, SlotConsumer consumer) {
+        for (long slot = 0; slot < capacity; slot++) {
+            final var value = value(table, slot);
+            if (value != 0) {
+                consumer.accept(key(table, slot), value);
+            }
+        }
+    }
+
+    void forceHeader() {
+        header.force();
+    }
+
+    void force() {
+        header.force();
+        for (var page : pages) {
+            page.force();
+        }
+    }
+
+    @Override
+    public void close() {
+        try {
+            force();
+            channel.close();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private long key(int table, long slot) {
+        final var global = table * capacity + slot;
+        return pages[(int) (global >>> PAGE_BITS)].getLong((int) ((global & (PAGE_SLOTS - 1)) * SLOT_SIZE));
+    }
+
+    private long value(int table, long slot) {
+        final var global = table * capacity + slot;
+        return pages[(int) (global >>> PAGE_BITS)].getLong((int) ((global & (PAGE_SLOTS - 1)) * SLOT_SIZE) + Long.BYTES);
+    }
+
+    private void setKey(int table, long slot, long key) {
+        final var global = table * capacity + slot;
+        pages[(int) (global >>> PAGE_BITS)].putLong((int) ((global & (PAGE_SLOTS - 1)) * SLOT_SIZE), key);
+    }
+
+    private void setValue(int table, long slot, long value) {
+        final var global = table * capacity + slot;
+        pages[(int) (global >>> PAGE_BITS)].putLong((int) ((global & (PAGE_SLOTS - 1)) * SLOT_SIZE) + Long.BYTES, value);
+    }
+}
@@ -0,0 +1,573 @@
+package com.example.rev.shortener;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Clock;
+import java.util.Arrays;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+import java.util.function.ObjLongConsumer;
+import java.util.function.Supplier;
+import java.util.stream.IntStream;
+
+/*
+    Persistent url store.
+    Mappings are appended as (code, expiresAt, url) records to memory-mapped segment files,
+    a memory-mapped index (see MappedIndex) keeps code -> record and url fingerprint -> record tables.
+    On startup the index is mapped as is and only records appended after its last commit are replayed,
+    so the store comes up without rebuilding anything in the heap.
+    Deleted and expired records stay in the segments until compact() rewrites the live ones.
+    Deadlines are also appended to a DeadlineLog bucketed by time, so expiry is picked up again after a restart
+    by reading only the upcoming slots; compact() drops the slots that have passed.
+
+    Record layout: int length | byte type | long code | long expiresAt | int urlLength | url bytes,
+    the length is written last, a zero length marks the end of the data in a segment.
+ */
+public class MappedUrlStore implements UrlStore, IdSequence, Closeable {
+
+    public static final int DEFAULT_SEGMENT_SIZE = 64 << 20;
+    private static final long INITIAL_CAPACITY = 1 << 16;
+    private static final int MAX_URL_BYTES = 16 << 10;
+    private static final String INDEX_FILE = "index.bin";
+    private static final String SEGMENT_PREFIX = "segment-";
+    private static final String SEGMENT_SUFFIX = ".log";
+
+    private static final int CODES = 0;
+    private static final int URLS = 1;
+    private static final byte PUT = 1;
+    private static final byte DELETE = 2;
+    private static final int RECORD_HEADER = Integer.BYTES + 1 + Long.BYTES + Long.BYTES + Integer.BYTES;
+    private static final int TYPE_OFFSET = Integer.BYTES;
+    private static final int CODE_OFFSET = TYPE_OFFSET + 1;
+    private static final int EXPIRES_OFFSET = CODE_OFFSET + Long.BYTES;
+    private static final int URL_LENGTH_OFFSET = EXPIRES_OFFSET + Long.BYTES;
+
+    private final Path directory;
+    private final int codeLength;
+    private final int segmentSize;
+    private final Clock clock;
+    private final ReentrantReadWriteLock lock;
+    private final Map<Integer, MappedByteBuffer> segments;
+    private final DeadlineLog deadlines;
+    private MappedIndex index;
+    private int writeSegment;
+    private int writeOffset;
+
+    private MappedUrlStore(Path directory, int codeLength, int segmentSize, Clock clock) {
+        this.directory = directory;
+        this.codeLength = codeLength;
+        this.segmentSize = segmentSize;
+        this.clock = clock;
+        this.lock = new ReentrantReadWriteLock();
+        this.segments = new HashMap<>();
+        this.deadlines = new DeadlineLog(directory);
+    }
+
+    public static MappedUrlStore open(Path directory, int codeLength) {
+        return open(directory, codeLength, DEFAULT_SEGMENT_SIZE, Clock.systemUTC());
+    }
+
+    static MappedUrlStore open(Path directory, int codeLength, int segmentSize, Clock clock) {
+        if (Objects.isNull(directory) || segmentSize <= RECORD_HEADER + MAX_URL_BYTES) {
+            throw new IllegalArgumentException("Directory must be not null and segment must fit the longest url");
+        }
+        Base62.capacity(codeLength);
+        try {
+            Files.createDirectories(directory);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        final var store = new MappedUrlStore(directory, codeLength, segmentSize, clock);
+        store.load();
+        return store;
+    }
+
+    @Override
+    public String getOrCreate(String url, Supplier<String> codes) {
+        return getOrCreate(url, codes, 0);
+    }
+
+    @Override
+    public String getOrCreate(String url, Supplier<String> codes, long expiresAtMillis) {
+        final var bytes = encode(url);
+        final var fingerprint = Hashing.fingerprint(bytes);
+        lock.readLock().lock();
+        try {
+            final var existing = findLive(fingerprint, bytes);
+            if (existing != 0) {
+                return Base62.encode(codeAt(existing - 1), codeLength);
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        lock.writeLock().lock();
+        try {
+            final var code = create(bytes, fingerprint, codes, expiresAtMillis);
+            commit();
+            return code;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Urls are encoded and fingerprinted in parallel, then all of them are appended under one write lock
+     * and committed once.
+     */
+    @Override
+    public List<String> getOrCreateAll(List<String> urls, Supplier<String> codes) {
+        final var bytes = urls.parallelStream().map(MappedUrlStore::encode).toList();
+        final var fingerprints = IntStream.range(0, bytes.size()).parallel()
+                .mapToLong(i -> Hashing.fingerprint(bytes.get(i)))
+                .toArray();
+        final var result = new ArrayList<String>(bytes.size());
+        lock.writeLock().lock();
+        try {
+            try {
+                for (int i = 0; i < bytes.size(); i++) {
+                    result.add(create(bytes.get(i), fingerprints[i], codes, 0));
+                }
+            } finally {
+                commit();
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+        return result;
+    }
+
+    @Override
+    public String findOriginal(String code) {
+        final var value = Base62.decode(code);
+        if (value < 0 || code.length() != codeLength) {
+            return null;
+        }
+        lock.readLock().lock();
+        try {
+            final var position = index.find(CODES, value, any -> true);
+            if (position == 0 || isExpired(position - 1)) {
+                return null;
+            }
+            return urlAt(position - 1);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public List<String> findOriginals(List<String> codes) {
+        final var result = new ArrayList<String>(codes.size());
+        lock.readLock().lock();
+        try {
+            for (final var code : codes) {
+                final var value = Base62.decode(code);
+                final var position = value < 0 || code.length() != codeLength ? 0 : index.find(CODES, value, any -> true);
+                result.add(position == 0 || isExpired(position - 1) ? null : urlAt(position - 1));
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        return result;
+    }
+
+    @Override
+    public String findCode(String url) {
+        final var bytes = url.getBytes(StandardCharsets.UTF_8);
+        lock.readLock().lock();
+        try {
+            final var position = findLive(Hashing.fingerprint(bytes), bytes);
+            return position == 0 ? null : Base62.encode(codeAt(position - 1), codeLength);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public boolean remove(String code) {
+        final var value = Base62.decode(code);
+        if (value < 0 || code.length() != codeLength) {
+            return false;
+        }
+        lock.writeLock().lock();
+        try {
+            if (index.find(CODES, value, any -> true) == 0) {
+                return false;
+            }
+            apply(append(DELETE, value, 0, new byte[0]));
+            commit();
+            return true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Expired codes that compact() hasn't dropped yet are skipped.
+     */
+    @Override
+    public void forEachCode(Consumer<String> action) {
+        lock.readLock().lock();
+        try {
+            index.forEach(CODES, (code, position) -> {
+                if (!isExpired(position - 1)) {
+                    action.accept(Base62.encode(code, codeLength));
+                }
+            });
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public boolean persistsDeadlines() {
+        return true;
+    }
+
+    @Override
+    public long deadline(String code) {
+        final var value = Base62.decode(code);
+        if (value < 0 || code.length() != codeLength) {
+            return 0;
+        }
+        lock.readLock().lock();
+        try {
+            final var position = index.find(CODES, value, any -> true);
+            return position == 0 ? 0 : expiresAt(position - 1);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Reads the deadline log slots of the range, entries of codes removed or re-created since are skipped.
+     */
+    @Override
+    public void forEachDeadline(long fromMillis, long untilMillis, ObjLongConsumer<String> action) {
+        lock.readLock().lock();
+        try {
+            deadlines.forEach(fromMillis, untilMillis, (code, deadline) -> {
+                final var position = index.find(CODES, code, any -> true);
+                if (position != 0 && expiresAt(position - 1) == deadline) {
+                    action.accept(Base62.encode(code, codeLength), deadline);
+                }
+            });
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public long size() {
+        lock.readLock().lock();
+        try {
+            return index.size(CODES);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Ids are leased from a counter kept in the index header, so codes stay unique across restarts.
+     */
+    @Override
+    public long reserve(int count) {
+        lock.writeLock().lock();
+        try {
+            final var first = index.nextId();
+            index.setNextId(first + count);
+            index.forceHeader();
+            return first;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Rewrites live records into new segments and drops deleted and expired ones, along with deadline slots
+     * that have passed.
+     */
+    public void compact() {
+        lock.writeLock().lock();
+        try {
+            final var now = clock.millis();
+            final var oldSegments = Map.copyOf(segments);
+            final var capacity = capacityFor(index.size(CODES));
+            final var temporary = directory.resolve(INDEX_FILE + ".compact");
+            Files.deleteIfExists(temporary);
+            final var compacted = MappedIndex.open(temporary, capacity);
+            final var firstSegment = writeSegment + 1;
+            writeSegment = firstSegment - 1;
+            writeOffset = segmentSize;
+            final var source = index;
+            index = compacted;
+            source.forEach(CODES, (code, position) -> {
+                final var expiresAt = expiresAt(position - 1);
+                if (expiresAt != 0 && expiresAt <= now) {
+                    return;
+                }
+                apply(append(PUT, code, expiresAt, urlBytesAt(position - 1)));
+            });
+            compacted.setNextId(source.nextId());
+            compacted.setFirstSegment(firstSegment);
+            commit();
+            source.close();
+            compacted.close();
+            Files.move(temporary, directory.resolve(INDEX_FILE),
+                    StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            index = MappedIndex.open(directory.resolve(INDEX_FILE), capacity);
+            for (var segment : oldSegments.keySet()) {
+                segments.remove(segment);
+                Files.deleteIfExists(segmentPath(segment));
+            }
+            deadlines.dropBefore(now);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Flushes mapped segments and the index to disk.
+     */
+    public void flush() {
+        lock.writeLock().lock();
+        try {
+            segments.values().forEach(MappedByteBuffer::force);
+            deadlines.force();
+            index.force();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void close() {
+        lock.writeLock().lock();
+        try {
+            segments.values().forEach(MappedByteBuffer::force);
+            segments.clear();
+            deadlines.close();
+            index.close();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void load() {
+        index = MappedIndex.open(directory.resolve(INDEX_FILE), INITIAL_CAPACITY);
+        try (var files = Files.list(directory)) {
+            final var numbers = files.map(path -> path.getFileName().toString())
+                    .filter(name -> name.startsWith(SEGMENT_PREFIX) && name.endsWith(SEGMENT_SUFFIX))
+                    .mapToInt(name -> Integer.parseInt(
+                            name.substring(SEGMENT_PREFIX.length(), name.length() - SEGMENT_SUFFIX.length())))
+                    .sorted()
+                    .toArray();
+            for (var number : numbers) {
+                if (number < index.firstSegment()) {
+                    // left over by an interrupted compaction
+                    Files.deleteIfExists(segmentPath(number));
+                } else {
+                    segments.put(number, map(number));
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        writeSegment = index.commitSegment();
+        writeOffset = index.commitOffset();
+        if (!segments.containsKey(writeSegment)) {
+            segments.put(writeSegment, map(writeSegment));
+        }
+        replay();
+    }
+
+    /*
+        Applies records written after the last index commit.
+     */
+    private void replay() {
+        while (true) {
+            final var segment = segments.get(writeSegment);
+            final var length = writeOffset + Integer.BYTES <= segmentSize ? segment.getInt(writeOffset) : 0;
+            if (length > 0) {
+                apply(position(writeSegment, writeOffset));
+                writeOffset += length;
+            } else if (segments.containsKey(writeSegment + 1)) {
+                writeSegment++;
+                writeOffset = 0;
+            } else {
+                break;
+            }
+        }
+        commit();
+    }
+
+    private long append(byte type, long code, long expiresAt, byte[] url) {
+        final var length = RECORD_HEADER + url.length;
+        if (writeOffset + length > segmentSize) {
+            writeSegment++;
+            writeOffset = 0;
+            segments.put(writeSegment, map(writeSegment));
+        }
+        final var segment = segments.get(writeSegment);
+        segment.put(writeOffset + TYPE_OFFSET, type);
+        segment.putLong(writeOffset + CODE_OFFSET, code);
+        segment.putLong(writeOffset + EXPIRES_OFFSET, expiresAt);
+        segment.putInt(writeOffset + URL_LENGTH_OFFSET, url.length);
+        segment.put(writeOffset + RECORD_HEADER, url, 0, url.length);
+        segment.putInt(writeOffset, length);
+        final var position = position(writeSegment, writeOffset);
+        writeOffset += length;
+        return position;
+    }
+
+    private void apply(long position) {
+        final var code = codeAt(position);
+        final var previous = index.find(CODES, code, any -> true);
+        if (previous != 0) {
+            final var previousUrl = urlBytesAt(previous - 1);
+            index.remove(URLS, Hashing.fingerprint(previousUrl), value -> value == previous);
+            index.remove(CODES, code, any -> true);
+        }
+        if (typeAt(position) == PUT) {
+            final var url = urlBytesAt(position);
+            index.put(CODES, code, position + 1, any -> true);
+            index.put(URLS, Hashing.fingerprint(url), position + 1,
+                    value -> Arrays.equals(urlBytesAt(value - 1), url));
+        }
+        if (index.isFull()) {
+            grow();
+        }
+    }
+
+    private void commit() {
+        index.setCommit(writeSegment, writeOffset);
+    }
+
+    private void grow() {
+        final var capacity = index.capacity() * 2;
+        final var temporary = directory.resolve(INDEX_FILE + ".grow");
+        try {
+            Files.deleteIfExists(temporary);
+            final var grown = MappedIndex.open(temporary, capacity);
+            for (int table = 0; table < MappedIndex.TABLES; table++) {
+                final var current = table;
+                index.forEach(table, (key, value) -> grown.put(current, key, value, any -> false));
+            }
+            grown.setNextId(index.nextId());
+            grown.setFirstSegment(index.firstSegment());
+            grown.setCommit(index.commitSegment(), index.commitOffset());
+            grown.close();
+            index.close();
+            Files.move(temporary, directory.resolve(INDEX_FILE),
+                    StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            index = MappedIndex.open(directory.resolve(INDEX_FILE), capacity);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private String create(byte[] bytes, long fingerprint, Supplier<String> codes, long expiresAtMillis) {
+        final var existing = findLive(fingerprint, bytes);
+        if (existing != 0) {
+            return Base62.encode(codeAt(existing - 1), codeLength);
+        }
+        final var code = codes.get();
+        final var value = Base62.decode(code);
+        if (value < 0 || code.length() != codeLength) {
+            throw new IllegalArgumentException("Invalid code: " + code);
+        }
+        apply(append(PUT, value, expiresAtMillis, bytes));
+        if (expiresAtMillis != 0) {
+            deadlines.append(value, expiresAtMillis);
+        }
+        return code;
+    }
+
+    private static byte[] encode(String url) {
+        final var bytes = url.getBytes(StandardCharsets.UTF_8);
+        if (bytes.length > MAX_URL_BYTES) {
+            throw new IllegalArgumentException("Url is too long");
+        }
+        return bytes;
+    }
+
+    private long findLive(long fingerprint, byte[] url) {
+        final var position = index.find(URLS, fingerprint, value -> Arrays.equals(urlBytesAt(value - 1), url));
+        return position == 0 || isExpired(position - 1) ? 0 : position;
+    }
+
+    private boolean isExpired(long position) {
+        final var expiresAt = expiresAt(position);
+        return expiresAt != 0 && expiresAt <= clock.millis();
+    }
+
+    private byte typeAt(long position) {
+        return segment(position).get(offset(position) + TYPE_OFFSET);
+    }
+
+    private long codeAt(long position) {
+        return segment(position).getLong(offset(position) + CODE_OFFSET);
+    }
+
+    private long expiresAt(long position) {
+        return segment(position).getLong(offset(position) + EXPIRES_OFFSET);
+    }
+
+    private byte[] urlBytesAt(long position) {
+        final var segment = segment(position);
+        final var offset = offset(position);
+        final var bytes = new byte[segment.getInt(offset + URL_LENGTH_OFFSET)];
+        segment.get(offset + RECORD_HEADER, bytes, 0, bytes.length);
+        return bytes;
+    }
+
+    private String urlAt(long position) {
+        return new String(urlBytesAt(position), StandardCharsets.UTF_8);
+    }
+
+    private MappedByteBuffer segment(long position) {
+        return segments.get((int) (position >>> 32));
+    }
+
+    private static int offset(long position) {
+        return (int) position;
+    }
+
+    private static long position(int segment, int offset) {
+        return ((long) segment << 32) | offset;
+    }
+
+    private static long capacityFor(long size) {
+        var capacity = INITIAL_CAPACITY;
+        while (size * 4 > capacity * 3) {
+            capacity *= 2;
+        }
+        return capacity;
+    }
+
+    private Path segmentPath(int segment) {
+        return directory.resolve(String.format("%s%06d%s", SEGMENT_PREFIX, segment, SEGMENT_SUFFIX));
+    }
+
+    private MappedByteBuffer map(int segment) {
+        try (var channel = FileChannel.open(segmentPath(segment),
+                StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            return channel.map(FileChannel.MapMode.READ_WRITE, 0, segmentSize);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
@@ -0,0 +1,140 @@
+package com.example.rev.shortener;
+
+import java.nio.ByteBuffer;
+import java.util.function.LongPredicate;
+
+/*
+    Open-addressing hash table of (long key, long value) slots with linear probing in a direct buffer.
+    Value 0 marks an empty slot, so callers store non-zero values only.
+    Equal keys may occupy several slots, lookups pass a predicate to tell the right one apart.
+    Not thread-safe, callers guard it.
+ */
+final class OffHeapTable {
+
+    private static final int SLOT_SIZE = 2 * Long.BYTES;
+    private static final int MAX_CAPACITY = 1 << 26;
+
+    private ByteBuffer slots;
+    private int mask;
+    private int size;
+
+    OffHeapTable(int initialCapacity) {
+        final var capacity = Integer.highestOneBit(Math.max(2, initialCapacity) - 1) << 1;
+        if (capacity > MAX_CAPACITY) {
+            throw new IllegalArgumentException("Capacity must be at most " + MAX_CAPACITY);
+        }
+        this.slots = ByteBuffer.allocateDirect(capacity * SLOT_SIZE);
+        this.mask = capacity - 1;
+    }
+
+    /**
+     * Returns the value of the first slot with the key accepted by {@code matches} or 0 when there is none.
+     */
+    long find(long key, LongPredicate matches) {
+        var slot = slot(key);
+        while (true) {
+            final var value = value(slot);
+            if (value == 0) {
+                return 0;
+            }
+            if (key(slot) == key && matches.test(value)) {
+                return value;
+            }
+            slot = (slot + 1) & mask;
+        }
+    }
+
+    void put(long key, long value) {
+        if (value == 0) {
+            throw new IllegalArgumentException("Value must not be zero");
+        }
+        if ((size + 1L) * 4 > (mask + 1L) * 3) {
+            grow();
+        }
+        insert(key, value);
+        size++;
+    }
+
+    /**
+     * Removes the slot holding exactly this key and value, returns false when there is none.
+     */
+    boolean remove(long key, long value) {
+        var hole = slot(key);
+        while (key(hole) != key || value(hole) != value) {
+            if (value(hole) == 0) {
+                return false;
+            }
+            hole = (hole + 1) & mask;
+        }
+        // backward shift deletion: pull later slots of the probe chain into the hole, no tombstones
+        var next = (hole + 1) & mask;
+        while (value(next) != 0) {
+            final var home = slot(key(next));
+            if (((next - home) & mask) >= ((next - hole) & mask)) {
+                slots.putLong(hole * SLOT_SIZE, key(next));
+                slots.putLong(hole * SLOT_SIZE + Long.BYTES, value(next));
+                hole = next;
+            }
+            next = (next + 1) & mask;
+        }
+        slots.putLong(hole * SLOT_SIZE, 0);
+        slots.putLong(hole * SLOT_SIZE + Long.BYTES, 0);
+        size--;
+        return true;
+    }
+
+    void forEach(MappedIndex.SlotConsumer consumer) {
+        for (int slot = 0; slot <= mask; slot++) {
+            final var value = value(slot);
+            if (value != 0) {
+                consumer.accept(key(slot), value);
+            }
+        }
+    }
+
+    int size() {
+        return size;
+    }
+
+    long allocatedBytes() {
+        return slots.capacity();
+    }
+
+    private void grow() {
+        final var capacity = (mask + 1) << 1;
+        if (capacity > MAX_CAPACITY) {
+            throw new IllegalStateException("Table is full");
+        }
+        final var old = slots;
+        final var oldCapacity = mask + 1;
+        slots = ByteBuffer.allocateDirect(capacity * SLOT_SIZE);
+        mask = capacity - 1;
+        for (int i = 0; i < oldCapacity; i++) {
+            final var value = old.getLong(i * SLOT_SIZE + Long.BYTES);
+            if (value != 0) {
+                insert(old.getLong(i * SLOT_SIZE), value);
+            }
+        }
+    }
+
+    private void insert(long key, long value) {
+        var slot = slot(key);
+        while (value(slot) != 0) {
+            slot = (slot + 1) & mask;
+        }
+        slots.putLong(slot * SLOT_SIZE, key);
+        slots.putLong(slot * SLOT_SIZE + Long.BYTES, value);
+    }
+
+    private int slot(long key) {
+        return (int) Hashing.mix(key) & mask;
+    }
+
+    private long key(int slot) {
+        return slots.getLong(slot * SLOT_SIZE);
+    }
+
+    private long value(int slot) {
+        return slots.getLong(slot * SLOT_SIZE + Long.BYTES);
+    }
+}
@@ -0,0 +1,279 @@
+package com.example.rev.shortener;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+import java.util.stream.IntStream;
+
+/*
+    Compact in-memory store, nothing per link lives on the heap.
+    Every url is written once as (long code, int length, utf-8 bytes) into an append-only arena of direct
+    chunks and addressed by its offset. Codes are decoded to longs, so lookups go through two off-heap tables:
+    code -> offset and url fingerprint -> offset, a fingerprint collision is resolved by comparing the bytes.
+    A link costs ~12 bytes of record header plus the url bytes and two 16 byte slots,
+    against ~200 bytes for two Strings and two map entries on the heap.
+    Removed urls are unlinked from the tables but their bytes are not reclaimed.
+ */
+public class OffHeapUrlStore implements UrlStore {
+
+    public static final int DEFAULT_CHUNK_SIZE = 16 << 20;
+    private static final int DEFAULT_INITIAL_CAPACITY = 1 << 16;
+    private static final int MAX_URL_BYTES = 16 << 10;
+    private static final int RECORD_HEADER = Long.BYTES + Integer.BYTES;
+
+    private final int codeLength;
+    private final int chunkSize;
+    private final List<ByteBuffer> chunks;
+    private final OffHeapTable codes;
+    private final OffHeapTable urls;
+    private final ReentrantReadWriteLock lock;
+    private int writeOffset;
+
+    public OffHeapUrlStore(int codeLength) {
+        this(codeLength, DEFAULT_CHUNK_SIZE, DEFAULT_INITIAL_CAPACITY);
+    }
+
+    public OffHeapUrlStore(int codeLength, int chunkSize, int initialCapacity) {
+        Base62.capacity(codeLength);
+        if (chunkSize < RECORD_HEADER + MAX_URL_BYTES || initialCapacity <= 0) {
+            throw new IllegalArgumentException("Chunk must fit the longest url and capacity must be positive");
+        }
+        this.codeLength = codeLength;
+        this.chunkSize = chunkSize;
+        this.chunks = new ArrayList<>();
+        this.codes = new OffHeapTable(initialCapacity * 2);
+        this.urls = new OffHeapTable(initialCapacity * 2);
+        this.lock = new ReentrantReadWriteLock();
+        this.writeOffset = chunkSize;
+    }
+
+    @Override
+    public String getOrCreate(String url, Supplier<String> codeSupplier) {
+        final var bytes = encode(url);
+        final var fingerprint = Hashing.fingerprint(bytes);
+        lock.readLock().lock();
+        try {
+            final var existing = urls.find(fingerprint, address -> sameUrl(address - 1, bytes));
+            if (existing != 0) {
+                return Base62.encode(codeAt(existing - 1), codeLength);
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        lock.writeLock().lock();
+        try {
+            return create(bytes, fingerprint, codeSupplier);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Urls are encoded and fingerprinted in parallel, then all of them are stored under one write lock.
+     */
+    @Override
+    public List<String> getOrCreateAll(List<String> urls, Supplier<String> codeSupplier) {
+        final var bytes = urls.parallelStream().map(OffHeapUrlStore::encode).toList();
+        final var fingerprints = IntStream.range(0, bytes.size()).parallel()
+                .mapToLong(i -> Hashing.fingerprint(bytes.get(i)))
+                .toArray();
+        final var result = new ArrayList<String>(bytes.size());
+        lock.writeLock().lock();
+        try {
+            for (int i = 0; i < bytes.size(); i++) {
+                result.add(create(bytes.get(i), fingerprints[i], codeSupplier));
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+        return result;
+    }
+
+    @Override
+    public String findOriginal(String code) {
+        final var value = decode(code);
+        if (value < 0) {
+            return null;
+        }
+        lock.readLock().lock();
+        try {
+            final var address = codes.find(value, any -> true);
+            return address == 0 ? null : urlAt(address - 1);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public List<String> findOriginals(List<String> codeList) {
+        final var result = new ArrayList<String>(codeList.size());
+        lock.readLock().lock();
+        try {
+            for (final var code : codeList) {
+                final var value = decode(code);
+                final var address = value < 0 ? 0 : codes.find(value, any -> true);
+                result.add(address == 0 ? null : urlAt(address - 1));
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        return result;
+    }
+
+    @Override
+    public String findCode(String url) {
+        final var bytes = url.getBytes(StandardCharsets.UTF_8);
+        final var fingerprint = Hashing.fingerprint(bytes);
+        lock.readLock().lock();
+        try {
+            final var address = urls.find(fingerprint, candidate -> sameUrl(candidate - 1, bytes));
+            return address == 0 ? null : Base62.encode(codeAt(address - 1), codeLength);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Unlinks the mapping, the url bytes stay in the arena.
+     */
+    @Override
+    public boolean remove(String code) {
+        final var value = decode(code);
+        if (value < 0) {
+            return false;
+        }
+        lock.writeLock().lock();
+        try {
+            final var address = codes.find(value, any -> true);
+            if (address == 0) {
+                return false;
+            }
+            codes.remove(value, address);
+            urls.remove(Hashing.fingerprint(urlAt(address - 1)), address);
+            return true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void forEachCode(Consumer<String> action) {
+        lock.readLock().lock();
+        try {
+            codes.forEach((code, address) -> action.accept(Base62.encode(code, codeLength)));
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return codes.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Direct memory taken by the arena and both tables.
+     */
+    public long allocatedBytes() {
+        lock.readLock().lock();
+        try {
+            return (long) chunks.size() * chunkSize + codes.allocatedBytes() + urls.allocatedBytes();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private String create(byte[] bytes, long fingerprint, Supplier<String> codeSupplier) {
+        final var existing = urls.find(fingerprint, address -> sameUrl(address - 1, bytes));
+        if (existing != 0) {
+            return Base62.encode(codeAt(existing - 1), codeLength);
+        }
+        final var code = codeSupplier.get();
+        final var value = decode(code);
+        if (value < 0) {
+            throw new IllegalArgumentException("Invalid code: " + code);
+        }
+        if (codes.find(value, any -> true) != 0) {
+            throw new IllegalStateException("Code is already taken: " + code);
+        }
+        final var address = append(value, bytes) + 1;
+        codes.put(value, address);
+        urls.put(fingerprint, address);
+        return code;
+    }
+
+    private static byte[] encode(String url) {
+        final var bytes = url.getBytes(StandardCharsets.UTF_8);
+        if (bytes.length > MAX_URL_BYTES) {
+            throw new IllegalArgumentException("Url is too long");
+        }
+        return bytes;
+    }
+
+    private long decode(String code) {
+        if (code == null || code.length() != codeLength) {
+            return -1;
+        }
+        return Base62.decode(code);
+    }
+
+    /*
+        Records never cross a chunk boundary, the tail of a chunk that can't fit the next record stays unused.
+     */
+    private long append(long code, byte[] bytes) {
+        final var length = RECORD_HEADER + bytes.length;
+        if (writeOffset + length > chunkSize) {
+            chunks.add(ByteBuffer.allocateDirect(chunkSize));
+            writeOffset = 0;
+        }
+        final var chunk = chunks.get(chunks.size() - 1);
+        chunk.putLong(writeOffset, code);
+        chunk.putInt(writeOffset + Long.BYTES, bytes.length);
+        chunk.put(writeOffset + RECORD_HEADER, bytes);
+        final var address = (long) (chunks.size() - 1) * chunkSize + writeOffset;
+        writeOffset += length;
+        return address;
+    }
+
+    private long codeAt(long address) {
+        return chunk(address).getLong(offset(address));
+    }
+
+    private String urlAt(long address) {
+        final var chunk = chunk(address);
+        final var offset = offset(address);
+        final var bytes = new byte[chunk.getInt(offset + Long.BYTES)];
+        chunk.get(offset + RECORD_HEADER, bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private boolean sameUrl(long address, byte[] bytes) {
+        final var chunk = chunk(address);
+        final var offset = offset(address);
+        if (chunk.getInt(offset + Long.BYTES) != bytes.length) {
+            return false;
+        }
+        for (int i = 0; i < bytes.length; i++) {
+            if (chunk.get(offset + RECORD_HEADER + i) != bytes[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private ByteBuffer chunk(long address) {
+        return chunks.get((int) (address / chunkSize));
+    }
+
+    private int offset(long address) {
+        return (int) (address % chunkSize);
+    }
+}
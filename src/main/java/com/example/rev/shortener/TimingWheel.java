@@ -0,0 +1,108 @@
+package com.example.rev.shortener;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/*
+    Hierarchical timing wheel: LEVELS wheels of SLOTS buckets, a bucket of level n spans SLOTS^n ticks.
+    A timer is put into the finest level whose range reaches its deadline, when the finer wheel wraps around the matching bucket
+    of the coarser one is cascaded down. Scheduling is O(1) and every timer moves at most LEVELS times,
+    so expiring costs amortized O(1) per timer instead of scanning all of them.
+    Timers fire at most one tick late and never early. Timers further than the top level can hold
+    are parked in its last bucket and re-scheduled on every cascade until they fit.
+ */
+public class TimingWheel<T> {
+
+    private static final int SLOT_BITS = 6;
+    private static final int SLOTS = 1 << SLOT_BITS;
+    private static final int SLOT_MASK = SLOTS - 1;
+    private static final int LEVELS = 4;
+
+    private final long tickMillis;
+    private final List<List<Timer<T>>> buckets;
+    private long currentTick;
+    private int size;
+
+    public TimingWheel(long tickMillis, long startMillis) {
+        if (tickMillis <= 0) {
+            throw new IllegalArgumentException("Tick must be more than zero");
+        }
+        this.tickMillis = tickMillis;
+        this.buckets = new ArrayList<>(LEVELS * SLOTS);
+        for (int i = 0; i < LEVELS * SLOTS; i++) {
+            buckets.add(new ArrayList<>());
+        }
+        this.currentTick = Math.floorDiv(startMillis, tickMillis);
+    }
+
+    private record Timer<T>(T item, long deadlineTick) {}
+
+    public synchronized void schedule(T item, long deadlineMillis) {
+        // rounded up, so a timer never fires before its deadline, an overdue one fires on the next tick
+        final var deadlineTick = -Math.floorDiv(-deadlineMillis, tickMillis);
+        place(new Timer<>(item, Math.max(deadlineTick, currentTick + 1)));
+        size++;
+    }
+
+    /**
+     * Moves the wheel to {@code nowMillis} and returns items of the timers that are due, tick by tick.
+     */
+    public synchronized List<T> advance(long nowMillis) {
+        final var nowTick = Math.floorDiv(nowMillis, tickMillis);
+        final var expired = new ArrayList<T>();
+        while (currentTick < nowTick) {
+            if (size == 0) {
+                currentTick = nowTick;
+                break;
+            }
+            currentTick++;
+            cascade();
+            final var due = buckets.get(index(0, currentTick));
+            if (!due.isEmpty()) {
+                due.forEach(timer -> expired.add(timer.item()));
+                size -= due.size();
+                due.clear();
+            }
+        }
+        return expired;
+    }
+
+    public synchronized int size() {
+        return size;
+    }
+
+    /*
+        On a wrap of level n the bucket of level n + 1 that starts at the current tick is spread over finer levels.
+     */
+    private void cascade() {
+        for (int level = 1; level < LEVELS; level++) {
+            if ((currentTick & ((1L << (SLOT_BITS * level)) - 1)) != 0) {
+                return;
+            }
+            final var bucket = buckets.get(index(level, currentTick));
+            if (bucket.isEmpty()) {
+                continue;
+            }
+            final var timers = new ArrayList<>(bucket);
+            bucket.clear();
+            timers.forEach(this::place);
+        }
+    }
+
+    private void place(Timer<T> timer) {
+        // delta is 0 only for a timer cascaded into the tick that is being fired
+        final var delta = timer.deadlineTick() - currentTick;
+        for (int level = 0; level < LEVELS; level++) {
+            if (delta < 1L << (SLOT_BITS * (level + 1))) {
+                buckets.get(index(level, timer.deadlineTick())).add(timer);
+                return;
+            }
+        }
+        final var farthest = currentTick + (1L << (SLOT_BITS * LEVELS)) - 1;
+        buckets.get(index(LEVELS - 1, farthest)).add(timer);
+    }
+
+    private static int index(int level, long tick) {
+        return level * SLOTS + (int) ((tick >>> (SLOT_BITS * level)) & SLOT_MASK);
+    }
+}
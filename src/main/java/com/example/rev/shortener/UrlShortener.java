@@ -1,87 +1,246 @@
 package com.example.rev.shortener;
 
-import java.math.BigInteger;
-import java.nio.charset.StandardCharsets;
-import java.security.MessageDigest;
-import java.security.NoSuchAlgorithmException;
-import java.util.HashMap;
-import java.util.Map;
-import java.util.concurrent.TimeUnit;
-import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.time.Clock;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
 
 public class UrlShortener {
 
-    private static final Integer MAX_AWAIT_MS = 1000;
-    private final Map<String, String> shortToOriginal;
-    private final Map<String, String> originalToShort;
-    private final MessageDigest md5;
-    private final ReentrantReadWriteLock lock;
+    /*
+    [A-Za-z0-9] - base62 62^7 (3,5 * 10^12) = 56bit (1char=1byte=8bit -> 7 * 8bit = 56 bit)
+    e.g. http://shortener.org/AzbN4h1
+     */
+    private static final int CODE_LENGTH = 7;
+    private static final long EXPIRY_TICK_MILLIS = 1000;
+    private static final long LOAD_WINDOW_MILLIS = 60 * 60 * 1000;
+    private final UrlStore store;
+    private final CodeGenerator codeGenerator;
+    private final Clock clock;
+    /*
+    deadlines scheduled in the wheel, the wheel only tells when to look at them,
+    a link is expired by whoever removes its deadline first: the wheel or a lookup that found it overdue.
+    Stores that persist deadlines are read a window at a time, up to a window ahead of the clock,
+    later deadlines stay on disk and the store itself hides a mapping that is past its deadline.
+    Links of other stores are tracked here from creation
+     */
+    private final ConcurrentHashMap<String, Long> deadlines;
+    private final TimingWheel<String> expirations;
+    // deadlines before it were read from the store, guarded by this
+    private long loadedUntil;
+    // null when clicks are not counted
+    private final ClickAnalytics clicks;
 
     public UrlShortener() {
-        try {
-            md5 = MessageDigest.getInstance("MD5");
-        } catch (NoSuchAlgorithmException e) {
-            throw new RuntimeException(e);
+        this(new ConcurrentUrlStore(), CodeGenerator.inMemory(CODE_LENGTH));
+    }
+
+    public UrlShortener(UrlStore store, CodeGenerator codeGenerator) {
+        this(store, codeGenerator, null, Clock.systemUTC());
+    }
+
+    /**
+     * Same as {@link #UrlShortener(UrlStore, CodeGenerator)}, every resolved link is counted as a click.
+     */
+    public UrlShortener(UrlStore store, CodeGenerator codeGenerator, ClickAnalytics clicks) {
+        this(store, codeGenerator, clicks, Clock.systemUTC());
+    }
+
+    UrlShortener(UrlStore store, CodeGenerator codeGenerator, Clock clock) {
+        this(store, codeGenerator, null, clock);
+    }
+
+    UrlShortener(UrlStore store, CodeGenerator codeGenerator, ClickAnalytics clicks, Clock clock) {
+        if (Objects.isNull(store) || Objects.isNull(codeGenerator)) {
+            throw new IllegalArgumentException("Store and code generator must be not null");
         }
-        shortToOriginal = new HashMap<>();
-        originalToShort = new HashMap<>();
-        lock = new ReentrantReadWriteLock();
+        this.store = store;
+        this.codeGenerator = codeGenerator;
+        this.clock = clock;
+        this.deadlines = new ConcurrentHashMap<>();
+        this.expirations = new TimingWheel<>(EXPIRY_TICK_MILLIS, clock.millis());
+        this.clicks = clicks;
+        this.loadedUntil = Long.MIN_VALUE;
+        loadDeadlines(clock.millis());
     }
 
     public String getShort(String url) {
-        try {
-            if (!lock.writeLock().tryLock(MAX_AWAIT_MS, TimeUnit.MILLISECONDS)) {
-                throw new RuntimeException("Can't acquire the write lock");
-            }
-            try {
-                if (originalToShort.containsKey(url)) {
-                    return originalToShort.get(url);
-                }
-                String shortUrl = getHash(url);
-                shortToOriginal.put(shortUrl, url);
-                originalToShort.put(url, shortUrl);
-                return shortUrl;
-            } finally {
-                lock.writeLock().unlock();
+        if (Objects.isNull(url)) {
+            throw new IllegalArgumentException("Url must be not null");
+        }
+        while (true) {
+            final var code = store.getOrCreate(url, codeGenerator::next);
+            if (!expireIfDue(code)) {
+                return code;
             }
-        } catch (InterruptedException e) {
-            throw new RuntimeException(e);
         }
     }
 
-    /*
-    [A-Za-z0-9] - base62 62^7 (3,5 * 10^12) = 56bit (1char=1byte=8bit -> 7 * 8bit = 56 bit)
-    e.g. http://shortener.org/AzbN4h1
+    /**
+     * Same as {@link #getShort(String)}, a new link expires after {@code ttl},
+     * an already shortened url keeps its code and expiration.
      */
-    private String getHash(String originalUrl) {
-        final var buffer = new StringBuilder(originalUrl);
-        byte[] digestResult = md5.digest(buffer.toString().getBytes(StandardCharsets.UTF_8));
-        final var digestHex = new BigInteger(1, digestResult).toString(32);
-        String hash = digestHex.length() < 7 ? digestHex : digestHex.substring(0, 7);
-        int idx = 0;
-        while (shortToOriginal.containsKey(hash)) {
-            buffer.append(idx);
-            digestResult = md5.digest(buffer.toString().getBytes(StandardCharsets.UTF_8));
-            hash = new String(digestResult).substring(0, 7);
+    public String getShort(String url, Duration ttl) {
+        if (Objects.isNull(url) || Objects.isNull(ttl) || ttl.isNegative() || ttl.isZero()) {
+            throw new IllegalArgumentException("Url must be not null and ttl must be positive");
+        }
+        final var deadline = clock.millis() + ttl.toMillis();
+        while (true) {
+            final var created = new String[1];
+            final var code = store.getOrCreate(url, () -> {
+                created[0] = codeGenerator.next();
+                return created[0];
+            }, deadline);
+            if (code.equals(created[0])) {
+                track(code, deadline);
+            }
+            if (!expireIfDue(code)) {
+                return code;
+            }
         }
-        return hash;
     }
 
     public String getOriginal(String shortUrl) {
-        try {
-            if (!lock.readLock().tryLock(MAX_AWAIT_MS, TimeUnit.MILLISECONDS)) {
-                throw new RuntimeException("Can't acquire the read lock");
+        final var original = findOriginal(shortUrl);
+        if (original == null) {
+            throw new IllegalArgumentException("No such url");
+        }
+        return original;
+    }
+
+    /**
+     * Same as {@link #getOriginal(String)} but returns null for an unknown or expired code,
+     * for callers that serve misses often and shouldn't pay for an exception.
+     */
+    public String findOriginal(String shortUrl) {
+        final var original = Objects.isNull(shortUrl) ? null : store.findOriginal(shortUrl);
+        if (original == null || expireIfDue(shortUrl)) {
+            return null;
+        }
+        if (clicks != null) {
+            clicks.record(shortUrl);
+        }
+        return original;
+    }
+
+    /**
+     * Milliseconds until the code expires, {@link Long#MAX_VALUE} when it never does or is unknown.
+     * Deadlines not loaded from a persisting store yet are read from the store.
+     */
+    public long timeToLiveMillis(String shortUrl) {
+        if (Objects.isNull(shortUrl)) {
+            return Long.MAX_VALUE;
+        }
+        final var tracked = deadlines.get(shortUrl);
+        final long deadline = tracked != null ? tracked : store.persistsDeadlines() ? store.deadline(shortUrl) : 0;
+        return deadline == 0 ? Long.MAX_VALUE : Math.max(0, deadline - clock.millis());
+    }
+
+    /**
+     * Shortens a batch, codes are returned in the order of the urls.
+     * Ids for the whole batch are reserved at once and the store takes its locks once per batch.
+     */
+    public List<String> shortenAll(Collection<String> urls) {
+        final var batch = copyOf(urls);
+        if (batch.isEmpty()) {
+            return new ArrayList<>();
+        }
+        final List<String> codes;
+        try (var reserved = codeGenerator.batch(batch.size())) {
+            codes = new ArrayList<>(store.getOrCreateAll(batch, reserved));
+        }
+        for (int i = 0; i < codes.size(); i++) {
+            if (expireIfDue(codes.get(i))) {
+                codes.set(i, getShort(batch.get(i)));
             }
-            try {
-                if (!shortToOriginal.containsKey(shortUrl)) {
-                    throw new IllegalArgumentException("No such url");
-                }
-                return shortToOriginal.get(shortUrl);
-            } finally {
-                lock.readLock().unlock();
+        }
+        return codes;
+    }
+
+    /**
+     * Resolves a batch, unknown and expired codes give null at their position instead of an exception.
+     */
+    public List<String> resolveAll(Collection<String> shortUrls) {
+        final var batch = copyOf(shortUrls);
+        final var originals = new ArrayList<>(store.findOriginals(batch));
+        for (int i = 0; i < originals.size(); i++) {
+            if (originals.get(i) != null && expireIfDue(batch.get(i))) {
+                originals.set(i, null);
+            }
+        }
+        return originals;
+    }
+
+    /**
+     * Removes links whose ttl has passed and recycles their codes, returns how many were removed.
+     * Clicks of a recycled code are forgotten, a cache used as the store drops it on remove.
+     * Meant to be called periodically, e.g. every second from a scheduled executor.
+     */
+    public int expireDue() {
+        final var now = clock.millis();
+        loadDeadlines(now);
+        var expired = 0;
+        for (final var code : expirations.advance(now)) {
+            if (expireIfDue(code)) {
+                expired++;
+            }
+        }
+        return expired;
+    }
+
+    int trackedDeadlines() {
+        return deadlines.size();
+    }
+
+    /*
+        Reads persisted deadlines up to the end of the window after the current one, every window once.
+        The first call also reads the overdue ones, a restart then holds the near-term deadlines only.
+     */
+    private synchronized void loadDeadlines(long nowMillis) {
+        final var until = nowMillis - Math.floorMod(nowMillis, LOAD_WINDOW_MILLIS) + 2 * LOAD_WINDOW_MILLIS;
+        if (until <= loadedUntil) {
+            return;
+        }
+        store.forEachDeadline(loadedUntil, until, this::schedule);
+        loadedUntil = until;
+    }
+
+    /*
+        Called once the store has the deadline and under the monitor of loadDeadlines: a deadline below loadedUntil
+        is scheduled here in case its window was read before it was written, any other is read with its window.
+     */
+    private synchronized void track(String code, long deadline) {
+        if (!store.persistsDeadlines() || deadline < loadedUntil) {
+            schedule(code, deadline);
+        }
+    }
+
+    private void schedule(String code, long deadline) {
+        deadlines.put(code, deadline);
+        expirations.schedule(code, deadline);
+    }
+
+    private static List<String> copyOf(Collection<String> values) {
+        if (Objects.isNull(values) || values.stream().anyMatch(Objects::isNull)) {
+            throw new IllegalArgumentException("Batch and its elements must be not null");
+        }
+        return List.copyOf(values);
+    }
+
+    private boolean expireIfDue(String code) {
+        final var deadline = deadlines.get(code);
+        if (deadline == null || deadline > clock.millis() || !deadlines.remove(code, deadline)) {
+            return false;
+        }
+        if (store.remove(code)) {
+            if (clicks != null) {
+                clicks.forget(code);
             }
-        } catch (InterruptedException e) {
-            throw new RuntimeException(e);
+            codeGenerator.recycle(code);
         }
+        return true;
     }
 }
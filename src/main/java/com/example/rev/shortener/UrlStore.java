@@ -0,0 +1,94 @@
+package com.example.rev.shortener;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.function.ObjLongConsumer;
+import java.util.function.Supplier;
+
+/*
+    Storage of short code <-> original url mappings.
+ */
+public interface UrlStore {
+
+    /**
+     * Returns the code of the url, a new one is taken from {@code codes} only when the url is not stored yet.
+     * Concurrent calls for the same url return the same code.
+     */
+    String getOrCreate(String url, Supplier<String> codes);
+
+    /**
+     * Same as {@link #getOrCreate(String, Supplier)}, a new mapping expires at {@code expiresAtMillis}, 0 means never.
+     * Stores that don't persist deadlines ignore it and the caller tracks them in memory,
+     * stores that do return null from {@link #findOriginal(String)} once the deadline has passed.
+     */
+    default String getOrCreate(String url, Supplier<String> codes, long expiresAtMillis) {
+        return getOrCreate(url, codes);
+    }
+
+    /**
+     * Returns the original url or null when the code is unknown.
+     */
+    String findOriginal(String code);
+
+    /**
+     * Returns the code of the url or null when the url is not stored.
+     */
+    String findCode(String url);
+
+    /**
+     * Removes the mapping of the code, returns false when there was none.
+     */
+    boolean remove(String code);
+
+    /**
+     * Passes every stored code to {@code action}, codes added or removed concurrently may or may not be seen.
+     */
+    void forEachCode(Consumer<String> action);
+
+    /**
+     * Whether deadlines outlive the process and can be read back with {@link #forEachDeadline}.
+     */
+    default boolean persistsDeadlines() {
+        return false;
+    }
+
+    /**
+     * Deadline of the mapping in epoch millis, 0 when it never expires or there is none.
+     * Stores that don't persist deadlines return 0, their deadlines are tracked by the caller.
+     */
+    default long deadline(String code) {
+        return 0;
+    }
+
+    /**
+     * Passes the code and deadline of the mappings whose deadline is in [fromMillis, untilMillis), including expired
+     * mappings that weren't removed yet, so expiry can be tracked after a restart one time window at a time.
+     * Stores that don't persist deadlines pass nothing.
+     */
+    default void forEachDeadline(long fromMillis, long untilMillis, ObjLongConsumer<String> action) {
+    }
+
+    /**
+     * Batch version of {@link #getOrCreate(String, Supplier)}, codes are returned in the order of the urls.
+     * Stores override it to take their locks once per batch, {@code codes} may be called concurrently.
+     */
+    default List<String> getOrCreateAll(List<String> urls, Supplier<String> codes) {
+        final var result = new ArrayList<String>(urls.size());
+        for (final var url : urls) {
+            result.add(getOrCreate(url, codes));
+        }
+        return result;
+    }
+
+    /**
+     * Batch version of {@link #findOriginal(String)}, unknown codes give null at their position.
+     */
+    default List<String> findOriginals(List<String> codes) {
+        final var result = new ArrayList<String>(codes.size());
+        for (final var code : codes) {
+            result.add(findOriginal(code));
+        }
+        return result;
+    }
+}
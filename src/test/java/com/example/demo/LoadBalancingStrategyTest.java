@@ -0,0 +1,152 @@
+package com.example.demo;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LoadBalancingStrategyTest {
+
+    @Test
+    public void roundRobinShouldStayInBoundsWhenCounterOverflows() {
+        final var loadBalancer = new LoadBalancer<>(3, new RoundRobinStrategy<String>(Long.MAX_VALUE - 4));
+        loadBalancer.register("a");
+        loadBalancer.register("b");
+        loadBalancer.register("c");
+        final var counts = new HashMap<String, Integer>();
+        for (int i = 0; i < 30; i++) {
+            counts.merge(loadBalancer.next(), 1, Integer::sum);
+        }
+        assertEquals(3, counts.size());
+        counts.values().forEach(count -> assertTrue(count >= 9 && count <= 11));
+    }
+
+    @Test
+    public void stripedRoundRobinShouldSpreadEvenly() {
+        final var loadBalancer = new LoadBalancer<>(3, new StripedRoundRobinStrategy<String>(4));
+        loadBalancer.register("a");
+        loadBalancer.register("b");
+        loadBalancer.register("c");
+        final var counts = new HashMap<String, Integer>();
+        for (int i = 0; i < 30; i++) {
+            counts.merge(loadBalancer.next(), 1, Integer::sum);
+        }
+        assertEquals(Map.of("a", 10, "b", 10, "c", 10), counts);
+    }
+
+    @Test
+    public void weightedShouldFollowWeights() {
+        final var weights = Map.of("a", 1, "b", 3, "c", 6);
+        final var loadBalancer = new LoadBalancer<>(3, new WeightedStrategy<String>(weights::get));
+        loadBalancer.register("a");
+        loadBalancer.register("b");
+        loadBalancer.register("c");
+        final var counts = new HashMap<String, Integer>();
+        for (int i = 0; i < 1_000; i++) {
+            counts.merge(loadBalancer.next(), 1, Integer::sum);
+        }
+        assertEquals(Map.of("a", 100, "b", 300, "c", 600), counts);
+        loadBalancer.unregister("c");
+        counts.clear();
+        for (int i = 0; i < 400; i++) {
+            counts.merge(loadBalancer.next(), 1, Integer::sum);
+        }
+        assertEquals(Map.of("a", 100, "b", 300), counts);
+    }
+
+    @Test
+    public void randomShouldReachEveryItem() {
+        final var loadBalancer = new LoadBalancer<>(4, new RandomStrategy<Integer>());
+        for (int i = 0; i < 4; i++) {
+            loadBalancer.register(i);
+        }
+        final var counts = new int[4];
+        for (int i = 0; i < 1_000; i++) {
+            counts[loadBalancer.next()]++;
+        }
+        for (final var count : counts) {
+            assertTrue(count > 0);
+        }
+    }
+
+    @Test
+    public void leastLoadedShouldAvoidBusyItems() {
+        final var strategy = new LeastLoadedStrategy<String>();
+        final var loadBalancer = new LoadBalancer<>(2, strategy);
+        loadBalancer.register("busy");
+        loadBalancer.register("idle");
+        // with two items both are always compared, so loads never differ by more than one
+        for (int i = 0; i < 10; i++) {
+            loadBalancer.next();
+        }
+        assertEquals(5, strategy.inFlight("busy"));
+        assertEquals(5, strategy.inFlight("idle"));
+        for (int i = 0; i < 5; i++) {
+            loadBalancer.release("idle");
+        }
+        for (int i = 0; i < 5; i++) {
+            assertEquals("idle", loadBalancer.next());
+        }
+        assertEquals(5, strategy.inFlight("busy"));
+        loadBalancer.release("missing");
+        assertEquals(0, strategy.inFlight("missing"));
+    }
+
+    @Test
+    public void leastLoadedShouldForgetUnregisteredItems() {
+        final var strategy = new LeastLoadedStrategy<String>();
+        final var loadBalancer = new LoadBalancer<>(2, strategy);
+        for (int round = 0; round < 100; round++) {
+            final var item = "item" + round;
+            loadBalancer.register(item);
+            loadBalancer.next();
+            loadBalancer.unregister(item);
+        }
+        assertEquals(0, strategy.tracked());
+        assertEquals(0, loadBalancer.size());
+    }
+
+    @Test
+    public void nextShouldSeeConsistentSnapshotsWhileItemsChange() throws Exception {
+        final var loadBalancer = new LoadBalancer<>(10, new RoundRobinStrategy<String>());
+        loadBalancer.register("stable");
+        final var failed = new AtomicBoolean();
+        final var stop = new AtomicBoolean();
+        final var executor = Executors.newFixedThreadPool(4);
+        final var started = new CountDownLatch(4);
+        for (int t = 0; t < 3; t++) {
+            executor.submit(() -> {
+                started.countDown();
+                while (!stop.get()) {
+                    try {
+                        if (loadBalancer.next() == null) {
+                            failed.set(true);
+                        }
+                    } catch (RuntimeException e) {
+                        failed.set(true);
+                    }
+                }
+            });
+        }
+        executor.submit(() -> {
+            started.countDown();
+            for (int i = 0; i < 10_000; i++) {
+                loadBalancer.register("item" + i % 5);
+                loadBalancer.unregister("item" + i % 5);
+            }
+            stop.set(true);
+        });
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(10, TimeUnit.SECONDS));
+        assertFalse(failed.get());
+        assertEquals(1, loadBalancer.size());
+        assertThrows(IllegalStateException.class, () -> new LoadBalancer<String>(1).next());
+        assertThrows(IllegalArgumentException.class, () -> loadBalancer.register(null));
+    }
+}
@@ -0,0 +1,120 @@
+package com.example.demo.web;
+
+import com.example.rev.shortener.ClickAnalytics;
+import com.example.rev.shortener.UrlShortener;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.reactive.server.WebTestClient;
+
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ShortenerRoutesTest {
+
+    private WebTestClient client;
+    private ClickAnalytics clicks;
+    private UrlShortener shortener;
+
+    @BeforeEach
+    void setUp() {
+        final var routes = new ShortenerRoutes();
+        clicks = new ClickAnalytics(buckets -> {
+        });
+        shortener = routes.urlShortener(clicks);
+        final var handler = routes.redirectHandler(shortener, clicks);
+        client = WebTestClient.bindToRouterFunction(routes.shortenerRouter(handler)).build();
+    }
+
+    private String shorten(String url) {
+        return client.post().uri("/")
+                .contentType(MediaType.TEXT_PLAIN)
+                .bodyValue(url)
+                .exchange()
+                .expectStatus().isCreated()
+                .expectBody(String.class)
+                .returnResult()
+                .getResponseBody();
+    }
+
+    @Test
+    public void postShouldCreateLink() {
+        final var code = client.post().uri("/")
+                .contentType(MediaType.TEXT_PLAIN)
+                .bodyValue("https://example.com/some/long/path?q=1")
+                .exchange()
+                .expectStatus().isCreated()
+                .expectHeader().valueMatches(HttpHeaders.LOCATION, "/[0-9A-Za-z]{7}")
+                .expectBody(String.class)
+                .returnResult()
+                .getResponseBody();
+        assertNotNull(code);
+        assertEquals(code, shorten("https://example.com/some/long/path?q=1"));
+    }
+
+    @Test
+    public void getShouldRedirectToOriginal() {
+        final var code = shorten("https://example.com/target");
+        client.get().uri("/" + code)
+                .exchange()
+                .expectStatus().isFound()
+                .expectHeader().valueEquals(HttpHeaders.LOCATION, "https://example.com/target")
+                .expectBody().isEmpty();
+    }
+
+    @Test
+    public void expiringLinkShouldNotBeCachedPastItsDeadline() {
+        client.get().uri("/" + shorten("https://example.com/permanent"))
+                .exchange()
+                .expectStatus().isFound()
+                .expectHeader().valueEquals(HttpHeaders.CACHE_CONTROL, "private, max-age=90");
+        final var code = shortener.getShort("https://example.com/expiring", Duration.ofSeconds(30));
+        client.get().uri("/" + code)
+                .exchange()
+                .expectStatus().isFound()
+                .expectHeader().valueMatches(HttpHeaders.CACHE_CONTROL, "private, max-age=(29|30)");
+        final var almostGone = shortener.getShort("https://example.com/almost-gone", Duration.ofMillis(900));
+        client.get().uri("/" + almostGone)
+                .exchange()
+                .expectStatus().isFound()
+                .expectHeader().valueEquals(HttpHeaders.CACHE_CONTROL, "no-cache");
+    }
+
+    @Test
+    public void unknownCodeShouldGiveNotFound() {
+        client.get().uri("/0000000").exchange().expectStatus().isNotFound();
+        client.get().uri("/favicon.ico").exchange().expectStatus().isNotFound();
+    }
+
+    @Test
+    public void invalidUrlShouldGiveBadRequest() {
+        for (final var body : new String[]{"not a url", "ftp://example.com/file", "/relative/path"}) {
+            client.post().uri("/")
+                    .contentType(MediaType.TEXT_PLAIN)
+                    .bodyValue(body)
+                    .exchange()
+                    .expectStatus().isBadRequest();
+        }
+    }
+
+    @Test
+    public void topShouldListMostClickedLinks() {
+        final var popular = shorten("https://example.com/popular");
+        final var rare = shorten("https://example.com/rare");
+        for (int i = 0; i < 3; i++) {
+            client.get().uri("/" + popular).exchange().expectStatus().isFound();
+        }
+        client.get().uri("/" + rare).exchange().expectStatus().isFound();
+        clicks.aggregate();
+        client.get().uri("/stats/top?n=1")
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody()
+                .jsonPath("$.length()").isEqualTo(1)
+                .jsonPath("$[0].code").isEqualTo(popular)
+                .jsonPath("$[0].clicks").isEqualTo(3);
+        client.get().uri("/stats/top?n=x").exchange().expectStatus().isBadRequest();
+    }
+}
@@ -0,0 +1,50 @@
+package com.example.rev;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+
+/*
+    A UTC clock that only moves when a test moves it. Volatile, so code under test may read it from other threads.
+ */
+public class MutableClock extends Clock {
+
+    private volatile long millis;
+
+    public MutableClock() {
+        this(0);
+    }
+
+    public MutableClock(long millis) {
+        this.millis = millis;
+    }
+
+    @Override
+    public ZoneId getZone() {
+        return ZoneOffset.UTC;
+    }
+
+    @Override
+    public Clock withZone(ZoneId zone) {
+        return this;
+    }
+
+    @Override
+    public Instant instant() {
+        return Instant.ofEpochMilli(millis);
+    }
+
+    @Override
+    public long millis() {
+        return millis;
+    }
+
+    public void set(long millis) {
+        this.millis = millis;
+    }
+
+    public void advance(long delta) {
+        millis += delta;
+    }
+}
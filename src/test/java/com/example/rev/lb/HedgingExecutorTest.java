@@ -0,0 +1,219 @@
+package com.example.rev.lb;
+
+import com.example.rev.MutableClock;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class HedgingExecutorTest {
+
+    private final ExecutorService executor = Executors.newCachedThreadPool();
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor();
+
+    @AfterEach
+    public void shutdown() {
+        executor.shutdownNow();
+        scheduler.shutdownNow();
+    }
+
+    @Test
+    public void slowAttemptShouldBeHedgedToAnotherBackend() throws Exception {
+        final var hedging = new HedgingExecutor(balancer("slow", "fast"), new RetryBudget(1, 10, 0),
+                scheduler, executor, Duration.ofMillis(50), 2);
+        final var started = System.nanoTime();
+        final var answer = hedging.execute(backend -> {
+            sleep(backend.equals("slow") ? 2_000 : 10);
+            return backend;
+        }).get(1, TimeUnit.SECONDS);
+        assertEquals("fast", answer);
+        assertTrue(System.nanoTime() - started < TimeUnit.MILLISECONDS.toNanos(1_000));
+        assertEquals(1, hedging.hedges());
+    }
+
+    @Test
+    public void fastAnswerShouldNotBeHedged() throws Exception {
+        final var hedging = new HedgingExecutor(balancer("a", "b"), new RetryBudget(1, 10, 0),
+                scheduler, executor, Duration.ofMillis(500), 2);
+        for (int i = 0; i < 5; i++) {
+            assertNotNull(hedging.execute(backend -> backend).get(1, TimeUnit.SECONDS));
+        }
+        assertEquals(0, hedging.hedges());
+    }
+
+    @Test
+    public void failureShouldBeRetriedOnAnotherBackend() throws Exception {
+        final var hedging = new HedgingExecutor(balancer("bad", "good"), new RetryBudget(1, 10, 0),
+                scheduler, executor, Duration.ofSeconds(5), 2);
+        final var answer = hedging.execute(backend -> {
+            if (backend.equals("bad")) {
+                throw new IllegalStateException("down");
+            }
+            return backend;
+        }).get(1, TimeUnit.SECONDS);
+        assertEquals("good", answer);
+        assertEquals(1, hedging.retries());
+    }
+
+    @Test
+    public void spentBudgetShouldStopExtraAttempts() {
+        // the hedge timer never fires, only the retry asks the budget
+        final var hedging = new HedgingExecutor(balancer("bad", "worse"), new RetryBudget(0, 10, 0),
+                scheduler, executor, Duration.ofSeconds(5), 2);
+        final var future = hedging.execute(backend -> {
+            throw new IllegalStateException(backend);
+        });
+        final var error = assertThrows(ExecutionException.class, () -> future.get(1, TimeUnit.SECONDS));
+        assertInstanceOf(IllegalStateException.class, error.getCause());
+        assertEquals("bad", error.getCause().getMessage());
+        assertEquals(0, hedging.retries());
+        assertEquals(1, hedging.denied());
+    }
+
+    @Test
+    public void hedgeDelayShouldFollowObservedLatency() throws Exception {
+        final var hedging = new HedgingExecutor(balancer("a", "b"), new RetryBudget(1, 10, 0),
+                scheduler, executor, Duration.ofSeconds(1), 1);
+        assertEquals(1_000_000, hedging.hedgeDelayMicros());
+        for (int i = 0; i < 30; i++) {
+            hedging.execute(backend -> backend).get(1, TimeUnit.SECONDS);
+        }
+        assertTrue(hedging.hedgeDelayMicros() < 1_000_000);
+    }
+
+    @Test
+    public void emptyBalancerShouldFailTheFuture() {
+        final var hedging = new HedgingExecutor(balancer(), new RetryBudget(1, 10, 0),
+                scheduler, executor, Duration.ofMillis(1), 2);
+        final var future = hedging.execute(backend -> backend);
+        assertTrue(future.isCompletedExceptionally());
+    }
+
+    @Test
+    public void rejectedFirstAttemptShouldFailTheFuture() {
+        final var hedging = new HedgingExecutor(balancer("a", "b"), new RetryBudget(1, 10, 0),
+                scheduler, command -> {
+                    throw new RejectedExecutionException("full");
+                }, Duration.ofMillis(1), 2);
+        final var error = assertThrows(ExecutionException.class,
+                () -> hedging.execute(backend -> backend).get(1, TimeUnit.SECONDS));
+        assertInstanceOf(RejectedExecutionException.class, error.getCause());
+    }
+
+    @Test
+    public void rejectedHedgeShouldNotHangAFailingCall() {
+        // the first attempt runs, the hedge is rejected, then the first attempt fails
+        final var accepted = new AtomicInteger();
+        final Executor onlyFirst = command -> {
+            if (accepted.getAndIncrement() > 0) {
+                throw new RejectedExecutionException("full");
+            }
+            executor.execute(command);
+        };
+        final var budget = new RetryBudget(1, 10, 0);
+        final var hedging = new HedgingExecutor(balancer("a", "b", "c"), budget,
+                scheduler, onlyFirst, Duration.ofMillis(10), 3);
+        final var future = hedging.execute(backend -> {
+            sleep(200);
+            throw new IllegalStateException(backend);
+        });
+        final var error = assertThrows(ExecutionException.class, () -> future.get(2, TimeUnit.SECONDS));
+        assertInstanceOf(IllegalStateException.class, error.getCause());
+        assertEquals(0, hedging.hedges());
+        // tokens taken for the rejected attempts were given back
+        assertEquals(1.0, budget.available(), 1e-9);
+    }
+
+    @Test
+    public void extraAttemptsShouldNotAdvanceTheBalancer() throws Exception {
+        final var picks = new AtomicInteger();
+        final var loadBalancer = new LoadBalancer(elements -> {
+            picks.incrementAndGet();
+            return elements.get(0);
+        }, 10);
+        for (final var backend : List.of("bad", "b", "c", "d")) {
+            loadBalancer.register(backend);
+        }
+        final var hedging = new HedgingExecutor(loadBalancer, new RetryBudget(1, 10, 0),
+                scheduler, executor, Duration.ofSeconds(5), 2);
+        final var answer = hedging.execute(backend -> {
+            if (backend.equals("bad")) {
+                throw new IllegalStateException("down");
+            }
+            return backend;
+        }).get(1, TimeUnit.SECONDS);
+        assertNotEquals("bad", answer);
+        assertEquals(1, picks.get());
+    }
+
+    @Test
+    public void budgetShouldAllowRatioOfRequests() {
+        final var clock = new MutableClock();
+        final var budget = new RetryBudget(0.2, 3, 0, clock);
+        for (int i = 0; i < 10; i++) {
+            budget.deposit();
+        }
+        assertTrue(budget.tryWithdraw());
+        assertTrue(budget.tryWithdraw());
+        assertFalse(budget.tryWithdraw());
+        for (int i = 0; i < 100; i++) {
+            budget.deposit();
+        }
+        assertEquals(3.0, budget.available(), 1e-9);
+        final var trickle = new RetryBudget(0, 5, 2, clock);
+        assertFalse(trickle.tryWithdraw());
+        clock.advance(500);
+        assertTrue(trickle.tryWithdraw());
+        assertFalse(trickle.tryWithdraw());
+    }
+
+    @Test
+    public void trackerShouldReportPercentilesWithinBucketError() {
+        final var tracker = new LatencyTracker(1_000_000);
+        assertEquals(-1, tracker.percentile(0.95));
+        for (int i = 1; i <= 1_000; i++) {
+            tracker.record(i);
+        }
+        final var p95 = tracker.percentile(0.95);
+        assertTrue(p95 >= 950 && p95 <= 950 * 1.125, "p95 " + p95);
+        assertEquals(5, new LatencyTracker(10) {{
+            record(5);
+        }}.percentile(1));
+        // after decay recent samples dominate
+        final var decaying = new LatencyTracker(100);
+        for (int i = 0; i < 1_000; i++) {
+            decaying.record(100_000);
+        }
+        for (int i = 0; i < 1_000; i++) {
+            decaying.record(100);
+        }
+        assertTrue(decaying.percentile(0.95) < 200);
+    }
+
+    private static LoadBalancer balancer(String... backends) {
+        final var loadBalancer = new LoadBalancer(new RoundRobinRollingStrategy(), backends.length);
+        for (final var backend : backends) {
+            loadBalancer.register(backend);
+        }
+        return loadBalancer;
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
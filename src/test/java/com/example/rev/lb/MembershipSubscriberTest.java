@@ -0,0 +1,179 @@
+package com.example.rev.lb;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MembershipSubscriberTest {
+
+    @TempDir
+    Path directory;
+
+    private static final class StubSource implements DiscoverySource {
+
+        private Consumer<Collection<Backend>> listener;
+        private boolean closed;
+
+        @Override
+        public void start(Consumer<Collection<Backend>> listener) {
+            this.listener = listener;
+        }
+
+        void publish(Collection<String> urls) {
+            publishBackends(urls.stream().map(Backend::of).toList());
+        }
+
+        void publishBackends(Collection<Backend> backends) {
+            listener.accept(backends);
+        }
+
+        @Override
+        public void close() {
+            closed = true;
+        }
+    }
+
+    @Test
+    public void largeUpdateShouldBeOneSwap() {
+        final var loadBalancer = new LoadBalancer(new RoundRobinRollingStrategy(), 20_000);
+        final var source = new StubSource();
+        final var subscriber = new MembershipSubscriber(loadBalancer, source);
+        subscriber.start();
+        final var first = urls(0, 10_000);
+        source.publish(first);
+        assertEquals(10_000, loadBalancer.members().size());
+        assertEquals(1, subscriber.applied());
+        // half replaced: 5k removals and 5k additions in one diff
+        source.publish(urls(5_000, 15_000));
+        assertEquals(2, subscriber.applied());
+        assertEquals(urls(5_000, 15_000), new HashSet<>(loadBalancer.members()));
+        assertFalse(loadBalancer.contains("http://10.0.0.1"));
+        // unchanged membership is not applied at all
+        source.publish(urls(5_000, 15_000));
+        assertEquals(2, subscriber.applied());
+        subscriber.close();
+        assertTrue(source.closed);
+    }
+
+    @Test
+    public void updateOverLimitShouldStillApplyRemovals() {
+        final var loadBalancer = new LoadBalancer(new RoundRobinRollingStrategy(), 3);
+        final var source = new StubSource();
+        final var subscriber = new MembershipSubscriber(loadBalancer, source);
+        subscriber.start();
+        source.publish(List.of("a", "b"));
+        source.publish(List.of("b", "c", "d", "e"));
+        assertEquals(1, subscriber.rejected());
+        assertFalse(loadBalancer.contains("a"));
+        assertTrue(loadBalancer.contains("b"));
+        assertEquals(List.of("b", "c", "d"), loadBalancer.members());
+        source.publish(List.of("c", "d", "e"));
+        assertEquals(Set.of("c", "d", "e"), Set.copyOf(loadBalancer.members()));
+        assertFalse(loadBalancer.apply(List.of("f"), List.of()));
+        assertTrue(loadBalancer.apply(List.of("f"), List.of("c")));
+        assertEquals(List.of("d", "e", "f"), loadBalancer.members());
+    }
+
+    @Test
+    public void applyShouldKeepOrderAndIgnoreNoOps() {
+        final var loadBalancer = new LoadBalancer(new RoundRobinRollingStrategy(), 10);
+        assertTrue(loadBalancer.apply(List.of("1", "2", "3", "4"), List.of()));
+        assertTrue(loadBalancer.apply(List.of("2", "5"), List.of("3", "missing")));
+        assertEquals(List.of("1", "2", "4", "5"), loadBalancer.members());
+        assertThrows(IllegalArgumentException.class, () -> loadBalancer.register(null));
+        assertThrows(IllegalArgumentException.class, () -> loadBalancer.apply(null, List.of()));
+    }
+
+    @Test
+    public void discoveredZonesShouldDriveZoneAwareRouting() {
+        final var loadBalancer = new LoadBalancer(new ZoneAwareRollingStrategy("a"), 10);
+        final var source = new StubSource();
+        final var subscriber = new MembershipSubscriber(loadBalancer, source);
+        subscriber.start();
+        source.publishBackends(List.of(new Backend("a0", "a", Map.of()), new Backend("b0", "b", Map.of())));
+        for (int i = 0; i < 100; i++) {
+            assertEquals("a0", loadBalancer.next());
+        }
+        // a0 moves to zone b and is replaced in place, both keep the health the balancer set
+        loadBalancer.setHealthy("a0", false);
+        loadBalancer.setHealthy("b0", false);
+        source.publishBackends(List.of(new Backend("a0", "b", Map.of("version", "2")), new Backend("b0", "b", Map.of())));
+        assertEquals(2, subscriber.applied());
+        assertEquals(new Backend("a0", "b", Map.of("version", "2"), false), loadBalancer.backend("a0").orElseThrow());
+        assertEquals(List.of("a0", "b0"), loadBalancer.members());
+        assertFalse(loadBalancer.backend("b0").orElseThrow().healthy());
+        loadBalancer.setHealthy("a0", true);
+        source.publishBackends(List.of(new Backend("a0", "b", Map.of("version", "2")), new Backend("b0", "b", Map.of())));
+        assertEquals(2, subscriber.applied());
+        assertEquals("a0", loadBalancer.next());
+    }
+
+    @Test
+    public void watchedFileShouldDriveMembership() throws Exception {
+        final var file = directory.resolve("backends.txt");
+        Files.writeString(file, "http://a zone=a\n# comment\n\nhttp://b  zone=b version=2 canary\n");
+        final var loadBalancer = new LoadBalancer(new RoundRobinRollingStrategy(), 10);
+        try (var subscriber = new MembershipSubscriber(loadBalancer, new WatchedFileDiscoverySource(file, true))) {
+            subscriber.start();
+            assertEquals(List.of("http://a", "http://b"), loadBalancer.members());
+            assertEquals(new Backend("http://b", "b", Map.of("version", "2", "canary", "")),
+                    loadBalancer.backend("http://b").orElseThrow());
+            final var temporary = directory.resolve("backends.tmp");
+            Files.writeString(temporary, "http://b\nhttp://c\n");
+            Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            awaitMembers(loadBalancer, List.of("http://b", "http://c"));
+            Files.delete(file);
+            awaitMembers(loadBalancer, List.of());
+        }
+    }
+
+    @Test
+    public void emptyFileShouldNotBeDelivered() throws Exception {
+        final var file = directory.resolve("backends.txt");
+        Files.writeString(file, "http://a\n");
+        final var seen = new CopyOnWriteArrayList<Set<String>>();
+        try (var source = new WatchedFileDiscoverySource(file)) {
+            source.start(backends -> seen.add(backends.stream().map(Backend::url).collect(Collectors.toSet())));
+            Files.writeString(file, "");
+            Files.delete(file);
+            final var temporary = directory.resolve("backends.tmp");
+            Files.writeString(temporary, "http://a\nhttp://b\n");
+            Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            final var deadline = System.currentTimeMillis() + 10_000;
+            while (!seen.get(seen.size() - 1).equals(Set.of("http://a", "http://b"))
+                    && System.currentTimeMillis() < deadline) {
+                Thread.sleep(20);
+            }
+        }
+        assertEquals(Set.of("http://a"), seen.get(0));
+        assertEquals(Set.of("http://a", "http://b"), seen.get(seen.size() - 1));
+        assertTrue(seen.stream().noneMatch(Set::isEmpty));
+    }
+
+    private static void awaitMembers(LoadBalancer loadBalancer, List<String> expected) throws InterruptedException {
+        final var deadline = System.currentTimeMillis() + 10_000;
+        while (!loadBalancer.members().equals(expected) && System.currentTimeMillis() < deadline) {
+            Thread.sleep(20);
+        }
+        assertEquals(expected, loadBalancer.members());
+    }
+
+    private static Set<String> urls(int from, int to) {
+        return IntStream.range(from, to).mapToObj(i -> "http://10.0." + (i / 256) + "." + (i % 256))
+                .collect(Collectors.toSet());
+    }
+}
@@ -0,0 +1,70 @@
+package com.example.rev.lb;
+
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.stream.IntStream;
+
+/*
+    Fairness versus throughput of the shared and the striped round robin, not a unit test.
+    Run with: java -cp <test classes>:<classes> com.example.rev.lb.RoundRobinBenchmark [maxThreads] [millis]
+    For every thread count it prints calls per second and the spread of calls per backend:
+    (max - min) / mean, 0 being perfectly even. Numbers need as many cores as threads to mean anything.
+ */
+public class RoundRobinBenchmark {
+
+    private static final List<String> BACKENDS = IntStream.range(0, 10).mapToObj(i -> "backend-" + i).toList();
+
+    public static void main(String[] args) throws InterruptedException {
+        final var maxThreads = args.length > 0 ? Integer.parseInt(args[0]) : 64;
+        final var millis = args.length > 1 ? Long.parseLong(args[1]) : 1_000;
+        System.out.printf("%-8s %-8s %14s %8s%n", "threads", "mode", "calls/s", "spread");
+        for (int threads = 1; threads <= maxThreads; threads *= 2) {
+            run("shared", new RoundRobinRollingStrategy(), threads, millis);
+            run("striped", new StripedRoundRobinRollingStrategy(), threads, millis);
+        }
+    }
+
+    private static void run(String mode, RollingStrategy strategy, int threads, long millis) throws InterruptedException {
+        // warm up, then measure
+        measure(strategy, threads, millis / 4);
+        final var counts = measure(strategy, threads, millis);
+        var total = 0L;
+        var max = Long.MIN_VALUE;
+        var min = Long.MAX_VALUE;
+        for (int i = 0; i < counts.length(); i++) {
+            total += counts.get(i);
+            max = Math.max(max, counts.get(i));
+            min = Math.min(min, counts.get(i));
+        }
+        final var mean = (double) total / counts.length();
+        System.out.printf("%-8d %-8s %,14.0f %8.5f%n", threads, mode, total * 1000.0 / millis, (max - min) / mean);
+    }
+
+    private static AtomicLongArray measure(RollingStrategy strategy, int threads, long millis) throws InterruptedException {
+        final var counts = new AtomicLongArray(BACKENDS.size());
+        final var stop = new AtomicBoolean();
+        final var done = new CountDownLatch(threads);
+        for (int t = 0; t < threads; t++) {
+            final var worker = new Thread(() -> {
+                // counted locally, a shared tally would be the contention we are measuring
+                final var local = new long[BACKENDS.size()];
+                while (!stop.get()) {
+                    final var backend = strategy.next(BACKENDS);
+                    local[backend.charAt(backend.length() - 1) - '0']++;
+                }
+                for (int i = 0; i < local.length; i++) {
+                    counts.addAndGet(i, local[i]);
+                }
+                done.countDown();
+            });
+            worker.start();
+        }
+        Thread.sleep(millis);
+        stop.set(true);
+        done.await(10, TimeUnit.SECONDS);
+        return counts;
+    }
+}
@@ -0,0 +1,64 @@
+package com.example.rev.lb;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class StripedRoundRobinRollingStrategyTest {
+
+    @Test
+    public void oneThreadShouldCycleThroughAllElements() {
+        final var strategy = new StripedRoundRobinRollingStrategy(new StripedCounter(4));
+        final var elements = List.of("1", "2", "3");
+        final var first = strategy.next(elements);
+        for (int i = 0; i < 5; i++) {
+            final var seen = new HashSet<String>();
+            seen.add(i == 0 ? first : strategy.next(elements));
+            seen.add(strategy.next(elements));
+            seen.add(strategy.next(elements));
+            assertEquals(3, seen.size());
+        }
+    }
+
+    @Test
+    public void countsShouldStayWithinStripesUnderConcurrency() throws InterruptedException {
+        final var counter = new StripedCounter(8);
+        final var strategy = new StripedRoundRobinRollingStrategy(counter);
+        final var elements = List.of("a", "b", "c", "d", "e");
+        final var counts = new ConcurrentHashMap<String, LongAdder>();
+        final var threads = 8;
+        final var done = new CountDownLatch(threads);
+        final var executor = Executors.newFixedThreadPool(threads);
+        for (int t = 0; t < threads; t++) {
+            executor.submit(() -> {
+                for (int i = 0; i < 10_000; i++) {
+                    counts.computeIfAbsent(strategy.next(elements), key -> new LongAdder()).increment();
+                }
+                done.countDown();
+            });
+        }
+        assertTrue(done.await(10, TimeUnit.SECONDS));
+        executor.shutdown();
+        final var sums = counts.values().stream().map(LongAdder::sum).toList();
+        assertEquals(5, sums.size());
+        assertEquals(80_000, sums.stream().mapToLong(Long::longValue).sum());
+        assertTrue(Collections.max(sums) - Collections.min(sums) <= counter.stripes());
+    }
+
+    @Test
+    public void nextShouldFail() {
+        assertThrows(IllegalArgumentException.class,
+                () -> new StripedRoundRobinRollingStrategy().next(Collections.emptyList()));
+        assertThrows(IllegalArgumentException.class, () -> new StripedCounter(0));
+        assertEquals(8, new StripedCounter(5).stripes());
+    }
+}
@@ -0,0 +1,157 @@
+package com.example.rev.lb;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ZoneAwareRollingStrategyTest {
+
+    private static final int DRAWS = 100_000;
+
+    @Test
+    public void healthyLocalZoneShouldTakeAllTraffic() {
+        final var loadBalancer = balancer(new ZoneAwareRollingStrategy("a"), 3, 3, 3);
+        final var shares = zoneShares(loadBalancer);
+        assertEquals(1.0, shares.get("a"), 1e-9);
+    }
+
+    @Test
+    public void shortLocalZoneShouldSpillToSpareCapacity() {
+        final var loadBalancer = balancer(new ZoneAwareRollingStrategy("a"), 4, 4, 4);
+        loadBalancer.setHealthy("a0", false);
+        loadBalancer.setHealthy("a1", false);
+        // capacity a 2/10, b and c 4/10 each, demand 1/3 each: a keeps 0.6 and b, c get 0.2 each
+        final var shares = zoneShares(loadBalancer);
+        assertEquals(0.6, shares.get("a"), 0.01);
+        assertEquals(0.2, shares.get("b"), 0.01);
+        assertEquals(0.2, shares.get("c"), 0.01);
+        assertFalse(shares.containsKey("a0") || shares.containsKey("a1"));
+    }
+
+    @Test
+    public void spillShouldFollowSpareCapacityNotSize() {
+        final var loadBalancer = balancer(new ZoneAwareRollingStrategy("a"), 2, 2, 4);
+        loadBalancer.setHealthy("a0", false);
+        // capacity a 1/7, b 2/7, c 4/7, demand 1/4, 1/4, 1/2: b has 1/28 spare and c 2/28
+        final var shares = zoneShares(loadBalancer);
+        assertEquals(4.0 / 7, shares.get("a"), 0.01);
+        assertEquals(1.0 / 7, shares.get("b"), 0.01);
+        assertEquals(2.0 / 7, shares.get("c"), 0.01);
+    }
+
+    @Test
+    public void callersPerZoneShouldDriveDemand() {
+        // most callers run in a, its 2 of 6 backends can only take a third of their traffic
+        final var strategy = new ZoneAwareRollingStrategy("a", Map.of("a", 8, "b", 1, "c", 1));
+        final var shares = zoneShares(balancer(strategy, 2, 2, 2));
+        assertEquals(1.0 / 3 / 0.8, shares.get("a"), 0.01);
+    }
+
+    @Test
+    public void missingLocalZoneShouldSpreadByCapacity() {
+        final var shares = zoneShares(balancer(new ZoneAwareRollingStrategy("x"), 1, 3));
+        assertEquals(0.25, shares.get("a"), 0.01);
+        assertEquals(0.75, shares.get("b"), 0.01);
+    }
+
+    @Test
+    public void routeShouldFollowMembershipChanges() {
+        final var loadBalancer = balancer(new ZoneAwareRollingStrategy("a"), 1, 1);
+        assertEquals("a0", loadBalancer.next());
+        loadBalancer.unregister("a0");
+        assertEquals("b0", loadBalancer.next());
+        loadBalancer.registerBackend(new Backend("a1", "a", Map.of()));
+        assertEquals("a1", loadBalancer.next());
+    }
+
+    @Test
+    public void allUnhealthyShouldFallBackToEveryMember() {
+        final var loadBalancer = balancer(new ZoneAwareRollingStrategy("a"), 1, 1);
+        loadBalancer.setHealthy("a0", false);
+        loadBalancer.setHealthy("b0", false);
+        final var seen = new HashMap<String, Integer>();
+        for (int i = 0; i < 1_000; i++) {
+            seen.merge(loadBalancer.next(), 1, Integer::sum);
+        }
+        assertEquals(2, seen.size());
+    }
+
+    @Test
+    public void metadataShouldBeKeptByLoadBalancer() {
+        final var loadBalancer = new LoadBalancer(new RoundRobinRollingStrategy(), 10);
+        assertTrue(loadBalancer.registerBackend(new Backend("1", "a", Map.of("version", "2"))));
+        assertTrue(loadBalancer.register("2"));
+        assertFalse(loadBalancer.registerBackend(new Backend("1", "b", Map.of())));
+        assertEquals("a", loadBalancer.backend("1").orElseThrow().zone());
+        assertEquals("2", loadBalancer.backend("1").orElseThrow().tags().get("version"));
+        assertEquals(Backend.UNKNOWN_ZONE, loadBalancer.backend("2").orElseThrow().zone());
+        assertTrue(loadBalancer.backend("3").isEmpty());
+        assertTrue(loadBalancer.setHealthy("1", false));
+        assertFalse(loadBalancer.setHealthy("3", false));
+        assertEquals(List.of("1", "2"), loadBalancer.members());
+        assertEquals("2", loadBalancer.next());
+        assertEquals("2", loadBalancer.next());
+    }
+
+    @Test
+    public void routeShouldBeBuiltOnSwapNotOnNext() {
+        final var builds = new ArrayList<List<Backend>>();
+        final var strategy = new ZoneAwareRollingStrategy("a") {
+            @Override
+            public void backendsChanged(List<Backend> backends) {
+                builds.add(backends);
+                super.backendsChanged(backends);
+            }
+        };
+        final var loadBalancer = balancer(strategy, 2, 2);
+        assertEquals(5, builds.size());
+        for (int i = 0; i < 1_000; i++) {
+            assertTrue(loadBalancer.next().startsWith("a"));
+        }
+        assertEquals(5, builds.size());
+        loadBalancer.setHealthy("a0", false);
+        loadBalancer.setHealthy("a1", false);
+        assertEquals(7, builds.size());
+        assertSame(loadBalancer.backends(), builds.get(6));
+        assertTrue(loadBalancer.next().startsWith("b"));
+        // no change, no build
+        loadBalancer.setHealthy("a1", false);
+        assertEquals(7, builds.size());
+    }
+
+    @Test
+    public void invalidArgumentsShouldBeRejected() {
+        assertThrows(IllegalArgumentException.class, () -> new ZoneAwareRollingStrategy(null));
+        assertThrows(IllegalArgumentException.class, () -> new ZoneAwareRollingStrategy("a", Map.of("a", 0)));
+        assertThrows(IllegalArgumentException.class, () -> new Backend("1", null, Map.of()));
+    }
+
+    // zones named a, b, c... with the given number of backends each, urls are the zone and an index
+    private static LoadBalancer balancer(RollingStrategy strategy, int... perZone) {
+        final var loadBalancer = new LoadBalancer(strategy, 100);
+        for (int zone = 0; zone < perZone.length; zone++) {
+            final var name = String.valueOf((char) ('a' + zone));
+            for (int i = 0; i < perZone[zone]; i++) {
+                assertTrue(loadBalancer.registerBackend(new Backend(name + i, name, Map.of())));
+            }
+        }
+        return loadBalancer;
+    }
+
+    private static Map<String, Double> zoneShares(LoadBalancer loadBalancer) {
+        final var counts = new HashMap<String, Integer>();
+        for (int i = 0; i < DRAWS; i++) {
+            final var url = loadBalancer.next();
+            counts.merge(url.substring(0, 1), 1, Integer::sum);
+            counts.merge(url, 1, Integer::sum);
+        }
+        final var shares = new HashMap<String, Double>();
+        counts.forEach((key, count) -> shares.put(key, (double) count / DRAWS));
+        return shares;
+    }
+}
@@ -0,0 +1,112 @@
+package com.example.rev.ledger;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AccountStoreTest {
+
+    @Test
+    public void openShouldAssignSequentialIds() {
+        final var store = new AccountStore(10);
+        assertEquals(0, store.open(100));
+        assertEquals(1, store.open(0));
+        assertEquals(2, store.size());
+        assertEquals(100, store.balance(0));
+    }
+
+    @Test
+    public void openShouldFailWhenFull() {
+        final var store = new AccountStore(1);
+        store.open(0);
+        assertThrows(IllegalStateException.class, () -> store.open(0));
+        assertEquals(1, store.size());
+    }
+
+    @Test
+    public void openShouldFailOnNegativeBalance() {
+        final var store = new AccountStore(1);
+        assertThrows(IllegalArgumentException.class, () -> store.open(-1));
+    }
+
+    @Test
+    public void shouldFailOnUnknownAccount() {
+        final var store = new AccountStore(10);
+        store.open(10);
+        assertThrows(IllegalArgumentException.class, () -> store.balance(1));
+        assertThrows(IllegalArgumentException.class, () -> store.transfer(0, 5, 1));
+        assertThrows(IllegalArgumentException.class, () -> store.deposit(-1, 1));
+    }
+
+    @Test
+    public void depositAndWithdraw() {
+        final var store = new AccountStore(10);
+        final var id = store.open(100);
+        assertTrue(store.deposit(id, 50));
+        assertTrue(store.withdraw(id, 120));
+        assertFalse(store.withdraw(id, 31));
+        assertFalse(store.deposit(id, -1));
+        assertEquals(30, store.balance(id));
+    }
+
+    @Test
+    public void transferShouldMoveMoney() {
+        final var store = new AccountStore(10);
+        final var from = store.open(100);
+        final var to = store.open(0);
+        assertTrue(store.transfer(from, to, 40));
+        assertEquals(60, store.balance(from));
+        assertEquals(40, store.balance(to));
+    }
+
+    @Test
+    public void transferShouldRejectInsufficientFundsZeroAndSelf() {
+        final var store = new AccountStore(10);
+        final var from = store.open(100);
+        final var to = store.open(0);
+        assertFalse(store.transfer(from, to, 101));
+        assertFalse(store.transfer(from, to, 0));
+        assertFalse(store.transfer(from, from, 10));
+        assertEquals(100, store.balance(from));
+        assertEquals(0, store.balance(to));
+    }
+
+    @Test
+    public void transferWithinSameStripe() {
+        final var store = new AccountStore(10, 1);
+        final var from = store.open(100);
+        final var to = store.open(0);
+        assertTrue(store.transfer(from, to, 100));
+        assertEquals(100, store.balance(to));
+    }
+
+    @Test
+    public void concurrentTransfersShouldHoldInvariants() throws InterruptedException {
+        final var accounts = 64;
+        final var store = new AccountStore(accounts, 8);
+        for (int i = 0; i < accounts; i++) {
+            store.open(1000);
+        }
+        final var nThreads = 8;
+        final var executorService = Executors.newFixedThreadPool(nThreads);
+        for (int t = 0; t < nThreads; t++) {
+            final var seed = t;
+            executorService.submit(() -> {
+                for (int i = 0; i < 10000; i++) {
+                    store.transfer((seed + i) % accounts, (seed * 7 + i * 3) % accounts, 7);
+                }
+            });
+        }
+        executorService.shutdown();
+        assertTrue(executorService.awaitTermination(10000, TimeUnit.MILLISECONDS));
+        var total = 0L;
+        for (int i = 0; i < accounts; i++) {
+            assertTrue(store.balance(i) >= 0);
+            total += store.balance(i);
+        }
+        assertEquals(1000L * accounts, total);
+    }
+}
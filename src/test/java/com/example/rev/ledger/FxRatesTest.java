@@ -0,0 +1,158 @@
+package com.example.rev.ledger;
+
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.Currency;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class FxRatesTest {
+
+    private static final Currency USD = Currency.getInstance("USD");
+    private static final Currency EUR = Currency.getInstance("EUR");
+    private static final Currency JPY = Currency.getInstance("JPY");
+
+    private FxRates rates() {
+        final var rates = new FxRates();
+        rates.update(Map.of(
+                new FxRates.CurrencyPair(EUR, USD), new BigDecimal("1.0850"),
+                new FxRates.CurrencyPair(USD, EUR), new BigDecimal("0.9217"),
+                new FxRates.CurrencyPair(USD, JPY), new BigDecimal("151.37")
+        ));
+        return rates;
+    }
+
+    @Test
+    public void convertShouldApplyRateAndMinorUnits() {
+        final var rates = rates();
+        assertEquals(10850, rates.convert(EUR, USD, 10000));
+        assertEquals(9217, rates.convert(USD, EUR, 10000));
+        // 100.00 USD -> 15137 JPY, JPY has no minor unit
+        assertEquals(15137, rates.convert(USD, JPY, 10000));
+        assertEquals(2, rates.convert(USD, JPY, 1));
+        assertEquals(10000, rates.convert(USD, USD, 10000));
+    }
+
+    @Test
+    public void convertShouldRoundHalfUp() {
+        final var rates = new FxRates();
+        rates.update(Map.of(new FxRates.CurrencyPair(USD, EUR), new BigDecimal("0.5")));
+        assertEquals(1, rates.convert(USD, EUR, 1));
+        assertEquals(2, rates.convert(USD, EUR, 3));
+    }
+
+    @Test
+    public void convertShouldMatchBigDecimalForLargeAmounts() {
+        final var rates = rates();
+        final var amount = 123_456_789_012_345L;
+        final var expected = new BigDecimal(amount).multiply(new BigDecimal("1.0850"))
+                .setScale(0, java.math.RoundingMode.HALF_UP).longValueExact();
+        assertEquals(expected, rates.convert(EUR, USD, amount));
+    }
+
+    @Test
+    public void convertShouldMatchBigDecimalForRatesBelowHalf() {
+        // a minor-unit rate in [0.25, 0.5) is normalized with a shift of exactly 64
+        final var aed = Currency.getInstance("AED");
+        final var rates = new FxRates();
+        rates.update(Map.of(
+                new FxRates.CurrencyPair(aed, USD), new BigDecimal("0.2723"),
+                new FxRates.CurrencyPair(USD, EUR), new BigDecimal("0.4999")
+        ));
+        assertEquals(2723, rates.convert(aed, USD, 10000));
+        for (final var amount : new long[]{0, 1, 2, 3, 7, 10000, 123_456_789L, Long.MAX_VALUE}) {
+            assertEquals(new BigDecimal(amount).multiply(new BigDecimal("0.2723"))
+                    .setScale(0, java.math.RoundingMode.HALF_UP).longValueExact(), rates.convert(aed, USD, amount));
+            assertEquals(new BigDecimal(amount).multiply(new BigDecimal("0.4999"))
+                    .setScale(0, java.math.RoundingMode.HALF_UP).longValueExact(), rates.convert(USD, EUR, amount));
+        }
+    }
+
+    @Test
+    public void convertShouldRoundExactTiesHalfUp() {
+        // 145 EUR cents at 531.543 CLF per EUR are exactly 7707373.5 CLF minor units
+        final var clf = Currency.getInstance("CLF");
+        final var rates = new FxRates();
+        rates.update(Map.of(new FxRates.CurrencyPair(EUR, clf), new BigDecimal("531.543")));
+        assertEquals(7707374, rates.convert(EUR, clf, 145));
+        assertEquals(7654219, rates.convert(EUR, clf, 144));
+        assertEquals(7760528, rates.convert(EUR, clf, 146));
+    }
+
+    @Test
+    public void convertShouldMatchBigDecimalForRandomRates() {
+        final var random = new Random(42);
+        final var currencies = new Currency[]{USD, EUR, JPY, Currency.getInstance("CLF"), Currency.getInstance("BHD")};
+        for (int i = 0; i < 20_000; i++) {
+            final var from = currencies[random.nextInt(currencies.length)];
+            final var to = currencies[random.nextInt(currencies.length)];
+            if (from.equals(to)) {
+                continue;
+            }
+            final var rate = BigDecimal.valueOf(1 + random.nextInt(10_000_000), random.nextInt(7));
+            final var amount = random.nextBoolean() ? random.nextInt(1000) : random.nextLong() >>> (1 + random.nextInt(60));
+            final var rates = new FxRates();
+            rates.update(Map.of(new FxRates.CurrencyPair(from, to), rate));
+            final var expected = new BigDecimal(amount).multiply(rate)
+                    .scaleByPowerOfTen(to.getDefaultFractionDigits() - from.getDefaultFractionDigits())
+                    .setScale(0, RoundingMode.HALF_UP);
+            if (expected.compareTo(BigDecimal.valueOf(Long.MAX_VALUE)) > 0) {
+                continue;
+            }
+            assertEquals(expected.longValueExact(), rates.convert(from, to, amount),
+                    amount + " " + from + " -> " + to + " at " + rate);
+        }
+    }
+
+    @Test
+    public void convertShouldFailWithoutRate() {
+        final var rates = rates();
+        assertFalse(rates.supports(JPY, EUR));
+        assertThrows(IllegalArgumentException.class, () -> rates.convert(JPY, EUR, 100));
+        assertThrows(IllegalArgumentException.class, () -> new FxRates().convert(USD, EUR, 100));
+    }
+
+    @Test
+    public void convertShouldFailOnOverflow() {
+        final var rates = rates();
+        assertThrows(ArithmeticException.class, () -> rates.convert(USD, JPY, Long.MAX_VALUE));
+    }
+
+    @Test
+    public void updateShouldSwapSnapshot() {
+        final var rates = rates();
+        rates.update(Map.of(new FxRates.CurrencyPair(EUR, USD), new BigDecimal("2")));
+        assertEquals(200, rates.convert(EUR, USD, 100));
+        assertFalse(rates.supports(USD, EUR));
+    }
+
+    @Test
+    public void updateShouldFailOnInvalidRate() {
+        final var rates = new FxRates();
+        assertThrows(IllegalArgumentException.class,
+                () -> rates.update(Map.of(new FxRates.CurrencyPair(USD, EUR), BigDecimal.ZERO)));
+        assertThrows(IllegalArgumentException.class, () -> rates.update(null));
+    }
+
+    @Test
+    public void ledgerShouldTransferAcrossCurrencies() {
+        final var store = new AccountStore(10);
+        final var usd = store.open(USD, 10000);
+        final var eur = store.open(EUR, 0);
+        final var untagged = store.open(100);
+        final var ledger = new Ledger(store, new TransactionLog(), null, rates());
+
+        assertEquals(USD, store.currency(usd));
+        assertNull(store.currency(untagged));
+        assertTrue(ledger.transfer(usd, eur, 6000L));
+        assertEquals(4000, store.balance(usd));
+        assertEquals(5530, store.balance(eur));
+        assertEquals(5530, ledger.statement(eur, 0, 1).entries().get(0).amount());
+        assertThrows(IllegalArgumentException.class, () -> ledger.transfer(usd, untagged, 10L));
+        assertThrows(IllegalStateException.class, () -> new Ledger(store).transfer(usd, eur, 10L));
+    }
+}
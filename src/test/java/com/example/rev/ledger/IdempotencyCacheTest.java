@@ -0,0 +1,92 @@
+package com.example.rev.ledger;
+
+import com.example.rev.MutableClock;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class IdempotencyCacheTest {
+
+    @Test
+    public void shouldRunOperationOncePerId() {
+        final var cache = new IdempotencyCache(100, Duration.ofMinutes(1));
+        final var calls = new AtomicInteger();
+        assertTrue(cache.computeIfAbsent(1, () -> calls.incrementAndGet() > 0));
+        assertTrue(cache.computeIfAbsent(1, () -> calls.incrementAndGet() > 0));
+        assertFalse(cache.computeIfAbsent(0, () -> calls.incrementAndGet() < 0));
+        assertFalse(cache.computeIfAbsent(0, () -> calls.incrementAndGet() > 0));
+        assertEquals(2, calls.get());
+    }
+
+    @Test
+    public void shouldForgetIdsAfterWindow() {
+        final var clock = new MutableClock();
+        final var cache = new IdempotencyCache(100, Duration.ofMillis(300), 1, clock);
+        final var calls = new AtomicInteger();
+        cache.computeIfAbsent(42, () -> calls.incrementAndGet() > 0);
+        clock.advance(300);
+        cache.computeIfAbsent(42, () -> calls.incrementAndGet() > 0);
+        assertEquals(1, calls.get());
+        clock.advance(200);
+        cache.computeIfAbsent(42, () -> calls.incrementAndGet() > 0);
+        assertEquals(2, calls.get());
+    }
+
+    @Test
+    public void shouldStayWithinCapacity() {
+        final var clock = new MutableClock();
+        final var cache = new IdempotencyCache(16, Duration.ofHours(1), 1, clock);
+        final var calls = new AtomicInteger();
+        for (int i = 0; i < 10_000; i++) {
+            cache.computeIfAbsent(i, () -> calls.incrementAndGet() > 0);
+        }
+        cache.computeIfAbsent(9_999, () -> calls.incrementAndGet() > 0);
+        assertEquals(10_000, calls.get());
+        cache.computeIfAbsent(0, () -> calls.incrementAndGet() > 0);
+        assertEquals(10_001, calls.get());
+    }
+
+    @Test
+    public void shouldFailOnInvalidArguments() {
+        assertThrows(IllegalArgumentException.class, () -> new IdempotencyCache(0, Duration.ofSeconds(1)));
+        assertThrows(IllegalArgumentException.class, () -> new IdempotencyCache(10, null));
+        assertThrows(IllegalArgumentException.class, () -> new IdempotencyCache(10, Duration.ZERO));
+    }
+
+    @Test
+    public void retriedTransferShouldNotDoublePost() throws InterruptedException {
+        final var store = new AccountStore(10);
+        final var from = store.open(1000);
+        final var to = store.open(0);
+        final var ledger = new Ledger(store, null, new IdempotencyCache(1000, Duration.ofMinutes(1)));
+        final var nThreads = 10;
+        final var start = new CountDownLatch(1);
+        final var executorService = Executors.newFixedThreadPool(nThreads);
+        for (int i = 0; i < nThreads; i++) {
+            executorService.submit(() -> {
+                start.await();
+                for (long transferId = 0; transferId < 100; transferId++) {
+                    assertTrue(ledger.transfer(transferId, from, to, 5));
+                }
+                return null;
+            });
+        }
+        start.countDown();
+        executorService.shutdown();
+        assertTrue(executorService.awaitTermination(10, TimeUnit.SECONDS));
+        assertEquals(500, store.balance(from));
+        assertEquals(500, store.balance(to));
+    }
+
+    @Test
+    public void transferWithIdShouldFailWithoutCache() {
+        final var store = new AccountStore(10);
+        assertThrows(IllegalStateException.class, () -> new Ledger(store).transfer(1L, 0, 1, 10));
+    }
+}
@@ -0,0 +1,218 @@
+package com.example.rev.ledger;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadInfo;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+/*
+    Runs random transfers from many threads against a ledger engine and checks invariants:
+    - total money is conserved,
+    - no balance is ever observed negative (a monitor thread scans balances while transfers run),
+    - the run finishes within the timeout, otherwise it fails with a thread dump.
+    Reports throughput and p99 latency, so ledger implementations can be compared with each other.
+ */
+class LedgerStressHarness {
+
+    interface Engine {
+        String name();
+
+        int accounts();
+
+        boolean transfer(int fromId, int toId, long amount);
+
+        long balance(int id);
+    }
+
+    record Report(String engine, int threads, long operations, long succeeded, double opsPerSecond, long p99Nanos) {
+        @Override
+        public String toString() {
+            return String.format("%-14s threads=%-3d ops=%-9d ok=%-9d %,.0f ops/s p99=%,dns",
+                    engine, threads, operations, succeeded, opsPerSecond, p99Nanos);
+        }
+    }
+
+    private final int threads;
+    private final int operationsPerThread;
+    private final long maxAmount;
+    private final long timeoutMs;
+
+    LedgerStressHarness(int threads, int operationsPerThread, long maxAmount, long timeoutMs) {
+        this.threads = threads;
+        this.operationsPerThread = operationsPerThread;
+        this.maxAmount = maxAmount;
+        this.timeoutMs = timeoutMs;
+    }
+
+    Report run(Engine engine) throws InterruptedException {
+        final var totalBefore = total(engine);
+        final var executorService = Executors.newFixedThreadPool(threads);
+        final var start = new CountDownLatch(1);
+        final var running = new AtomicBoolean(true);
+        final var negative = new AtomicReference<String>();
+        final var monitor = new Thread(() -> {
+            while (running.get() && negative.get() == null) {
+                for (int id = 0; id < engine.accounts(); id++) {
+                    final var balance = engine.balance(id);
+                    if (balance < 0) {
+                        negative.compareAndSet(null, "account " + id + " has balance " + balance);
+                    }
+                }
+            }
+        }, "ledger-stress-monitor");
+        final var futures = new ArrayList<Future<long[]>>();
+        for (int t = 0; t < threads; t++) {
+            final var random = new SplittableRandom(t);
+            futures.add(executorService.submit(() -> {
+                final var latencies = new long[operationsPerThread + 1];
+                start.await();
+                var succeeded = 0L;
+                for (int i = 0; i < operationsPerThread; i++) {
+                    final var from = random.nextInt(engine.accounts());
+                    final var to = random.nextInt(engine.accounts());
+                    final var amount = 1 + random.nextLong(maxAmount);
+                    final var begin = System.nanoTime();
+                    if (engine.transfer(from, to, amount)) {
+                        succeeded++;
+                    }
+                    latencies[i] = System.nanoTime() - begin;
+                }
+                latencies[operationsPerThread] = succeeded;
+                return latencies;
+            }));
+        }
+        monitor.start();
+        final var begin = System.nanoTime();
+        start.countDown();
+        executorService.shutdown();
+        if (!executorService.awaitTermination(timeoutMs, TimeUnit.MILLISECONDS)) {
+            running.set(false);
+            final var dump = threadDump();
+            executorService.shutdownNow();
+            throw new AssertionError(engine.name() + " did not finish in " + timeoutMs + "ms, possible deadlock:\n" + dump);
+        }
+        final var elapsed = System.nanoTime() - begin;
+        running.set(false);
+        monitor.join();
+
+        final var latencies = new long[threads * operationsPerThread];
+        var succeeded = 0L;
+        for (int t = 0; t < threads; t++) {
+            try {
+                final var result = futures.get(t).get();
+                System.arraycopy(result, 0, latencies, t * operationsPerThread, operationsPerThread);
+                succeeded += result[operationsPerThread];
+            } catch (Exception e) {
+                throw new AssertionError(engine.name() + " worker failed", e);
+            }
+        }
+        if (negative.get() != null) {
+            throw new AssertionError(engine.name() + ": " + negative.get());
+        }
+        final var totalAfter = total(engine);
+        if (totalBefore != totalAfter) {
+            throw new AssertionError(engine.name() + ": total changed from " + totalBefore + " to " + totalAfter);
+        }
+        Arrays.sort(latencies);
+        final var p99 = latencies.length == 0 ? 0 : latencies[(int) Math.min(latencies.length - 1, latencies.length * 0.99)];
+        return new Report(engine.name(), threads, latencies.length, succeeded,
+                latencies.length * 1_000_000_000.0 / Math.max(1, elapsed), p99);
+    }
+
+    private static long total(Engine engine) {
+        var total = 0L;
+        for (int id = 0; id < engine.accounts(); id++) {
+            total += engine.balance(id);
+        }
+        return total;
+    }
+
+    private static String threadDump() {
+        final var threadMXBean = ManagementFactory.getThreadMXBean();
+        final var builder = new StringBuilder();
+        final var deadlocked = threadMXBean.findDeadlockedThreads();
+        if (deadlocked != null) {
+            builder.append("deadlocked threads: ").append(Arrays.toString(deadlocked)).append('\n');
+        }
+        for (ThreadInfo info : threadMXBean.dumpAllThreads(true, true)) {
+            builder.append(info);
+        }
+        return builder.toString();
+    }
+
+    static Engine accountLedger(int accounts, long initialBalance) {
+        final var ledger = new Ledger();
+        final var list = new ArrayList<Account>(accounts);
+        for (int i = 0; i < accounts; i++) {
+            list.add(new Account(i, BigDecimal.valueOf(initialBalance)));
+        }
+        return new Engine() {
+            @Override
+            public String name() {
+                return "account";
+            }
+
+            @Override
+            public int accounts() {
+                return accounts;
+            }
+
+            @Override
+            public boolean transfer(int fromId, int toId, long amount) {
+                return ledger.transfer(list.get(fromId), list.get(toId), BigDecimal.valueOf(amount));
+            }
+
+            @Override
+            public long balance(int id) {
+                return list.get(id).getBalance().longValueExact();
+            }
+        };
+    }
+
+    static Engine storeLedger(String name, int accounts, long initialBalance, TransactionLog log) {
+        final var store = new AccountStore(accounts);
+        for (int i = 0; i < accounts; i++) {
+            store.open(initialBalance);
+        }
+        final var ledger = new Ledger(store, log);
+        return new Engine() {
+            @Override
+            public String name() {
+                return name;
+            }
+
+            @Override
+            public int accounts() {
+                return accounts;
+            }
+
+            @Override
+            public boolean transfer(int fromId, int toId, long amount) {
+                return ledger.transfer(fromId, toId, amount);
+            }
+
+            @Override
+            public long balance(int id) {
+                return store.balance(id);
+            }
+        };
+    }
+
+    static List<Engine> engines(int accounts, long initialBalance) {
+        return List.of(
+                accountLedger(accounts, initialBalance),
+                storeLedger("store", accounts, initialBalance, null),
+                storeLedger("store+log", accounts, initialBalance, new TransactionLog())
+        );
+    }
+}
@@ -0,0 +1,66 @@
+package com.example.rev.ledger;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/*
+    Defaults keep the run short, scale it up for benchmarking, e.g.
+    -Dledger.stress.threads=32 -Dledger.stress.ops=1000000 -Dledger.stress.accounts=100000
+ */
+class LedgerStressTest {
+
+    private static final int THREADS = Integer.getInteger("ledger.stress.threads", 8);
+    private static final int OPERATIONS_PER_THREAD = Integer.getInteger("ledger.stress.ops", 50_000);
+    private static final int ACCOUNTS = Integer.getInteger("ledger.stress.accounts", 1_000);
+    private static final long TIMEOUT_MS = Long.getLong("ledger.stress.timeout", 60_000L);
+
+    @Test
+    public void randomTransfersShouldHoldInvariants() throws InterruptedException {
+        final var harness = new LedgerStressHarness(THREADS, OPERATIONS_PER_THREAD, 100, TIMEOUT_MS);
+        for (var engine : LedgerStressHarness.engines(ACCOUNTS, 1_000)) {
+            final var report = harness.run(engine);
+            System.out.println(report);
+            assertEquals((long) THREADS * OPERATIONS_PER_THREAD, report.operations());
+            assertTrue(report.succeeded() > 0);
+        }
+    }
+
+    @Test
+    public void contendedTransfersShouldNotDeadlock() throws InterruptedException {
+        final var harness = new LedgerStressHarness(THREADS, OPERATIONS_PER_THREAD / 10, 10, TIMEOUT_MS);
+        for (var engine : LedgerStressHarness.engines(4, 100)) {
+            System.out.println(harness.run(engine));
+        }
+    }
+
+    @Test
+    public void shouldReportBrokenEngine() {
+        final var broken = new LedgerStressHarness.Engine() {
+            private final long[] balances = {10, 10};
+
+            @Override
+            public String name() {
+                return "broken";
+            }
+
+            @Override
+            public int accounts() {
+                return balances.length;
+            }
+
+            @Override
+            public synchronized boolean transfer(int fromId, int toId, long amount) {
+                balances[fromId] -= amount;
+                return true;
+            }
+
+            @Override
+            public synchronized long balance(int id) {
+                return balances[id];
+            }
+        };
+        final var harness = new LedgerStressHarness(2, 100, 5, TIMEOUT_MS);
+        assertThrows(AssertionError.class, () -> harness.run(broken));
+    }
+}
@@ -87,4 +87,21 @@ class LedgerTest {
         assertEquals(new BigDecimal(300000), acc1.getBalance().add(acc2.getBalance()).add(acc3.getBalance()));
     }
 
+    @Test
+    public void transferByIdShouldUseAccountStore() {
+        final var store = new AccountStore(10);
+        final var from = store.open(100);
+        final var to = store.open(0);
+        final var ledger = new Ledger(store);
+        assertTrue(ledger.transfer(from, to, 50L));
+        assertFalse(ledger.transfer(from, to, 51L));
+        assertEquals(50, store.balance(from));
+        assertEquals(50, store.balance(to));
+    }
+
+    @Test
+    public void transferByIdShouldFailWithoutAccountStore() {
+        assertThrows(IllegalStateException.class, () -> new Ledger().transfer(0, 1, 10L));
+    }
+
 }
\ No newline at end of file
@@ -0,0 +1,154 @@
+package com.example.rev.ledger;
+
+import com.example.rev.MutableClock;
+import org.junit.jupiter.api.Test;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TransactionLogTest {
+
+    @Test
+    public void balanceAtShouldBeEmptyWithoutHistory() {
+        final var log = new TransactionLog();
+        assertTrue(log.balanceAt(1, 100).isEmpty());
+    }
+
+    @Test
+    public void balanceAtShouldReplayFromCheckpoint() {
+        final var log = new TransactionLog();
+        var balance = 1000L;
+        final var records = TransactionLog.CHECKPOINT_INTERVAL * 5 + 3;
+        for (int i = 0; i < records; i++) {
+            final var amount = i % 2 == 0 ? -3L : 5L;
+            balance += amount;
+            log.append(1, i * 10L, 2, amount, balance);
+        }
+        assertEquals(1000L, log.balanceAt(1, -1).getAsLong());
+        var expected = 1000L;
+        for (int i = 0; i < records; i++) {
+            expected += i % 2 == 0 ? -3L : 5L;
+            assertEquals(expected, log.balanceAt(1, i * 10L).getAsLong());
+            assertEquals(expected, log.balanceAt(1, i * 10L + 9).getAsLong());
+        }
+        assertEquals(balance, log.balanceAt(1, Long.MAX_VALUE).getAsLong());
+    }
+
+    @Test
+    public void appendShouldClampTimestampsGoingBackwards() {
+        final var log = new TransactionLog();
+        log.append(1, 100, 2, 10, 10);
+        log.append(1, 50, 2, 10, 20);
+        assertEquals(20L, log.balanceAt(1, 100).getAsLong());
+        assertEquals(0L, log.balanceAt(1, 99).getAsLong());
+    }
+
+    @Test
+    public void statementShouldPaginate() {
+        final var log = new TransactionLog();
+        for (int i = 0; i < TransactionLog.CHUNK_SIZE + 10; i++) {
+            log.append(1, i, 2, 1, i + 1);
+        }
+        final var entries = new ArrayList<TransactionLog.Entry>();
+        var cursor = 0L;
+        var pages = 0;
+        while (cursor >= 0) {
+            final var page = log.statement(1, cursor, 50);
+            entries.addAll(page.entries());
+            cursor = page.nextCursor();
+            pages++;
+        }
+        assertEquals(3, pages);
+        assertEquals(TransactionLog.CHUNK_SIZE + 10, entries.size());
+        for (int i = 0; i < entries.size(); i++) {
+            assertEquals(new TransactionLog.Entry(i, 2, 1, i + 1), entries.get(i));
+        }
+        assertTrue(log.statement(2, 0, 10).entries().isEmpty());
+        assertThrows(IllegalArgumentException.class, () -> log.statement(1, -1, 10));
+        assertThrows(IllegalArgumentException.class, () -> log.statement(1, 0, 0));
+    }
+
+    @Test
+    public void entriesShouldStreamTimeRange() {
+        final var log = new TransactionLog();
+        for (int i = 0; i < 1000; i++) {
+            log.append(1, i, 2, 1, i + 1);
+        }
+        final var timestamps = log.entries(1, 100, 700)
+                .map(TransactionLog.Entry::timestamp)
+                .collect(Collectors.toList());
+        assertEquals(600, timestamps.size());
+        assertEquals(100L, timestamps.get(0));
+        assertEquals(699L, timestamps.get(599));
+        assertEquals(0, log.entries(1, 2000, 3000).count());
+        assertEquals(0, log.entries(3, 0, 3000).count());
+    }
+
+    @Test
+    public void ledgerShouldRecordTransfers() {
+        final var store = new AccountStore(10);
+        final var from = store.open(100);
+        final var to = store.open(0);
+        final var ledger = new Ledger(store, new TransactionLog(),
+                Clock.fixed(Instant.ofEpochMilli(1_000), ZoneOffset.UTC));
+        assertTrue(ledger.transfer(from, to, 30L));
+        assertFalse(ledger.transfer(from, to, 300L));
+
+        assertEquals(100, ledger.balanceAt(from, 999));
+        assertEquals(70, ledger.balanceAt(from, 1_000));
+        assertEquals(30, ledger.balanceAt(to, 1_000));
+        final var statement = ledger.statement(from, 0, 10).entries();
+        assertEquals(1, statement.size());
+        assertEquals(new TransactionLog.Entry(1_000, to, -30, 70), statement.get(0));
+    }
+
+    @Test
+    public void ledgerBalanceAtShouldFallBackToStoreWithoutHistory() {
+        final var store = new AccountStore(10);
+        final var id = store.open(100);
+        final var ledger = new Ledger(store, new TransactionLog());
+        assertEquals(100, ledger.balanceAt(id, 0));
+        assertThrows(IllegalStateException.class, () -> new Ledger(store).balanceAt(id, 0));
+    }
+
+    @Test
+    public void ledgerShouldRecordDepositsAndWithdrawals() {
+        final var store = new AccountStore(10);
+        final var id = store.open(0);
+        final var other = store.open(0);
+        final var clock = new MutableClock(1_000);
+        final var ledger = new Ledger(store, new TransactionLog(), clock);
+        assertTrue(ledger.deposit(id, 100));
+        clock.set(2_000);
+        assertTrue(ledger.transfer(id, other, 30L));
+        clock.set(3_000);
+        assertTrue(ledger.withdraw(id, 50));
+        assertFalse(ledger.withdraw(id, 50));
+
+        assertEquals(0, ledger.balanceAt(id, 999));
+        assertEquals(100, ledger.balanceAt(id, 1_000));
+        assertEquals(70, ledger.balanceAt(id, 2_000));
+        assertEquals(20, ledger.balanceAt(id, 3_000));
+        assertEquals(new TransactionLog.Entry(3_000, TransactionLog.EXTERNAL, -50, 20),
+                ledger.statement(id, 2, 10).entries().get(0));
+    }
+
+    @Test
+    public void ledgerBalanceAtShouldFailAfterUnloggedChanges() {
+        final var store = new AccountStore(10);
+        final var funded = store.open(0);
+        final var untouched = store.open(0);
+        final var ledger = new Ledger(store, new TransactionLog());
+        assertTrue(store.deposit(funded, 100));
+        assertFalse(store.untracked(untouched));
+        assertTrue(store.untracked(funded));
+
+        assertThrows(IllegalStateException.class, () -> ledger.balanceAt(funded, 0));
+        assertEquals(0, ledger.balanceAt(untouched, 0));
+    }
+}
@@ -0,0 +1,86 @@
+package com.example.rev.puzzle;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BatchSolverTest {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    public void answersShouldFollowInputOrderAcrossBuffersAndChunks() throws Exception {
+        final var grid = new Grid(3, 3);
+        final var random = new Random(11);
+        final var boards = new StringBuilder();
+        final var expected = new StringBuilder();
+        final var reference = new IdaStarSolver(grid, new ManhattanHeuristic(grid, true));
+        var unsolvable = 0;
+        for (int i = 0; i < 500; i++) {
+            final var tiles = shuffled(random, 9);
+            // separators and line endings vary, blank lines are skipped
+            boards.append(tiles[0]).append(' ').append(tiles[1]).append(',').append(tiles[2]).append(';')
+                    .append(tiles[3]).append('\t').append(tiles[4]).append(' ').append(tiles[5]).append(";  ")
+                    .append(tiles[6]).append(' ').append(tiles[7]).append(' ').append(tiles[8])
+                    .append(i % 3 == 0 ? "\r\n" : "\n").append(i % 50 == 0 ? "\n" : "");
+            final var answer = reference.solve(grid.pack(tiles));
+            expected.append(answer).append('\n');
+            if (answer == -1) {
+                unsolvable++;
+            }
+        }
+        // the last line has no newline
+        boards.setLength(boards.length() - 1);
+        final var input = directory.resolve("boards.txt");
+        final var output = directory.resolve("answers.txt");
+        Files.writeString(input, boards);
+        final var pool = new ForkJoinPool(4);
+        try {
+            final var report = new BatchSolver(grid, DistanceTable.build(grid), pool, 64, 37).solve(input, output);
+            assertEquals(500, report.boards());
+            assertEquals(unsolvable, report.unsolvable());
+            assertTrue(report.boardsPerSecond() > 0);
+            assertEquals(expected.toString(), Files.readString(output, StandardCharsets.US_ASCII));
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    public void malformedLinesShouldBeReportedWithTheirNumber() throws Exception {
+        final var grid = new Grid(2, 3);
+        final var solver = new BatchSolver(grid, DistanceTable.build(grid), ForkJoinPool.commonPool());
+        final var input = directory.resolve("boards.txt");
+        final var output = directory.resolve("answers.txt");
+        for (final var bad : new String[]{"1 2 3 4 0\n", "1 2 3 4 5 0 1\n", "1 2 3 4 5 6\n", "1 2 3 4 4 0\n", "1 2 x 4 5 0\n"}) {
+            Files.writeString(input, "1 2 3 4 0 5\n\n" + bad);
+            final var error = assertThrows(IllegalArgumentException.class, () -> solver.solve(input, output));
+            assertTrue(error.getMessage().startsWith("Line 3"), error.getMessage());
+        }
+        Files.writeString(input, "");
+        assertEquals(0, solver.solve(input, output).boards());
+        assertEquals("", Files.readString(output));
+    }
+
+    private static int[] shuffled(Random random, int cells) {
+        final var tiles = new int[cells];
+        for (int i = 0; i < cells; i++) {
+            tiles[i] = i;
+        }
+        for (int i = cells - 1; i > 0; i--) {
+            final var j = random.nextInt(i + 1);
+            final var tile = tiles[i];
+            tiles[i] = tiles[j];
+            tiles[j] = tile;
+        }
+        return tiles;
+    }
+}
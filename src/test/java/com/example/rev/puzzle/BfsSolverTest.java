@@ -0,0 +1,71 @@
+package com.example.rev.puzzle;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BfsSolverTest {
+
+    @Test
+    public void shouldFindFewestMovesOnTwoByThree() {
+        final var grid = new Grid(2, 3);
+        final var solver = new BfsSolver(grid);
+        assertEquals(0, solver.solve(grid.pack(List.of(List.of(1, 2, 3), List.of(4, 5, 0)))));
+        assertEquals(1, solver.solve(grid.pack(List.of(List.of(1, 2, 3), List.of(4, 0, 5)))));
+        assertEquals(5, solver.solve(grid.pack(List.of(List.of(4, 1, 2), List.of(5, 0, 3)))));
+        assertEquals(14, solver.solve(grid.pack(List.of(List.of(3, 2, 4), List.of(1, 5, 0)))));
+        assertEquals(-1, solver.solve(grid.pack(List.of(List.of(1, 2, 3), List.of(5, 4, 0)))));
+    }
+
+    @Test
+    public void solverShouldBeReusableAndGrowItsQueue() {
+        final var grid = new Grid(3, 3);
+        final var solver = new BfsSolver(grid);
+        // the two hardest 8-puzzle positions, the frontier gets far wider than the initial ring
+        assertEquals(31, solver.solve(grid.pack(new int[]{8, 6, 7, 2, 5, 4, 3, 0, 1})));
+        assertEquals(31, solver.solve(grid.pack(new int[]{6, 4, 7, 8, 5, 0, 3, 2, 1})));
+        assertEquals(2, solver.solve(grid.pack(new int[]{1, 2, 3, 4, 5, 6, 0, 7, 8})));
+        assertEquals(-1, solver.solve(grid.pack(new int[]{2, 1, 3, 4, 5, 6, 7, 8, 0})));
+    }
+
+    @Test
+    public void invalidBoardsShouldBeRejected() {
+        final var grid = new Grid(2, 3);
+        assertThrows(IllegalArgumentException.class, () -> grid.pack(List.of(List.of(1, 2, 3), List.of(4, 5))));
+        assertThrows(IllegalArgumentException.class, () -> grid.pack(List.of(List.of(1, 2, 3), List.of(4, 4, 0))));
+        assertThrows(IllegalArgumentException.class, () -> grid.pack(List.of(List.of(1, 2, 3), List.of(4, 6, 0))));
+        assertThrows(IllegalArgumentException.class, () -> new BfsSolver(new Grid(4, 4)));
+        assertThrows(IllegalArgumentException.class, () -> new Grid(1, 5));
+    }
+
+    @Test
+    public void gridShouldFindBlankAndRankPermutations() {
+        final var grid = new Grid(2, 2);
+        final var seen = new boolean[24];
+        for (int blank = 0; blank < 4; blank++) {
+            for (int a = 1; a < 4; a++) {
+                for (int b = 1; b < 4; b++) {
+                    if (a == b) {
+                        continue;
+                    }
+                    final var tiles = new int[4];
+                    var next = 0;
+                    final var order = new int[]{a, b, 6 - a - b};
+                    for (int i = 0; i < 4; i++) {
+                        tiles[i] = i == blank ? 0 : order[next++];
+                    }
+                    final var state = grid.pack(tiles);
+                    assertEquals(blank, grid.blank(state));
+                    assertArrayEquals(tiles, grid.unpack(state));
+                    final var rank = (int) grid.rank(state);
+                    assertFalse(seen[rank]);
+                    seen[rank] = true;
+                }
+            }
+        }
+        assertEquals(0, new Grid(4, 4).rank(new Grid(4, 4).pack(new int[]{0, 1, 2, 3, 4, 5, 6, 7, 8, 9, 10, 11, 12, 13, 14, 15})));
+        assertEquals(15, new Grid(4, 4).blank(new Grid(4, 4).goal()));
+    }
+}
@@ -0,0 +1,97 @@
+package com.example.rev.puzzle;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class DistanceTableTest {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    public void tableShouldMatchBfsForEveryTwoByThreeBoard() {
+        final var grid = new Grid(2, 3);
+        final var table = DistanceTable.build(grid);
+        final var bfs = new BfsSolver(grid);
+        final var tiles = new int[]{0, 1, 2, 3, 4, 5};
+        var solvable = 0;
+        do {
+            final var state = grid.pack(tiles);
+            final var expected = bfs.solve(state);
+            assertEquals(expected, table.solve(state));
+            if (expected != -1) {
+                solvable++;
+            }
+        } while (nextPermutation(tiles));
+        assertEquals(360, solvable);
+        assertEquals(21, table.diameter());
+    }
+
+    @Test
+    public void eightPuzzleTableShouldAnswerFromLookups() {
+        final var grid = new Grid(3, 3);
+        final var table = DistanceTable.build(grid);
+        assertEquals(31, table.diameter());
+        assertEquals(0, table.solve(grid.goal()));
+        assertEquals(31, table.solve(grid.pack(new int[]{8, 6, 7, 2, 5, 4, 3, 0, 1})));
+        assertEquals(-1, table.solve(grid.pack(new int[]{2, 1, 3, 4, 5, 6, 7, 8, 0})));
+        final var bfs = new BfsSolver(grid);
+        final var random = new Random(5);
+        for (int i = 0; i < 50; i++) {
+            final var tiles = new int[]{0, 1, 2, 3, 4, 5, 6, 7, 8};
+            for (int j = tiles.length - 1; j > 0; j--) {
+                final var k = random.nextInt(j + 1);
+                final var tile = tiles[j];
+                tiles[j] = tiles[k];
+                tiles[k] = tile;
+            }
+            final var state = grid.pack(tiles);
+            assertEquals(bfs.solve(state), table.solve(state));
+        }
+    }
+
+    @Test
+    public void tableShouldSurviveSaveAndLoad() throws Exception {
+        final var grid = new Grid(3, 3);
+        final var file = directory.resolve("distances.bin");
+        final var built = DistanceTable.loadOrBuild(file, grid);
+        assertEquals(12 + 362_880, Files.size(file));
+        final var loaded = DistanceTable.load(file);
+        final var state = grid.pack(new int[]{1, 2, 3, 4, 5, 6, 0, 7, 8});
+        assertEquals(2, loaded.solve(state));
+        assertEquals(built.diameter(), loaded.diameter());
+        assertThrows(IllegalArgumentException.class, () -> DistanceTable.loadOrBuild(file, new Grid(2, 3)));
+        Files.write(file, new byte[]{1, 2, 3, 4});
+        assertThrows(IllegalArgumentException.class, () -> DistanceTable.load(file));
+        assertThrows(IllegalArgumentException.class, () -> DistanceTable.build(new Grid(4, 4)));
+    }
+
+    private static boolean nextPermutation(int[] values) {
+        var i = values.length - 2;
+        while (i >= 0 && values[i] >= values[i + 1]) {
+            i--;
+        }
+        if (i < 0) {
+            return false;
+        }
+        var j = values.length - 1;
+        while (values[j] <= values[i]) {
+            j--;
+        }
+        var swap = values[i];
+        values[i] = values[j];
+        values[j] = swap;
+        for (int left = i + 1, right = values.length - 1; left < right; left++, right--) {
+            swap = values[left];
+            values[left] = values[right];
+            values[right] = swap;
+        }
+        return true;
+    }
+}
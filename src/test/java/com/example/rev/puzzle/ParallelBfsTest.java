@@ -0,0 +1,76 @@
+package com.example.rev.puzzle;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ParallelBfsTest {
+
+    @TempDir
+    Path directory;
+
+    private final ForkJoinPool pool = new ForkJoinPool(4);
+
+    @AfterEach
+    public void shutdown() {
+        pool.shutdown();
+    }
+
+    @Test
+    public void eightPuzzleShouldBeEnumeratedLevelByLevel() {
+        final var grid = new Grid(3, 3);
+        final var sizes = new ParallelBfs(grid, pool).levelSizes(grid.goal());
+        assertEquals(32, sizes.length);
+        assertEquals(181_440, Arrays.stream(sizes).sum());
+        assertArrayEquals(new long[]{1, 2, 4, 8, 16, 20, 39, 62, 116, 152}, Arrays.copyOf(sizes, 10));
+        assertEquals(2, sizes[31]);
+    }
+
+    @Test
+    public void spilledFrontiersShouldGiveTheSameLevelsAndBeDeleted() throws Exception {
+        final var grid = new Grid(3, 3);
+        final var onHeap = new ParallelBfs(grid, pool).levelSizes(grid.goal());
+        // small windows, so frontiers span many mappings
+        final var spilled = new ParallelBfs(grid, pool, directory, 1 << 10).levelSizes(grid.goal());
+        assertArrayEquals(onHeap, spilled);
+        try (var files = Files.list(directory)) {
+            assertEquals(0, files.count());
+        }
+    }
+
+    @Test
+    public void solveShouldMatchDistanceTable() {
+        final var grid = new Grid(2, 4);
+        final var table = DistanceTable.build(grid);
+        final var solver = new ParallelBfs(grid, pool, directory, 1 << 10);
+        final var random = new Random(9);
+        for (int i = 0; i < 20; i++) {
+            final var tiles = new int[]{0, 1, 2, 3, 4, 5, 6, 7};
+            for (int j = tiles.length - 1; j > 0; j--) {
+                final var k = random.nextInt(j + 1);
+                final var tile = tiles[j];
+                tiles[j] = tiles[k];
+                tiles[k] = tile;
+            }
+            final var state = grid.pack(tiles);
+            assertEquals(table.solve(state), solver.solve(state));
+        }
+        assertEquals(0, solver.solve(grid.goal()));
+    }
+
+    @Test
+    public void tooLargeOrMissingSetupShouldBeRejected() {
+        assertThrows(IllegalArgumentException.class, () -> new ParallelBfs(new Grid(4, 4), pool));
+        assertThrows(IllegalArgumentException.class,
+                () -> new ParallelBfs(new Grid(3, 3), pool, directory.resolve("missing")));
+        assertThrows(IllegalArgumentException.class, () -> new ParallelBfs(new Grid(3, 3), null));
+    }
+}
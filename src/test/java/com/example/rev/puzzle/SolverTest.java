@@ -0,0 +1,138 @@
+package com.example.rev.puzzle;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SolverTest {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    public void allSolversShouldAgreeWithBfsOnEightPuzzle() {
+        final var grid = new Grid(3, 3);
+        final var databases = List.of(PatternDatabase.build(grid, 1, 2, 4, 5), PatternDatabase.build(grid, 3, 6, 7, 8));
+        final List<Solver> solvers = List.of(
+                new BidirectionalBfsSolver(grid),
+                new AStarSolver(grid, new ManhattanHeuristic(grid, true)),
+                new IdaStarSolver(grid, new ManhattanHeuristic(grid, false)),
+                new IdaStarSolver(grid, new ManhattanHeuristic(grid, true)),
+                new IdaStarSolver(grid, new PatternHeuristic(databases)));
+        final var bfs = new BfsSolver(grid);
+        final var random = new Random(42);
+        for (int i = 0; i < 40; i++) {
+            final var start = shuffled(grid, random);
+            final var expected = bfs.solve(start);
+            for (final var solver : solvers) {
+                assertEquals(expected, solver.solve(start), solver.getClass().getSimpleName());
+            }
+        }
+    }
+
+    @Test
+    public void heuristicsShouldBeAdmissible() {
+        final var grid = new Grid(3, 3);
+        final var heuristics = List.of(new ManhattanHeuristic(grid, false), new ManhattanHeuristic(grid, true),
+                new PatternHeuristic(List.of(PatternDatabase.build(grid, 1, 2, 3, 4), PatternDatabase.build(grid, 5, 6, 7, 8))));
+        final var bfs = new BfsSolver(grid);
+        final var random = new Random(7);
+        for (int i = 0; i < 100; i++) {
+            final var start = shuffled(grid, random);
+            final var moves = bfs.solve(start);
+            assertEquals(moves != -1, grid.isSolvable(start));
+            if (moves == -1) {
+                continue;
+            }
+            for (final var heuristic : heuristics) {
+                assertTrue(heuristic.estimate(start) <= moves);
+            }
+            assertTrue(heuristics.get(1).estimate(start) >= heuristics.get(0).estimate(start));
+        }
+        // three tiles of one row in reverse: two of them have to leave the row, not three
+        final var reversed = new Grid(2, 3).pack(new int[]{3, 2, 1, 4, 5, 0});
+        assertEquals(4 + 4, new ManhattanHeuristic(new Grid(2, 3), true).estimate(reversed));
+    }
+
+    @Test
+    public void fifteenPuzzleShouldBeSolvedWithMappedPatternDatabases() throws Exception {
+        final var grid = new Grid(4, 4);
+        final var heuristic = PatternHeuristic.loadOrBuild(directory, grid,
+                new int[]{1, 2, 3, 4, 5}, new int[]{6, 7, 8, 9, 10}, new int[]{11, 12, 13, 14, 15});
+        try (var files = Files.list(directory)) {
+            assertEquals(3, files.count());
+        }
+        final var pdb = new IdaStarSolver(grid, heuristic);
+        final var linearConflict = new IdaStarSolver(grid, new ManhattanHeuristic(grid, true));
+        final var aStar = new AStarSolver(grid, new ManhattanHeuristic(grid, true));
+        final var bidirectional = new BidirectionalBfsSolver(grid);
+        final var random = new Random(3);
+        for (int i = 0; i < 5; i++) {
+            final var start = walk(grid, random, 60);
+            final var expected = bidirectional.solve(start);
+            assertEquals(expected, pdb.solve(start));
+            assertEquals(expected, linearConflict.solve(start));
+            assertEquals(expected, aStar.solve(start));
+        }
+        assertEquals(-1, pdb.solve(grid.pack(new int[]{2, 1, 3, 4, 5, 6, 7, 8, 9, 10, 11, 12, 13, 14, 15, 0})));
+        // reloaded from the files, not rebuilt
+        assertEquals(heuristic.estimate(grid.goal() ^ 0x21), PatternHeuristic.loadOrBuild(directory, grid,
+                new int[]{1, 2, 3, 4, 5}, new int[]{6, 7, 8, 9, 10}, new int[]{11, 12, 13, 14, 15}).estimate(grid.goal() ^ 0x21));
+    }
+
+    @Test
+    public void mappedDatabaseShouldMatchBuiltOne() throws Exception {
+        final var grid = new Grid(3, 3);
+        final var built = PatternDatabase.build(grid, 2, 4, 6);
+        final var file = directory.resolve("pdb.bin");
+        built.save(file);
+        final var mapped = PatternDatabase.load(file);
+        assertArrayEquals(new int[]{2, 4, 6}, mapped.tiles());
+        assertEquals(9 * 8 * 7, mapped.size());
+        final var random = new Random(1);
+        for (int i = 0; i < 1_000; i++) {
+            final var state = shuffled(grid, random);
+            var cells = 0L;
+            for (int position = 0; position < 9; position++) {
+                cells |= (long) position << 4 * Grid.tile(state, position);
+            }
+            assertEquals(built.distance(cells), mapped.distance(cells));
+        }
+        assertThrows(IllegalArgumentException.class, () -> PatternDatabase.loadOrBuild(file, grid, 2, 4, 7));
+        Files.write(file, new byte[]{1, 2, 3});
+        assertThrows(IllegalArgumentException.class, () -> PatternDatabase.load(file));
+        assertThrows(IllegalArgumentException.class, () -> PatternDatabase.build(grid, 2, 2));
+        assertThrows(IllegalArgumentException.class,
+                () -> new PatternHeuristic(List.of(built, PatternDatabase.build(grid, 4, 5))));
+    }
+
+    private static long shuffled(Grid grid, Random random) {
+        final var tiles = new int[grid.cells()];
+        for (int i = 0; i < tiles.length; i++) {
+            tiles[i] = i;
+        }
+        for (int i = tiles.length - 1; i > 0; i--) {
+            final var j = random.nextInt(i + 1);
+            final var tile = tiles[i];
+            tiles[i] = tiles[j];
+            tiles[j] = tile;
+        }
+        return grid.pack(tiles);
+    }
+
+    private static long walk(Grid grid, Random random, int moves) {
+        var state = grid.goal();
+        for (int i = 0; i < moves; i++) {
+            final var blank = grid.blank(state);
+            final var around = grid.neighbours(blank);
+            state = Grid.move(state, blank, around[random.nextInt(around.length)]);
+        }
+        return state;
+    }
+}
@@ -0,0 +1,102 @@
+package com.example.rev.shortener;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BloomFilteredUrlStoreTest {
+
+    private static class CountingStore extends ConcurrentUrlStore {
+        private final AtomicInteger lookups = new AtomicInteger();
+
+        @Override
+        public String findOriginal(String code) {
+            lookups.incrementAndGet();
+            return super.findOriginal(code);
+        }
+    }
+
+    @Test
+    public void filterShouldHaveNoFalseNegativesAndConfiguredFalsePositives() {
+        final var filter = new BloomFilter(100_000, 0.01);
+        for (int i = 0; i < 100_000; i++) {
+            filter.put("in-" + i);
+        }
+        for (int i = 0; i < 100_000; i++) {
+            assertTrue(filter.mightContain("in-" + i));
+        }
+        var falsePositives = 0;
+        for (int i = 0; i < 1_000_000; i++) {
+            if (filter.mightContain("out-" + i)) {
+                falsePositives++;
+            }
+        }
+        assertTrue(falsePositives < 1_000_000 * 0.015, "false positives: " + falsePositives);
+        assertThrows(IllegalArgumentException.class, () -> new BloomFilter(10, 1.5));
+    }
+
+    @Test
+    public void unknownCodesShouldNotReachTheStore() {
+        final var delegate = new CountingStore();
+        final var store = new BloomFilteredUrlStore(delegate, 1_000, 0.001);
+        final var generator = CodeGenerator.inMemory(7);
+        final var code = store.getOrCreate("http://a.com", generator::next);
+        assertEquals("http://a.com", store.findOriginal(code));
+        for (int i = 0; i < 1_000; i++) {
+            assertNull(store.findOriginal(generator.encode(1_000_000 + i)));
+        }
+        assertNull(store.findOriginal(null));
+        assertTrue(delegate.lookups.get() < 10, "lookups: " + delegate.lookups.get());
+        assertTrue(store.rejected() > 990);
+    }
+
+    @Test
+    public void batchesShouldKeepFilterInStep() {
+        final var store = new BloomFilteredUrlStore(new ConcurrentUrlStore(), 1_000, 0.01);
+        final var generator = CodeGenerator.inMemory(7);
+        final var codes = store.getOrCreateAll(List.of("http://a.com", "http://b.com"), generator::next);
+        assertEquals(Arrays.asList("http://b.com", null, "http://a.com", null),
+                store.findOriginals(Arrays.asList(codes.get(1), "0000000", codes.get(0), null)));
+    }
+
+    @Test
+    public void rebuildShouldCoverPreloadedStoreAndDropRemovedCodes() {
+        final var delegate = new CountingStore();
+        final var generator = CodeGenerator.inMemory(7);
+        final var codes = new ArrayList<String>();
+        for (int i = 0; i < 5_000; i++) {
+            codes.add(delegate.getOrCreate("http://site.com/" + i, generator::next));
+        }
+        final var store = new BloomFilteredUrlStore(delegate, 100, 0.01);
+        for (int i = 0; i < codes.size(); i++) {
+            assertEquals("http://site.com/" + i, store.findOriginal(codes.get(i)));
+        }
+        codes.forEach(store::remove);
+        store.rebuild();
+        delegate.lookups.set(0);
+        codes.forEach(code -> assertNull(store.findOriginal(code)));
+        assertTrue(delegate.lookups.get() < 100, "lookups: " + delegate.lookups.get());
+    }
+
+    @Test
+    public void storesShouldListTheirCodes() {
+        final var generator = CodeGenerator.inMemory(7);
+        for (final UrlStore store : List.of(new ConcurrentUrlStore(), new OffHeapUrlStore(7))) {
+            final var expected = new ArrayList<String>();
+            for (int i = 0; i < 100; i++) {
+                expected.add(store.getOrCreate("http://site.com/" + i, generator::next));
+            }
+            store.remove(expected.remove(0));
+            final var listed = new ArrayList<String>();
+            store.forEachCode(listed::add);
+            listed.sort(null);
+            expected.sort(null);
+            assertEquals(expected, listed);
+        }
+    }
+}
@@ -0,0 +1,186 @@
+package com.example.rev.shortener;
+
+import com.example.rev.MutableClock;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ClickAnalyticsTest {
+
+    @Test
+    public void closedMinutesShouldBeFlushedToSink() {
+        final var clock = new MutableClock();
+        final var flushed = new ArrayList<ClickAnalytics.ClickBucket>();
+        final var analytics = new ClickAnalytics(flushed::addAll, clock);
+        analytics.record("a");
+        analytics.record("a");
+        analytics.record("b");
+        clock.set(30_000);
+        analytics.aggregate();
+        assertTrue(flushed.isEmpty());
+        analytics.record("a");
+        clock.set(65_000);
+        analytics.aggregate();
+        flushed.sort((left, right) -> left.code().compareTo(right.code()));
+        // the click collected by the first pass of the new minute belongs to it
+        assertEquals(List.of(new ClickAnalytics.ClickBucket("a", 0, 2), new ClickAnalytics.ClickBucket("b", 0, 1)), flushed);
+        analytics.record("b");
+        clock.set(125_000);
+        analytics.aggregate();
+        assertEquals(new ClickAnalytics.ClickBucket("a", 60_000, 1), flushed.get(2));
+        assertEquals(3, flushed.size());
+        clock.set(185_000);
+        analytics.aggregate();
+        assertEquals(new ClickAnalytics.ClickBucket("b", 120_000, 1), flushed.get(3));
+        assertEquals(4, flushed.size());
+    }
+
+    @Test
+    public void idleCountersShouldBeEvicted() {
+        final var clock = new MutableClock();
+        final var flushed = new ArrayList<ClickAnalytics.ClickBucket>();
+        final var analytics = new ClickAnalytics(flushed::addAll, Duration.ofMinutes(5), 100, clock);
+        analytics.record("idle");
+        analytics.record("busy");
+        analytics.aggregate();
+        for (int minute = 1; minute <= 6; minute++) {
+            clock.set(minute * 60_000L);
+            analytics.record("busy");
+            analytics.aggregate();
+        }
+        assertEquals(1, analytics.trackedLinks());
+        assertEquals(0, analytics.clicks("idle"));
+        assertEquals(7, analytics.clicks("busy"));
+        assertEquals(1, flushed.stream().filter(bucket -> bucket.code().equals("idle")).mapToLong(ClickAnalytics.ClickBucket::clicks).sum());
+        analytics.record("idle");
+        assertEquals(1, analytics.clicks("idle"));
+    }
+
+    @Test
+    public void pendingBucketsShouldBeCapped() {
+        final var clock = new MutableClock();
+        final var analytics = new ClickAnalytics(buckets -> {
+            throw new IllegalStateException("sink is down");
+        }, Duration.ofHours(1), 3, clock);
+        for (int minute = 0; minute < 5; minute++) {
+            clock.set(minute * 60_000L);
+            analytics.record("a");
+            analytics.record("b");
+            analytics.aggregate();
+        }
+        // minutes 0 to 3 are closed, 8 buckets for a cap of 3
+        assertEquals(5, analytics.droppedBuckets());
+        assertEquals(4, analytics.sinkFailures());
+    }
+
+    @Test
+    public void clickLandingAfterEvictionShouldNotBeLost() {
+        final var clock = new MutableClock();
+        final var flushed = new ArrayList<ClickAnalytics.ClickBucket>();
+        final var analytics = new ClickAnalytics(flushed::addAll, Duration.ofMinutes(1), 100, clock);
+        analytics.record("idle");
+        analytics.record("forgotten");
+        analytics.aggregate();
+        // two record() calls look their counters up, then stall while a pass evicts one and the other is forgotten
+        final var idle = analytics.counter("idle");
+        final var forgotten = analytics.counter("forgotten");
+        analytics.forget("forgotten");
+        clock.set(60_000);
+        analytics.aggregate();
+        assertEquals(0, analytics.trackedLinks());
+        idle.click();
+        forgotten.click();
+        clock.set(61_000);
+        analytics.aggregate();
+        assertEquals(1, analytics.clicks("idle"));
+        assertEquals(0, analytics.clicks("forgotten"));
+        for (int minute = 2; minute <= 4; minute++) {
+            clock.set(minute * 60_000L);
+            analytics.aggregate();
+        }
+        assertEquals(2, clicks(flushed, "idle"));
+        assertEquals(2, clicks(flushed, "forgotten"));
+    }
+
+    @Test
+    public void failedFlushShouldBeRetried() {
+        final var clock = new MutableClock();
+        final var flushed = new ArrayList<ClickAnalytics.ClickBucket>();
+        final var failing = new boolean[]{true};
+        final var analytics = new ClickAnalytics(buckets -> {
+            if (failing[0]) {
+                throw new IllegalStateException("sink is down");
+            }
+            flushed.addAll(buckets);
+        }, clock);
+        analytics.record("a");
+        analytics.aggregate();
+        clock.set(60_000);
+        analytics.aggregate();
+        assertEquals(1, analytics.sinkFailures());
+        failing[0] = false;
+        analytics.aggregate();
+        assertEquals(List.of(new ClickAnalytics.ClickBucket("a", 0, 1)), flushed);
+    }
+
+    @Test
+    public void topShouldReturnMostClickedAfterAggregation() {
+        final var analytics = new ClickAnalytics(buckets -> {
+        });
+        for (int i = 0; i < 100; i++) {
+            for (int clicks = 0; clicks < i; clicks++) {
+                analytics.record("c" + i);
+            }
+        }
+        assertTrue(analytics.top(3).isEmpty());
+        analytics.aggregate();
+        assertEquals(List.of(new ClickAnalytics.LinkClicks("c99", 99), new ClickAnalytics.LinkClicks("c98", 98),
+                new ClickAnalytics.LinkClicks("c97", 97)), analytics.top(3));
+        assertEquals(99, analytics.top(1000).size());
+    }
+
+    @Test
+    public void concurrentClicksShouldNotBeLost() throws InterruptedException {
+        final var analytics = new ClickAnalytics(buckets -> {
+        });
+        final var executor = Executors.newFixedThreadPool(8);
+        for (int thread = 0; thread < 8; thread++) {
+            executor.submit(() -> {
+                for (int i = 0; i < 100_000; i++) {
+                    analytics.record("hot");
+                    if (i % 10_000 == 0) {
+                        analytics.aggregate();
+                    }
+                }
+            });
+        }
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(10, TimeUnit.SECONDS));
+        analytics.aggregate();
+        assertEquals(800_000, analytics.clicks("hot"));
+        assertEquals(List.of(new ClickAnalytics.LinkClicks("hot", 800_000)), analytics.top(1));
+    }
+
+    @Test
+    public void shortenerShouldCountResolvedLinksOnly() {
+        final var analytics = new ClickAnalytics(buckets -> {
+        });
+        final var shortener = new UrlShortener(new ConcurrentUrlStore(), CodeGenerator.inMemory(7), analytics);
+        final var code = shortener.getShort("http://a.com");
+        shortener.getOriginal(code);
+        shortener.findOriginal(code);
+        shortener.findOriginal("missing");
+        assertEquals(2, analytics.clicks(code));
+        assertEquals(0, analytics.clicks("missing"));
+    }
+
+    private static long clicks(List<ClickAnalytics.ClickBucket> buckets, String code) {
+        return buckets.stream().filter(bucket -> bucket.code().equals(code)).mapToLong(ClickAnalytics.ClickBucket::clicks).sum();
+    }
+}
@@ -0,0 +1,120 @@
+package com.example.rev.shortener;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CodeGeneratorTest {
+
+    @Test
+    public void base62ShouldRoundTrip() {
+        assertEquals("0000000", Base62.encode(0, 7));
+        assertEquals("z", Base62.encode(61, 1));
+        assertEquals("10", Base62.encode(62, 1));
+        for (long value : new long[]{0, 1, 61, 62, 3_521_614_606_207L, Long.MAX_VALUE}) {
+            assertEquals(value, Base62.decode(Base62.encode(value, 7)));
+        }
+    }
+
+    @Test
+    public void base62DecodeShouldRejectInvalidInput() {
+        assertEquals(-1, Base62.decode(""));
+        assertEquals(-1, Base62.decode(null));
+        assertEquals(-1, Base62.decode("ab-c"));
+        assertEquals(-1, Base62.decode("zzzzzzzzzzzz"));
+    }
+
+    @Test
+    public void codesShouldBeUniqueAndFixedLength() {
+        final var generator = CodeGenerator.inMemory(3);
+        final var codes = new HashSet<String>();
+        final var capacity = Base62.capacity(3);
+        for (long i = 0; i < capacity; i++) {
+            final var code = generator.next();
+            assertEquals(3, code.length());
+            assertTrue(codes.add(code));
+        }
+        assertThrows(IllegalStateException.class, generator::next);
+    }
+
+    @Test
+    public void decodeShouldInvertEncode() {
+        for (int length = 1; length <= 10; length++) {
+            final var generator = CodeGenerator.inMemory(length);
+            final var capacity = Base62.capacity(length);
+            for (long id : new long[]{0, 1, 2, capacity / 2, capacity - 1}) {
+                assertEquals(id, generator.decode(generator.encode(id)));
+            }
+        }
+        final var generator = CodeGenerator.inMemory(7);
+        assertEquals(-1, generator.decode("abc"));
+        assertEquals(-1, generator.decode("abc-def"));
+    }
+
+    @Test
+    public void recycledCodeShouldBeIssuedAgain() {
+        final var generator = CodeGenerator.inMemory(7);
+        final var first = generator.next();
+        final var second = generator.next();
+        generator.recycle(first);
+        assertEquals(first, generator.next());
+        assertNotEquals(second, generator.next());
+    }
+
+    @Test
+    public void batchShouldReleaseUnusedIds() {
+        final var generator = CodeGenerator.inMemory(7);
+        final String first;
+        try (var batch = generator.batch(3)) {
+            first = batch.get();
+            assertEquals(generator.encode(generator.decode(first) + 1), batch.get());
+        }
+        final var recycled = generator.decode(generator.next());
+        assertEquals(generator.decode(first) + 2, recycled);
+    }
+
+    @Test
+    public void consecutiveCodesShouldNotLookSequential() {
+        final var generator = CodeGenerator.inMemory(7);
+        assertNotEquals("0000001", generator.encode(1));
+        assertNotEquals(generator.encode(1).substring(0, 6), generator.encode(2).substring(0, 6));
+    }
+
+    @Test
+    public void allocatorShouldLeaseBlocks() {
+        final var reservations = new AtomicInteger();
+        final var sequence = IdSequence.inMemory();
+        final var allocator = new BlockIdAllocator(count -> {
+            reservations.incrementAndGet();
+            return sequence.reserve(count);
+        }, 100);
+        for (int i = 0; i < 1000; i++) {
+            assertEquals(i, allocator.next());
+        }
+        assertEquals(10, reservations.get());
+    }
+
+    @Test
+    public void allocatorShouldBeThreadSafe() throws InterruptedException {
+        final var allocator = new BlockIdAllocator(IdSequence.inMemory(), 16);
+        final var ids = Collections.synchronizedSet(new HashSet<Long>());
+        final var nThreads = 8;
+        final var executorService = Executors.newFixedThreadPool(nThreads);
+        for (int t = 0; t < nThreads; t++) {
+            executorService.submit(() -> {
+                for (int i = 0; i < 10_000; i++) {
+                    ids.add(allocator.next());
+                }
+            });
+        }
+        executorService.shutdown();
+        assertTrue(executorService.awaitTermination(10, TimeUnit.SECONDS));
+        assertEquals(nThreads * 10_000, ids.size());
+    }
+}
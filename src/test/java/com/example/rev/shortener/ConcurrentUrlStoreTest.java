@@ -0,0 +1,70 @@
+package com.example.rev.shortener;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ConcurrentUrlStoreTest {
+
+    @Test
+    public void getOrCreateShouldStoreBothDirections() {
+        final var store = new ConcurrentUrlStore();
+        assertEquals("abc", store.getOrCreate("http://a.com", () -> "abc"));
+        assertEquals("http://a.com", store.findOriginal("abc"));
+        assertEquals("abc", store.findCode("http://a.com"));
+        assertNull(store.findOriginal("xyz"));
+        assertNull(store.findCode("http://b.com"));
+    }
+
+    @Test
+    public void getOrCreateShouldNotTakeCodeForKnownUrl() {
+        final var store = new ConcurrentUrlStore();
+        final var calls = new AtomicInteger();
+        store.getOrCreate("http://a.com", () -> "c" + calls.incrementAndGet());
+        assertEquals("c1", store.getOrCreate("http://a.com", () -> "c" + calls.incrementAndGet()));
+        assertEquals(1, calls.get());
+    }
+
+    @Test
+    public void removeShouldDropBothDirections() {
+        final var store = new ConcurrentUrlStore();
+        store.getOrCreate("http://a.com", () -> "abc");
+        assertTrue(store.remove("abc"));
+        assertFalse(store.remove("abc"));
+        assertNull(store.findOriginal("abc"));
+        assertNull(store.findCode("http://a.com"));
+        assertEquals("def", store.getOrCreate("http://a.com", () -> "def"));
+    }
+
+    @Test
+    public void concurrentGetOrCreateShouldReturnSameCode() throws InterruptedException {
+        final var store = new ConcurrentUrlStore();
+        final var generator = CodeGenerator.inMemory(7);
+        final var codes = Collections.synchronizedSet(new HashSet<String>());
+        final var nThreads = 16;
+        final var start = new CountDownLatch(1);
+        final var executorService = Executors.newFixedThreadPool(nThreads);
+        for (int t = 0; t < nThreads; t++) {
+            executorService.submit(() -> {
+                start.await();
+                for (int i = 0; i < 1000; i++) {
+                    final var code = store.getOrCreate("http://url/" + i, generator::next);
+                    assertEquals("http://url/" + i, store.findOriginal(code));
+                    codes.add(code);
+                }
+                return null;
+            });
+        }
+        start.countDown();
+        executorService.shutdown();
+        assertTrue(executorService.awaitTermination(10, TimeUnit.SECONDS));
+        assertEquals(1000, codes.size());
+    }
+}
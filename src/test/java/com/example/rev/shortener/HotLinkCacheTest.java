@@ -0,0 +1,151 @@
+package com.example.rev.shortener;
+
+import com.example.rev.MutableClock;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class HotLinkCacheTest {
+
+    private static final Executor DIRECT = Runnable::run;
+
+    private static class CountingStore extends ConcurrentUrlStore {
+        private final AtomicInteger lookups = new AtomicInteger();
+
+        @Override
+        public String findOriginal(String code) {
+            lookups.incrementAndGet();
+            return super.findOriginal(code);
+        }
+    }
+
+    @Test
+    public void hitsShouldBeServedWithoutDelegate() {
+        final var store = new CountingStore();
+        store.getOrCreate("http://a.com", () -> "a");
+        final var cache = new HotLinkCache(store, 16, Duration.ofMinutes(1), DIRECT);
+        for (int i = 0; i < 10; i++) {
+            assertEquals("http://a.com", cache.findOriginal("a"));
+        }
+        assertNull(cache.findOriginal("missing"));
+        assertEquals(2, store.lookups.get());
+        final var stats = cache.stats();
+        assertEquals(9, stats.hits());
+        assertEquals(2, stats.misses());
+        assertEquals(9.0 / 11, stats.hitRate(), 1e-9);
+    }
+
+    @Test
+    public void sizeShouldStayBounded() {
+        final var store = new ConcurrentUrlStore();
+        final var cache = new HotLinkCache(store, 100, Duration.ofMinutes(1), DIRECT);
+        for (int i = 0; i < 1_000; i++) {
+            final var code = "c" + i;
+            store.getOrCreate("http://" + i + ".com", () -> code);
+            assertEquals("http://" + i + ".com", cache.findOriginal(code));
+        }
+        assertTrue(cache.estimatedSize() <= 100);
+        assertEquals(900, cache.stats().evictions());
+    }
+
+    @Test
+    public void scanShouldNotEvictHotLinks() {
+        final var store = new ConcurrentUrlStore();
+        final var cache = new HotLinkCache(store, 100, Duration.ofMinutes(1), DIRECT);
+        final var hot = new ArrayList<String>();
+        for (int i = 0; i < 50; i++) {
+            final var code = "hot" + i;
+            store.getOrCreate("http://hot" + i + ".com", () -> code);
+            hot.add(code);
+        }
+        for (int round = 0; round < 5; round++) {
+            hot.forEach(cache::findOriginal);
+        }
+        for (int i = 0; i < 10_000; i++) {
+            final var code = "cold" + i;
+            store.getOrCreate("http://cold" + i + ".com", () -> code);
+            cache.findOriginal(code);
+            if (i % 100 == 99) {
+                final var missesBefore = cache.stats().misses();
+                hot.forEach(cache::findOriginal);
+                assertEquals(missesBefore, cache.stats().misses());
+            }
+        }
+    }
+
+    @Test
+    public void staleEntryShouldBeRefreshedInBackground() {
+        final var clock = new MutableClock();
+        final var backing = new AtomicInteger(1);
+        final var store = new ConcurrentUrlStore() {
+            @Override
+            public String findOriginal(String code) {
+                return "http://v" + backing.get() + ".com";
+            }
+        };
+        final var pending = new ArrayList<Runnable>();
+        final var cache = new HotLinkCache(store, 16, Duration.ofSeconds(10), pending::add, clock);
+        assertEquals("http://v1.com", cache.findOriginal("a"));
+        backing.set(2);
+        clock.advance(5_000);
+        assertEquals("http://v1.com", cache.findOriginal("a"));
+        assertTrue(pending.isEmpty());
+        clock.advance(5_000);
+        assertEquals("http://v1.com", cache.findOriginal("a"));
+        assertEquals("http://v1.com", cache.findOriginal("a"));
+        assertEquals(1, pending.size());
+        pending.get(0).run();
+        assertEquals("http://v2.com", cache.findOriginal("a"));
+        assertEquals(1, cache.stats().refreshes());
+        assertEquals(1, cache.stats().misses());
+    }
+
+    @Test
+    public void refreshShouldDropDeletedCode() {
+        final var clock = new MutableClock();
+        final var present = new AtomicInteger(1);
+        final var store = new ConcurrentUrlStore() {
+            @Override
+            public String findOriginal(String code) {
+                return present.get() == 1 ? "http://a.com" : null;
+            }
+        };
+        final var cache = new HotLinkCache(store, 16, Duration.ofSeconds(1), DIRECT, clock);
+        cache.findOriginal("a");
+        present.set(0);
+        clock.advance(1_000);
+        cache.findOriginal("a");
+        assertEquals(0, cache.estimatedSize());
+        assertNull(cache.findOriginal("a"));
+    }
+
+    @Test
+    public void removalDuringMissShouldNotBeCached() {
+        final var holder = new HotLinkCache[1];
+        final var removeOnce = new AtomicInteger(1);
+        final var store = new ConcurrentUrlStore() {
+            @Override
+            public String findOriginal(String code) {
+                final var original = super.findOriginal(code);
+                // the code is removed after the miss has read the old mapping
+                if (removeOnce.getAndSet(0) == 1) {
+                    holder[0].remove(code);
+                }
+                return original;
+            }
+        };
+        store.getOrCreate("http://a.com", () -> "a");
+        final var cache = new HotLinkCache(store, 16, Duration.ofMinutes(1), DIRECT);
+        holder[0] = cache;
+        assertEquals("http://a.com", cache.findOriginal("a"));
+        assertEquals(0, cache.estimatedSize());
+        store.getOrCreate("http://b.com", () -> "a");
+        assertEquals("http://b.com", cache.findOriginal("a"));
+        assertEquals("http://b.com", cache.findOriginal("a"));
+    }
+}
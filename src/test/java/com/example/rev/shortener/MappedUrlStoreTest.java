@@ -0,0 +1,205 @@
+package com.example.rev.shortener;
+
+import com.example.rev.MutableClock;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Clock;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MappedUrlStoreTest {
+
+    private static final int SEGMENT_SIZE = 64 << 10;
+
+    @TempDir
+    Path directory;
+
+    private MappedUrlStore open(Clock clock) {
+        return MappedUrlStore.open(directory, 7, SEGMENT_SIZE, clock);
+    }
+
+    @Test
+    public void shouldStoreAndFindBothDirections() {
+        try (var store = open(Clock.systemUTC())) {
+            final var codes = CodeGenerator.inMemory(7);
+            final var code = store.getOrCreate("http://a.com", codes::next);
+            assertEquals(code, store.getOrCreate("http://a.com", codes::next));
+            assertEquals("http://a.com", store.findOriginal(code));
+            assertEquals(code, store.findCode("http://a.com"));
+            assertNull(store.findOriginal("0000000"));
+            assertNull(store.findOriginal("bad-code"));
+            assertNull(store.findCode("http://b.com"));
+            assertEquals(1, store.size());
+        }
+    }
+
+    @Test
+    public void batchShouldBeVisibleAfterRestart() {
+        final var urls = List.of("http://a.com", "http://b.com", "http://a.com");
+        final List<String> codes;
+        try (var store = open(Clock.systemUTC())) {
+            codes = store.getOrCreateAll(urls, CodeGenerator.inMemory(7)::next);
+            assertEquals(codes.get(0), codes.get(2));
+            assertEquals(2, store.size());
+        }
+        try (var store = open(Clock.systemUTC())) {
+            assertEquals(urls, store.findOriginals(codes));
+            assertEquals(Arrays.asList("http://b.com", null), store.findOriginals(List.of(codes.get(1), "bad")));
+        }
+    }
+
+    @Test
+    public void shouldSurviveRestartAndKeepIdSequence() {
+        final var expected = new HashMap<String, String>();
+        final long leased;
+        try (var store = open(Clock.systemUTC())) {
+            final var codes = new CodeGenerator(new BlockIdAllocator(store, 100), 7);
+            // enough records to roll segments and grow the index
+            for (int i = 0; i < 70_000; i++) {
+                final var url = "http://example.com/" + i;
+                expected.put(store.getOrCreate(url, codes::next), url);
+            }
+            leased = store.reserve(1);
+        }
+        try (var store = open(Clock.systemUTC())) {
+            assertEquals(70_000, store.size());
+            expected.forEach((code, url) -> {
+                assertEquals(url, store.findOriginal(code));
+                assertEquals(code, store.findCode(url));
+            });
+            assertTrue(store.reserve(1) > leased);
+        }
+    }
+
+    @Test
+    public void shouldReplayRecordsAfterLastCommit() throws Exception {
+        final String code;
+        try (var store = open(Clock.systemUTC())) {
+            code = store.getOrCreate("http://a.com", () -> "0000001");
+            store.flush();
+        }
+        // simulate a crash after the record was appended but before the index was updated
+        try (var channel = FileChannel.open(directory.resolve("index.bin"),
+                StandardOpenOption.WRITE, StandardOpenOption.READ)) {
+            final var header = channel.map(FileChannel.MapMode.READ_WRITE, 0, 64);
+            // committed offset in the header
+            header.putInt(24, 0);
+            header.force();
+        }
+        try (var store = open(Clock.systemUTC())) {
+            assertEquals("http://a.com", store.findOriginal(code));
+            assertEquals(1, store.size());
+        }
+    }
+
+    @Test
+    public void shouldDeleteAndExpire() {
+        final var clock = new MutableClock(1_000);
+        try (var store = open(clock)) {
+            final var kept = store.getOrCreate("http://kept.com", () -> "0000001");
+            final var deleted = store.getOrCreate("http://deleted.com", () -> "0000002");
+            final var expiring = store.getOrCreate("http://expiring.com", () -> "0000003", 2_000);
+            assertTrue(store.remove(deleted));
+            assertFalse(store.remove(deleted));
+            assertNull(store.findOriginal(deleted));
+            assertNull(store.findCode("http://deleted.com"));
+            assertEquals("http://expiring.com", store.findOriginal(expiring));
+            clock.set(2_000);
+            assertNull(store.findOriginal(expiring));
+            assertNull(store.findCode("http://expiring.com"));
+            assertEquals("0000004", store.getOrCreate("http://expiring.com", () -> "0000004"));
+            assertEquals("http://kept.com", store.findOriginal(kept));
+        }
+    }
+
+    @Test
+    public void compactShouldDropDeadRecords() throws Exception {
+        final var clock = new MutableClock(1_000);
+        try (var store = open(clock)) {
+            final var codes = CodeGenerator.inMemory(7);
+            for (int i = 0; i < 5_000; i++) {
+                final var code = store.getOrCreate("http://example.com/" + i, codes::next, i % 2 == 0 ? 0 : 1_500);
+                if (i % 3 == 0) {
+                    store.remove(code);
+                }
+            }
+            clock.set(2_000);
+            final var before = segmentBytes();
+            store.compact();
+            assertTrue(segmentBytes() < before);
+            for (int i = 0; i < 5_000; i++) {
+                final var url = "http://example.com/" + i;
+                final var code = store.findCode(url);
+                if (i % 2 == 0 && i % 3 != 0) {
+                    assertEquals(url, store.findOriginal(code));
+                } else {
+                    assertNull(code);
+                }
+            }
+            store.getOrCreate("http://after-compaction.com", codes::next);
+        }
+        try (var store = open(clock)) {
+            assertNotNull(store.findCode("http://after-compaction.com"));
+            assertEquals("http://example.com/2", store.findOriginal(store.findCode("http://example.com/2")));
+        }
+    }
+
+    @Test
+    public void deadlinesShouldBeReadByWindow() throws Exception {
+        final var clock = new MutableClock(1_000);
+        final var hour = Duration.ofHours(1).toMillis();
+        try (var store = open(clock)) {
+            store.getOrCreate("http://soon.com", () -> "0000001", 2 * hour);
+            store.getOrCreate("http://later.com", () -> "0000002", 30 * hour);
+            final var removed = store.getOrCreate("http://removed.com", () -> "0000003", 2 * hour + 1);
+            store.remove(removed);
+            store.getOrCreate("http://never.com", () -> "0000004");
+        }
+        try (var store = open(clock)) {
+            assertEquals(Map.of("0000001", 2 * hour), deadlines(store, Long.MIN_VALUE, 3 * hour));
+            assertEquals(Map.of("0000002", 30 * hour), deadlines(store, 3 * hour, Long.MAX_VALUE));
+            assertEquals(2, deadlineFiles());
+            clock.set(3 * hour);
+            store.compact();
+            assertEquals(1, deadlineFiles());
+            assertEquals(Map.of("0000002", 30 * hour), deadlines(store, Long.MIN_VALUE, Long.MAX_VALUE));
+        }
+    }
+
+    @Test
+    public void urlShortenerShouldWorkOnTopOfStore() {
+        try (var store = open(Clock.systemUTC())) {
+            final var shortener = new UrlShortener(store, new CodeGenerator(new BlockIdAllocator(store, 10), 7));
+            final var code = shortener.getShort("http://a.com");
+            assertEquals("http://a.com", shortener.getOriginal(code));
+        }
+    }
+
+    private static Map<String, Long> deadlines(MappedUrlStore store, long fromMillis, long untilMillis) {
+        final var result = new HashMap<String, Long>();
+        store.forEachDeadline(fromMillis, untilMillis, result::put);
+        return result;
+    }
+
+    private long deadlineFiles() throws Exception {
+        try (var files = Files.list(directory)) {
+            return files.filter(path -> path.getFileName().toString().startsWith("deadlines-")).count();
+        }
+    }
+
+    private long segmentBytes() throws Exception {
+        try (var files = Files.list(directory)) {
+            return files.filter(path -> path.getFileName().toString().startsWith("segment-")).count() * SEGMENT_SIZE;
+        }
+    }
+}
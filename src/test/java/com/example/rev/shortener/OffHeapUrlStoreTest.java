@@ -0,0 +1,81 @@
+package com.example.rev.shortener;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class OffHeapUrlStoreTest {
+
+    @Test
+    public void getOrCreateShouldStoreBothDirections() {
+        final var store = new OffHeapUrlStore(7);
+        assertEquals("000000a", store.getOrCreate("http://a.com/путь", () -> "000000a"));
+        assertEquals("http://a.com/путь", store.findOriginal("000000a"));
+        assertEquals("000000a", store.findCode("http://a.com/путь"));
+        assertNull(store.findOriginal("000000b"));
+        assertNull(store.findOriginal("bad"));
+        assertNull(store.findCode("http://b.com"));
+    }
+
+    @Test
+    public void sameUrlShouldBeStoredOnce() {
+        final var store = new OffHeapUrlStore(7);
+        final var calls = new AtomicInteger();
+        final var generator = CodeGenerator.inMemory(7);
+        final var first = store.getOrCreate("http://a.com", () -> {
+            calls.incrementAndGet();
+            return generator.next();
+        });
+        assertEquals(first, store.getOrCreate("http://a.com", generator::next));
+        assertEquals(1, calls.get());
+        assertEquals(1, store.size());
+    }
+
+    @Test
+    public void invalidOrTakenCodeShouldBeRejected() {
+        final var store = new OffHeapUrlStore(7);
+        assertThrows(IllegalArgumentException.class, () -> store.getOrCreate("http://a.com", () -> "abc"));
+        assertThrows(IllegalArgumentException.class, () -> store.getOrCreate("http://a.com", () -> "abc-def"));
+        store.getOrCreate("http://a.com", () -> "0000001");
+        assertThrows(IllegalStateException.class, () -> store.getOrCreate("http://b.com", () -> "0000001"));
+        assertThrows(IllegalArgumentException.class, () -> new OffHeapUrlStore(11));
+    }
+
+    @Test
+    public void removeShouldKeepOtherMappingsReachable() {
+        final var store = new OffHeapUrlStore(7, 32 << 10, 16);
+        final var generator = CodeGenerator.inMemory(7);
+        final var codes = new String[1_000];
+        for (int i = 0; i < codes.length; i++) {
+            codes[i] = store.getOrCreate("http://site.com/" + i, generator::next);
+        }
+        for (int i = 0; i < codes.length; i += 2) {
+            assertTrue(store.remove(codes[i]));
+        }
+        assertFalse(store.remove(codes[0]));
+        assertEquals(codes.length / 2, store.size());
+        for (int i = 0; i < codes.length; i++) {
+            final var url = "http://site.com/" + i;
+            assertEquals(i % 2 == 0 ? null : url, store.findOriginal(codes[i]));
+            assertEquals(i % 2 == 0 ? null : codes[i], store.findCode(url));
+        }
+    }
+
+    @Test
+    public void storeShouldGrowAcrossChunksAndTables() {
+        final var store = new OffHeapUrlStore(7, 32 << 10, 16);
+        final var generator = CodeGenerator.inMemory(7);
+        final var codes = new String[20_000];
+        for (int i = 0; i < codes.length; i++) {
+            codes[i] = store.getOrCreate("http://site.com/" + i, generator::next);
+        }
+        assertEquals(codes.length, store.size());
+        for (int i = 0; i < codes.length; i++) {
+            assertEquals("http://site.com/" + i, store.findOriginal(codes[i]));
+            assertEquals(codes[i], store.findCode("http://site.com/" + i));
+        }
+        assertTrue(store.allocatedBytes() > 20_000L * 16);
+    }
+}
@@ -0,0 +1,55 @@
+package com.example.rev.shortener;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TimingWheelTest {
+
+    @Test
+    public void timerShouldFireOnTheTickOfItsDeadline() {
+        final var wheel = new TimingWheel<String>(100, 0);
+        wheel.schedule("a", 250);
+        wheel.schedule("b", 300);
+        assertEquals(List.of(), wheel.advance(299));
+        assertEquals(List.of("a", "b"), wheel.advance(300));
+        assertEquals(0, wheel.size());
+    }
+
+    @Test
+    public void overdueTimerShouldFireOnNextTick() {
+        final var wheel = new TimingWheel<String>(100, 1_000);
+        wheel.schedule("a", 10);
+        assertEquals(1, wheel.size());
+        assertEquals(List.of("a"), wheel.advance(1_100));
+    }
+
+    @Test
+    public void distantTimersShouldCascadeAndFireInOrder() {
+        final var wheel = new TimingWheel<Long>(1, 0);
+        final var random = new Random(42);
+        final var deadlines = new ArrayList<Long>();
+        for (int i = 0; i < 2_000; i++) {
+            final var deadline = 1 + (long) (random.nextDouble() * 20_000_000);
+            deadlines.add(deadline);
+            wheel.schedule(deadline, deadline);
+        }
+        final var fired = new ArrayList<Long>();
+        for (long now = 0; now <= 20_000_000; now += 997) {
+            for (final var deadline : wheel.advance(now)) {
+                assertTrue(deadline <= now);
+                assertTrue(deadline > now - 997);
+                fired.add(deadline);
+            }
+        }
+        fired.addAll(wheel.advance(20_001_000));
+        deadlines.sort(null);
+        fired.sort(null);
+        assertEquals(deadlines, fired);
+        assertEquals(0, wheel.size());
+    }
+}
@@ -1,11 +1,18 @@
 package com.example.rev.shortener;
 
+import com.example.rev.MutableClock;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
 
 import java.net.URI;
 import java.net.URISyntaxException;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
+import java.util.HashSet;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.concurrent.Executors;
@@ -77,6 +84,14 @@ class UrlShortenerTest {
         assertThrows(IllegalArgumentException.class, () -> shortener.getOriginal("url"));
     }
 
+    @Test
+    public void findOriginalShouldReturnNullWhenDoesNotExist() {
+        assertNull(shortener.findOriginal("url"));
+        assertNull(shortener.findOriginal(null));
+        final var url = "http://some-long-url-1.com/aa/bb";
+        assertEquals(url, shortener.findOriginal(shortener.getShort(url)));
+    }
+
     @Test
     public void concurrencyTest() throws InterruptedException {
         final var nThreads = 10;
@@ -106,4 +121,169 @@ class UrlShortenerTest {
         assertTrue(shortened.size() <= nThreads * nIterations);
         assertTrue(original.size() <= nThreads * nIterations);
     }
-}
\ No newline at end of file
+
+    @Test
+    public void shortenAllShouldKeepInputOrder() {
+        final var known = shortener.getShort("http://known.com");
+        final var urls = List.of("http://a.com", "http://known.com", "http://b.com", "http://a.com");
+        final var codes = shortener.shortenAll(urls);
+        assertEquals(4, codes.size());
+        assertEquals(known, codes.get(1));
+        assertEquals(codes.get(0), codes.get(3));
+        assertNotEquals(codes.get(0), codes.get(2));
+        for (int i = 0; i < urls.size(); i++) {
+            assertEquals(codes.get(i), shortener.getShort(urls.get(i)));
+        }
+        assertEquals(List.of(), shortener.shortenAll(List.of()));
+        assertThrows(IllegalArgumentException.class, () -> shortener.shortenAll(Arrays.asList("http://a.com", null)));
+    }
+
+    @Test
+    public void resolveAllShouldReturnNullForUnknownCodes() {
+        final var codes = shortener.shortenAll(List.of("http://a.com", "http://b.com"));
+        assertEquals(Arrays.asList("http://b.com", null, "http://a.com"),
+                shortener.resolveAll(List.of(codes.get(1), "unknown", codes.get(0))));
+    }
+
+    @Test
+    public void batchesShouldWorkWithEveryStore() {
+        final var stores = List.of(new ConcurrentUrlStore(), new OffHeapUrlStore(7),
+                new HotLinkCache(new ConcurrentUrlStore(), 100, Duration.ofMinutes(1), Runnable::run));
+        for (final var store : stores) {
+            final var shortener = new UrlShortener(store, CodeGenerator.inMemory(7));
+            final var urls = new ArrayList<String>();
+            for (int i = 0; i < 10_000; i++) {
+                urls.add("http://site.com/" + (i % 7_000));
+            }
+            final var codes = shortener.shortenAll(urls);
+            assertEquals(7_000, new HashSet<>(codes).size());
+            assertEquals(urls, shortener.resolveAll(codes));
+        }
+    }
+
+    @Test
+    public void linkShouldExpireLazily() {
+        final var clock = new MutableClock();
+        final var shortener = new UrlShortener(new ConcurrentUrlStore(), CodeGenerator.inMemory(7), clock);
+        final var code = shortener.getShort("http://a.com", Duration.ofSeconds(10));
+        assertEquals(code, shortener.getShort("http://a.com", Duration.ofHours(1)));
+        clock.advance(9_999);
+        assertEquals("http://a.com", shortener.getOriginal(code));
+        clock.advance(1);
+        assertThrows(IllegalArgumentException.class, () -> shortener.getOriginal(code));
+    }
+
+    @Test
+    public void expireDueShouldRemoveAndRecycleCodes() {
+        final var clock = new MutableClock();
+        final var store = new ConcurrentUrlStore();
+        final var shortener = new UrlShortener(store, CodeGenerator.inMemory(7), clock);
+        final var expiring = shortener.getShort("http://a.com", Duration.ofSeconds(5));
+        final var permanent = shortener.getShort("http://b.com");
+        clock.advance(4_000);
+        assertEquals(0, shortener.expireDue());
+        clock.advance(1_000);
+        assertEquals(1, shortener.expireDue());
+        assertNull(store.findOriginal(expiring));
+        assertEquals("http://b.com", shortener.getOriginal(permanent));
+        assertEquals(expiring, shortener.getShort("http://c.com"));
+        assertEquals("http://c.com", shortener.getOriginal(expiring));
+    }
+
+    @Test
+    public void expiredUrlShouldBeShortenedAgain() {
+        final var clock = new MutableClock();
+        final var shortener = new UrlShortener(new ConcurrentUrlStore(), CodeGenerator.inMemory(7), clock);
+        final var code = shortener.getShort("http://a.com", Duration.ofSeconds(1));
+        clock.advance(1_000);
+        final var renewed = shortener.getShort("http://a.com");
+        assertEquals(code, renewed);
+        assertEquals("http://a.com", shortener.getOriginal(renewed));
+        clock.advance(60_000);
+        assertEquals(0, shortener.expireDue());
+        assertEquals("http://a.com", shortener.getOriginal(renewed));
+    }
+
+    @Test
+    public void deadlinesShouldSurviveRestart(@TempDir Path directory) {
+        final var clock = new MutableClock();
+        final String expiring;
+        final String permanent;
+        try (var store = MappedUrlStore.open(directory, 7, 1 << 20, clock)) {
+            final var shortener = new UrlShortener(store, CodeGenerator.inMemory(7), clock);
+            expiring = shortener.getShort("http://a.com", Duration.ofSeconds(5));
+            permanent = shortener.getShort("http://b.com");
+        }
+        try (var store = MappedUrlStore.open(directory, 7, 1 << 20, clock)) {
+            final var shortener = new UrlShortener(store, CodeGenerator.inMemory(7), clock);
+            assertEquals("http://a.com", shortener.getOriginal(expiring));
+            clock.advance(5_000);
+            assertEquals(1, shortener.expireDue());
+            assertNull(store.findOriginal(expiring));
+            assertEquals("http://b.com", shortener.getOriginal(permanent));
+            store.compact();
+            assertEquals(1, store.size());
+        }
+    }
+
+    @Test
+    public void restartShouldLoadNearTermDeadlinesOnly(@TempDir Path directory) {
+        final var clock = new MutableClock();
+        final var codes = new ArrayList<String>();
+        try (var store = MappedUrlStore.open(directory, 7, 1 << 20, clock)) {
+            final var shortener = new UrlShortener(store, CodeGenerator.inMemory(7), clock);
+            codes.add(shortener.getShort("http://soon.com", Duration.ofSeconds(10)));
+            for (int i = 0; i < 100; i++) {
+                codes.add(shortener.getShort("http://later.com/" + i, Duration.ofDays(10)));
+            }
+            assertEquals(1, shortener.trackedDeadlines());
+        }
+        try (var store = MappedUrlStore.open(directory, 7, 1 << 20, clock)) {
+            final var shortener = new UrlShortener(store, CodeGenerator.inMemory(7), clock);
+            assertEquals(1, shortener.trackedDeadlines());
+            assertEquals(10_000, shortener.timeToLiveMillis(codes.get(0)));
+            // a deadline left on disk is read from the store
+            assertEquals(Duration.ofDays(10).toMillis(), shortener.timeToLiveMillis(codes.get(1)));
+            clock.advance(10_000);
+            assertEquals(1, shortener.expireDue());
+            // past its deadline a link is hidden by the store before its window is read
+            clock.set(Duration.ofDays(10).toMillis());
+            assertNull(shortener.findOriginal(codes.get(1)));
+            assertEquals(0, shortener.trackedDeadlines());
+            assertEquals(100, shortener.expireDue());
+            assertEquals(0, store.size());
+        }
+    }
+
+    @Test
+    public void timeToLiveShouldCountDownToTheDeadline() {
+        final var clock = new MutableClock();
+        final var shortener = new UrlShortener(new ConcurrentUrlStore(), CodeGenerator.inMemory(7), clock);
+        final var expiring = shortener.getShort("http://a.com", Duration.ofSeconds(30));
+        final var permanent = shortener.getShort("http://b.com");
+        assertEquals(30_000, shortener.timeToLiveMillis(expiring));
+        clock.advance(12_345);
+        assertEquals(17_655, shortener.timeToLiveMillis(expiring));
+        assertEquals(Long.MAX_VALUE, shortener.timeToLiveMillis(permanent));
+        assertEquals(Long.MAX_VALUE, shortener.timeToLiveMillis("unknown"));
+    }
+
+    @Test
+    public void recycledCodeShouldNotInheritCacheOrClicks() {
+        final var clock = new MutableClock();
+        final var cache = new HotLinkCache(new ConcurrentUrlStore(), 16, Duration.ofHours(1), Runnable::run);
+        final var clicks = new ClickAnalytics(buckets -> {});
+        final var shortener = new UrlShortener(cache, CodeGenerator.inMemory(7), clicks, clock);
+        final var code = shortener.getShort("http://a.com", Duration.ofSeconds(5));
+        for (int i = 0; i < 3; i++) {
+            assertEquals("http://a.com", shortener.getOriginal(code));
+        }
+        assertEquals(3, clicks.clicks(code));
+        clock.advance(5_000);
+        assertEquals(1, shortener.expireDue());
+        assertEquals(code, shortener.getShort("http://b.com"));
+        assertEquals(0, clicks.clicks(code));
+        assertEquals("http://b.com", shortener.getOriginal(code));
+        assertEquals(1, clicks.clicks(code));
+    }
+}